@@ -0,0 +1,269 @@
+package puzzlesolver;
+
+import com.sun.istack.internal.NotNull;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.side.Side;
+
+/**
+ * An index of the pieces along the border of a puzzle, keyed by which of their sides are flat. The
+ * flat sides of a piece are a mask, with the bit {@code 1 << dir.ordinal()} set for each direction
+ * {@code dir} that has a flat side, so a corner that goes in the top-left has the mask {@code
+ * maskOf(NORTH, WEST)}. Each mask has its own bucket, so a piece with a given mask is found in
+ * constant time, without looking at any other piece. Pieces with no flat sides aren't indexed at
+ * all.
+ *
+ * The index holds the handles of pieces in a {@link PieceStore}, filed under the mask they had
+ * when they were added to the store, which never changes. How far a piece has been turned since is
+ * the store's to know, so pieces can be turned any way while they are in the index, and {@link
+ * #getRotated} turns a piece to the wanted mask without filing it again.
+ */
+public class BorderIndex {
+
+    private static final int MASKS = 1 << Constants.NUM_SIDES;
+    private static final int MASK_BITS = Constants.NUM_SIDES;
+
+  /*
+   * INVARIANTS
+   *
+   * store
+   * - Non-null
+   *
+   * buckets, sizes
+   * - Non-null, length MASKS, contents of buckets are non-null
+   * - buckets[m][0, sizes[m]) are the handles of the indexed pieces that had mask m when they were
+   *   added to store
+   *
+   * slots
+   * - Non-null
+   * - slots[h] is (i << MASK_BITS) | m, where buckets[m][i] == h, for each indexed piece h, and -1
+   *   for every other handle below its length
+   *
+   * size
+   * - The number of indexed pieces
+   */
+
+    private final PieceStore store;
+    private final int[][] buckets = new int[MASKS][];
+    private final int[] sizes = new int[MASKS];
+    private int[] slots = new int[0];
+    private int size;
+
+    /**
+     * Constructs a new, empty {@code BorderIndex} for pieces in the given store.
+     *
+     * @param store           the store that the pieces are kept in (non-null)
+     * @param initialCapacity the amount of border pieces to make room for (non-negative)
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public BorderIndex(@NotNull PieceStore store, int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("initialCapacity cannot be negative");
+        }
+        this.store = Objects.requireNonNull(store);
+        for (int mask = 0; mask < MASKS; mask++) {
+            buckets[mask] = new int[mask == 0 ? 0 : Math.max(4, initialCapacity / MASKS)];
+        }
+    }
+
+    /**
+     * Gets the mask with a bit set for each of the given directions.
+     *
+     * @param dirs the directions of the flat sides
+     * @return the mask of the directions
+     */
+    public static int maskOf(@NotNull Direction... dirs) {
+        int mask = 0;
+        for (Direction dir : dirs) {
+            mask |= 1 << dir.ordinal();
+        }
+        return mask;
+    }
+
+    /**
+     * Gets the mask of the flat sides of the given piece, as it is now.
+     *
+     * @param piece the piece (non-null)
+     * @return the mask of the directions that the piece has a flat side in
+     */
+    public static int flatMask(@NotNull Piece piece) {
+        int mask = 0;
+        for (Direction dir : Direction.values()) {
+            if (!piece.sideNull(dir) && piece.getSide(dir).isFlat()) {
+                mask |= 1 << dir.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Gets the mask of the flat sides of the given piece in the store, as it is turned now.
+     *
+     * @param handle the handle of the piece
+     * @return the mask of the directions that the piece has a flat side in
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    public int flatMask(int handle) {
+        return turn(addedMask(handle), store.rotation(handle));
+    }
+
+    /**
+     * Gets the mask of the flat sides that the given piece had when it was added to the store.
+     */
+    private int addedMask(int handle) {
+        int mask = 0;
+        for (Direction dir : Direction.values()) {
+            final Side side = store.addedSide(handle, dir);
+            if (side != null && side.isFlat()) {
+                mask |= 1 << dir.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Gets the mask that a piece with the given mask has after it is turned clockwise.
+     *
+     * @param mask  the mask of the flat sides
+     * @param turns the number of clockwise quarter turns
+     * @return the mask after turning
+     */
+    private static int turn(int mask, int turns) {
+        turns &= Constants.NUM_SIDES - 1;
+        return ((mask << turns) | (mask >>> (MASK_BITS - turns))) & (MASKS - 1);
+    }
+
+    /**
+     * Adds the given piece, under the mask of its flat sides as it was added to the store.
+     *
+     * @param handle the handle of the piece to be added
+     * @return true if the piece was added, false if it has no flat sides or is already indexed
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    public boolean add(int handle) {
+        final int mask = addedMask(handle);
+        if (mask == 0 || slot(handle) >= 0) {
+            return false;
+        }
+        if (handle >= slots.length) {
+            final int oldLength = slots.length;
+            slots = Arrays.copyOf(slots, Math.max(handle + 1, store.size()));
+            Arrays.fill(slots, oldLength, slots.length, -1);
+        }
+        if (sizes[mask] == buckets[mask].length) {
+            buckets[mask] = Arrays.copyOf(buckets[mask], buckets[mask].length * 2);
+        }
+        final int index = sizes[mask]++;
+        buckets[mask][index] = handle;
+        slots[handle] = (index << MASK_BITS) | mask;
+        size++;
+        return true;
+    }
+
+    private int slot(int handle) {
+        return handle >= 0 && handle < slots.length ? slots[handle] : -1;
+    }
+
+    /**
+     * Removes the given piece from the index, in constant time.
+     *
+     * @param handle the handle of the piece to be removed
+     * @return true if the piece was removed, false if it wasn't indexed
+     */
+    public boolean remove(int handle) {
+        final int slot = slot(handle);
+        if (slot < 0) {
+            return false;
+        }
+
+        // Fill the hole with the last piece in the bucket, so that the bucket stays packed
+        final int mask = slot & (MASKS - 1);
+        final int index = slot >>> MASK_BITS;
+        final int[] bucket = buckets[mask];
+        final int last = --sizes[mask];
+        if (index != last) {
+            bucket[index] = bucket[last];
+            slots[bucket[index]] = (index << MASK_BITS) | mask;
+        }
+        slots[handle] = -1;
+        size--;
+        return true;
+    }
+
+    /**
+     * Gets an indexed piece whose flat sides are exactly the given directions, as it is turned
+     * now. This takes constant time, unless pieces in the index have been turned since they were
+     * added to the store.
+     *
+     * @param mask the mask of the flat sides, from {@link #maskOf}
+     * @return the handle of a piece with that mask, or {@link PieceStore#NO_PIECE} if there is none
+     */
+    public int get(int mask) {
+        checkMask(mask);
+        for (int turns = 0; turns < Constants.NUM_SIDES; turns++) {
+            // Pieces added with this mask have the wanted one if they were turned this far
+            final int addedMask = turn(mask, -turns);
+            for (int i = sizes[addedMask] - 1; i >= 0; i--) {
+                final int handle = buckets[addedMask][i];
+                if (flatMask(handle) == mask) {
+                    return handle;
+                }
+            }
+        }
+        return PieceStore.NO_PIECE;
+    }
+
+    /**
+     * Gets an indexed piece that can be turned so that its flat sides are exactly the given
+     * directions, and turns it, in constant time. The piece stays indexed.
+     *
+     * @param mask the mask of the flat sides, from {@link #maskOf}
+     * @return the handle of a piece with that mask after turning, or {@link PieceStore#NO_PIECE}
+     * if there is none
+     */
+    public int getRotated(int mask) {
+        checkMask(mask);
+        for (int turns = 0; turns < Constants.NUM_SIDES; turns++) {
+            // A piece added with this mask has the wanted mask once it is this far from how it
+            // was added
+            final int addedMask = turn(mask, -turns);
+            if (sizes[addedMask] > 0) {
+                final int handle = buckets[addedMask][sizes[addedMask] - 1];
+                store.turn(handle, turns);
+                return handle;
+            }
+        }
+        return PieceStore.NO_PIECE;
+    }
+
+    /**
+     * Gets the number of indexed pieces whose flat sides were exactly the given directions when
+     * they were added to the store.
+     *
+     * @param mask the mask of the flat sides, from {@link #maskOf}
+     * @return the number of pieces with that mask
+     */
+    public int size(int mask) {
+        checkMask(mask);
+        return sizes[mask];
+    }
+
+    /**
+     * Gets the number of indexed pieces.
+     *
+     * @return the number of pieces in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    private static void checkMask(int mask) {
+        if (mask < 0 || mask >= MASKS) {
+            throw new IllegalArgumentException("Not a mask of directions: " + mask);
+        }
+    }
+}
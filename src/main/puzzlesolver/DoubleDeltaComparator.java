@@ -5,6 +5,9 @@ import java.util.Objects;
 
 import puzzlesolver.constants.Constants;
 
+/**
+ * A {@link Comparator} for doubles, with a delta buffer zone. See {@link DoubleDeltaComparison}.
+ */
 public class DoubleDeltaComparator implements Comparator<Double> {
 
     private final double delta;
@@ -38,6 +41,20 @@ public class DoubleDeltaComparator implements Comparator<Double> {
         Objects.requireNonNull(d1);
         Objects.requireNonNull(d2);
 
-        return Math.abs(d1 - d2) <= delta ? 0 : Double.compare(d1, d2);
+        return compare(d1.doubleValue(), d2.doubleValue());
+    }
+
+    /**
+     * Compares two primitive doubles in the same way as {@link #compare(Double, Double)}, without
+     * boxing them. Calls made on a {@code DoubleDeltaComparator} reference with {@code double}
+     * arguments resolve to this overload.
+     *
+     * @param d1 the first double
+     * @param d2 the second double
+     * @return 0 if the doubles are within the delta of each other, otherwise like {@link
+     * Double#compare}
+     */
+    public int compare(double d1, double d2) {
+        return DoubleDeltaComparison.compare(d1, d2, delta);
     }
 }
@@ -0,0 +1,27 @@
+package puzzlesolver;
+
+/**
+ * Primitive comparison of doubles with a delta buffer zone. For two doubles {@code d1} and {@code
+ * d2}, if {@code abs(d1 - d2) <= delta}, then they are considered equal. Nothing is boxed, so this
+ * is what hot comparisons, like those between points and sides, should use. {@link
+ * DoubleDeltaComparator} wraps it for code that needs a {@link java.util.Comparator}.
+ */
+public final class DoubleDeltaComparison {
+
+    private DoubleDeltaComparison() {
+    }
+
+    /**
+     * Compares two doubles, considering them equal if they are within the given delta of each
+     * other.
+     *
+     * @param d1    the first double
+     * @param d2    the second double
+     * @param delta the delta to be used in the comparison (non-negative)
+     * @return 0 if the doubles are within {@code delta} of each other, otherwise a negative number
+     * if {@code d1 < d2} and a positive number if {@code d1 > d2}, like {@link Double#compare}
+     */
+    public static int compare(double d1, double d2, double delta) {
+        return Math.abs(d1 - d2) <= delta ? 0 : Double.compare(d1, d2);
+    }
+}
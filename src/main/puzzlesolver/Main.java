@@ -55,6 +55,20 @@ public class Main {
         }
         Constants.RANDOM.setSeed(seed);
 
+        if (line.hasOption(ConsoleConstants.SIMPLIFY_TOLERANCE)) {
+            final String toleranceString = line.getOptionValue(ConsoleConstants.SIMPLIFY_TOLERANCE);
+            try {
+                Constants.SIMPLIFY_TOLERANCE = Double.parseDouble(toleranceString);
+            } catch (NumberFormatException e) {
+                System.err.println("Invalid simplify tolerance: " + toleranceString);
+                System.exit(1);
+                return;
+            }
+        }
+        Constants.COMPACT_SIDES = line.hasOption(ConsoleConstants.COMPACT_SIDES);
+        Constants.HASH_PIECE_LIST = line.hasOption(ConsoleConstants.HASH_PIECE_LIST);
+        Constants.MAPPED_PIECE_LIST = line.getOptionValue(ConsoleConstants.MAPPED_PIECE_LIST);
+
         Constants.LOGGER
             .printf(Logger.INFO, "Verbosity: %d%n", Constants.LOGGER.getGlobalVerbosity());
         Constants.LOGGER.printf(Logger.INFO, "Random Seed: %s%n", seed);
@@ -1,13 +1,14 @@
 package puzzlesolver;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.Objects;
 
 import puzzlesolver.constants.Constants;
 import puzzlesolver.enums.Direction;
 import puzzlesolver.enums.PieceType;
+import puzzlesolver.side.CompactSide;
 import puzzlesolver.side.Side;
+import puzzlesolver.side.SideTable;
 
 /**
  * A class to represent a 4-sided puzzle piece.
@@ -22,10 +23,42 @@ import puzzlesolver.side.Side;
 public class Piece {
 
     /**
-     * Sides are ordered in the same way as {@link Direction}: NORTH, EAST, SOUTH, WEST.
+     * Sides are ordered in the same way as {@link Direction}: NORTH, EAST, SOUTH, WEST, starting
+     * from {@link #orientation}. Rotating the piece only changes the orientation, so this array is
+     * never reallocated.
      */
-    private Side[] sides;
-    private PieceType[] pieceTypes;
+    private final Side[] sides;
+
+    /**
+     * Cached result of {@link #getPieceTypeMask()}, or -1 if it hasn't been looked up yet. Side
+     * types never change when sides are simplified, compacted or interned, and no type depends on
+     * the orientation, so this never needs to be reset.
+     */
+    private int pieceTypeMask = -1;
+
+    /**
+     * IDs of the sides in a {@link SideTable}, in the same order as {@link #sides}. {@code null}
+     * until {@link #internSides} is called.
+     */
+    private int[] sideIds;
+
+    /**
+     * Index in {@link #sides} of the side that currently faces north. The side in direction {@code
+     * dir} is at {@code (dir.ordinal() + orientation) & 3}.
+     */
+    private byte orientation;
+
+    /**
+     * The {@link PieceStore} that this piece was first added to, or {@code null} if it hasn't been
+     * added to one. The store keeps its own record of how far the piece has been turned, which
+     * {@link #rotate} keeps up to date.
+     */
+    private PieceStore store;
+
+    /**
+     * Handle of this piece in {@link #store}, or {@link PieceStore#NO_PIECE} if it has none.
+     */
+    private int handle = PieceStore.NO_PIECE;
 
     /**
      * Constructs a new Piece with the given 4 sides.
@@ -37,26 +70,210 @@ public class Piece {
     }
 
     /**
-     * Gets a clone of the side of this piece in the given direction.
+     * Constructs a new piece with no sides, for a {@link PieceProbe} to fill in.
+     */
+    Piece() {
+        this(new Side[Constants.NUM_SIDES]);
+        sideIds = new int[Constants.NUM_SIDES];
+        Arrays.fill(sideIds, SideTable.NO_SIDE);
+    }
+
+    /**
+     * Sets the side in the given direction, in the current orientation, and forgets the cached
+     * piece types. Only for {@link PieceProbe}, which is made with {@link #Piece()}.
+     *
+     * @param dir    the direction of the side
+     * @param side   the side, or {@code null} to make it unknown
+     * @param sideId the ID of the side, or {@link SideTable#NO_SIDE} if it isn't known
+     */
+    void putSide(Direction dir, Side side, int sideId) {
+        sides[index(dir.ordinal())] = side;
+        sideIds[index(dir.ordinal())] = sideId;
+        pieceTypeMask = -1;
+    }
+
+    /**
+     * Clears all sides and the orientation. Only for {@link PieceProbe}, which is made with {@link
+     * #Piece()}.
+     */
+    void clearSides() {
+        Arrays.fill(sides, null);
+        Arrays.fill(sideIds, SideTable.NO_SIDE);
+        orientation = 0;
+        pieceTypeMask = -1;
+    }
+
+    /**
+     * Gets the side of this piece in the given direction. Sides are immutable, so the side itself
+     * is returned rather than a copy.
      *
      * @param dir the direction of the piece to be retrieved
-     * @return a clone of the side in the given direction
+     * @return the side in the given direction
      */
     public Side getSide(Direction dir) {
-        return sides[dir.ordinal()] != null ? sides[dir.ordinal()].copy() : null;
+        return sides[index(dir.ordinal())];
+    }
+
+    /**
+     * Gets the index in {@link #sides} and {@link #sideIds} of the side in the direction with the
+     * given ordinal, according to the current orientation.
+     */
+    private int index(int dirOrdinal) {
+        return (dirOrdinal + orientation) & (Constants.NUM_SIDES - 1);
+    }
+
+    /**
+     * Gets the index in {@link #sides} of the side that currently faces north. Each clockwise
+     * quarter turn takes one off it. Only for {@link PieceStore}, which works out how far a piece
+     * that it isn't the first store of has been turned from this.
+     *
+     * @return the orientation of this piece
+     */
+    int orientation() {
+        return orientation;
+    }
+
+    /**
+     * Gets the store that this piece was first added to. Only for {@link PieceStore}.
+     *
+     * @return the store, or {@code null} if the piece hasn't been added to one
+     */
+    PieceStore store() {
+        return store;
+    }
+
+    /**
+     * Gets the handle of this piece in the store it was first added to. Only for {@link
+     * PieceStore}.
+     *
+     * @return the handle, or {@link PieceStore#NO_PIECE} if the piece hasn't been added to a store
+     */
+    int handle() {
+        return handle;
+    }
+
+    /**
+     * Records the store that this piece was first added to, and its handle there. Only for {@link
+     * PieceStore}.
+     *
+     * @param store  the store (non-null)
+     * @param handle the handle of this piece in the store
+     */
+    void setStore(PieceStore store, int handle) {
+        this.store = store;
+        this.handle = handle;
+    }
+
+    /**
+     * Gets the ID of the side of this piece in the given direction, as assigned by the {@link
+     * SideTable} passed to the last call to {@link #internSides}.
+     *
+     * @param dir the direction of the side
+     * @return the ID of the side, or {@link SideTable#NO_SIDE} if the side is {@code null} or this
+     * piece's sides haven't been interned
+     */
+    public int getSideId(Direction dir) {
+        return sideIds != null ? sideIds[index(dir.ordinal())] : SideTable.NO_SIDE;
+    }
+
+    /**
+     * Gets the direction that the side with the given ID currently faces in this piece.
+     *
+     * @param sideId the ID of the side, as returned by {@link #getSideId}
+     * @return the first direction with that side ID, or {@code null} if this piece has no side
+     * with that ID
+     */
+    public Direction directionOf(int sideId) {
+        if (sideIds != null && sideId != SideTable.NO_SIDE) {
+            for (Direction dir : Direction.values()) {
+                if (sideIds[index(dir.ordinal())] == sideId) {
+                    return dir;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replaces each of this piece's sides with a version simplified to the given tolerance (see
+     * {@link Side#simplify}). A tolerance of 0 restores the full-resolution sides. Since the sides
+     * change, any IDs from {@link #internSides} are dropped, so this should be called before
+     * interning.
+     *
+     * @param tolerance the most any dropped point can be off a simplified side
+     * @return this, after simplifying
+     */
+    public Piece simplifySides(double tolerance) {
+        for (int i = 0; i < Constants.NUM_SIDES; i++) {
+            if (sides[i] != null) {
+                sides[i] = sides[i].simplify(tolerance);
+            }
+        }
+        sideIds = null;
+        return this;
+    }
+
+    /**
+     * Replaces each of this piece's sides with a {@link CompactSide} with the same points, to save
+     * memory. Since the sides change, any IDs from {@link #internSides} are dropped, so this should
+     * be called before interning.
+     *
+     * @return this, after compacting
+     */
+    public Piece compactSides() {
+        for (int i = 0; i < Constants.NUM_SIDES; i++) {
+            if (sides[i] != null) {
+                sides[i] = CompactSide.of(sides[i]);
+            }
+        }
+        sideIds = null;
+        return this;
+    }
+
+    /**
+     * Interns all of this piece's sides in the given table. Afterwards, this piece holds the
+     * table's shared instance of each side, and {@link #getSideId} returns the IDs from the table.
+     *
+     * @param sideTable the table to intern the sides in (non-null)
+     * @return this, after interning
+     */
+    public Piece internSides(SideTable sideTable) {
+        final int[] ids = new int[Constants.NUM_SIDES];
+        for (int i = 0; i < Constants.NUM_SIDES; i++) {
+            if (sides[i] == null) {
+                ids[i] = SideTable.NO_SIDE;
+            } else {
+                ids[i] = sideTable.intern(sides[i]);
+                sides[i] = sideTable.get(ids[i]);
+            }
+        }
+        sideIds = ids;
+        return this;
+    }
+
+    /**
+     * Gets the {@link PieceType}s that this piece can be, as a mask with the {@link
+     * PieceType#mask()} of each of them set. This is looked up from the types of the sides, and
+     * cached.
+     *
+     * @return the mask of all possible types for this piece
+     */
+    public int getPieceTypeMask() {
+        int mask = pieceTypeMask;
+        if (mask < 0) {
+            pieceTypeMask = mask = PieceType.typeMask(PieceType.signature(this));
+        }
+        return mask;
     }
 
     /**
-     * Gets the {@link PieceType} type of this piece. This was calculated upon construction of the
-     * object. The order of this array is GUARANTEED to match the order of {@link PieceType}.
+     * Gets the {@link PieceType} type of this piece. The order of this array is GUARANTEED to match
+     * the order of {@link PieceType}. The array is shared, so it must not be modified.
      *
      * @return all possibly types for this piece
      */
     public PieceType[] getPieceTypes() {
-        if (pieceTypes == null) {
-            pieceTypes = findPieceTypes();
-        }
-        return pieceTypes.clone();
+        return PieceType.typesOf(getPieceTypeMask());
     }
 
     /**
@@ -67,20 +284,21 @@ public class Piece {
      * @throws IllegalStateException if there is no definite type for this piece
      */
     public PieceType getPieceType() {
-        if (getPieceTypes().length == 1) {
-            return getPieceTypes()[0];
+        final int mask = getPieceTypeMask();
+        if (Integer.bitCount(mask) == 1) {
+            return PieceType.values()[Integer.numberOfTrailingZeros(mask)];
         }
         throw new IllegalStateException("No single type for this piece!");
     }
 
-    private PieceType[] findPieceTypes() {
-        List<PieceType> types = new ArrayList<>(PieceType.values().length);
-        for (PieceType pieceType : PieceType.values()) {
-            if (pieceType.canBeType(this)) {
-                types.add(pieceType);
-            }
-        }
-        return types.toArray(new PieceType[types.size()]);
+    /**
+     * Can this piece be of the given type?
+     *
+     * @param pieceType the type to check for
+     * @return true if the given type is one of the types that this piece can be, false otherwise
+     */
+    public boolean canBeType(PieceType pieceType) {
+        return (getPieceTypeMask() & pieceType.mask()) != 0;
     }
 
     /**
@@ -92,8 +310,7 @@ public class Piece {
      * otherwise
      */
     public boolean definitelyType(PieceType pieceType) {
-        PieceType[] types = getPieceTypes();
-        return types.length == 1 && types[0] == pieceType;
+        return getPieceTypeMask() == pieceType.mask();
     }
 
     /**
@@ -103,7 +320,24 @@ public class Piece {
      * @return true if the side in that direction is {@code null}, false otherwise
      */
     public boolean sideNull(Direction dir) {
-        return sides[dir.ordinal()] == null;
+        return sides[index(dir.ordinal())] == null;
+    }
+
+    /**
+     * Gets the direction of the side to look this piece up by. That is a non-flat side if there is
+     * one, since flat sides are shared by every border piece and so tell pieces apart the least.
+     *
+     * @return the direction of a non-null side of this piece, or {@code null} if every side is
+     * {@code null}
+     */
+    public Direction lookupDirection() {
+        Direction lookupDir = null;
+        for (Direction dir : Direction.values()) {
+            if (!sideNull(dir) && (lookupDir == null || !getSide(dir).isFlat())) {
+                lookupDir = dir;
+            }
+        }
+        return lookupDir;
     }
 
     /**
@@ -126,17 +360,26 @@ public class Piece {
         Piece p = (Piece) o;
 
         for (int i = 0; i < Constants.NUM_SIDES; i++) {
-            final Side otherSide = p.getSide(Direction.values()[i]);
-            if (sides[i] != otherSide && sides[i] != null && !sides[i].equals(otherSide)) {
+            final Side side = sides[index(i)];
+            final Side otherSide = p.sides[p.index(i)];
+            if (side != otherSide && side != null && !side.equals(otherSide)) {
                 return false;
             }
         }
         return true;
     }
 
+    /**
+     * Hashes the sides in direction order, like {@link java.util.Arrays#hashCode(Object[])}, so
+     * that equal pieces hash the same whatever their orientations.
+     */
     @Override
     public int hashCode() {
-        return Arrays.hashCode(sides);
+        int result = 1;
+        for (int i = 0; i < Constants.NUM_SIDES; i++) {
+            result = 31 * result + Objects.hashCode(sides[index(i)]);
+        }
+        return result;
     }
 
     /**
@@ -150,8 +393,9 @@ public class Piece {
      */
     public boolean maybeEquals(Piece p) {
         for (int i = 0; i < Constants.NUM_SIDES; i++) {
-            final Side otherSide = p.getSide(Direction.values()[i]);
-            if (sides[i] != null && otherSide != null && !sides[i].equals(otherSide)) {
+            final Side side = sides[index(i)];
+            final Side otherSide = p.sides[p.index(i)];
+            if (side != null && otherSide != null && !side.equals(otherSide)) {
                 return false;
             }
         }
@@ -161,28 +405,28 @@ public class Piece {
     /**
      * Rotates the sides of this piece from {@param from} to {@param to}. For example, {@code
      * rotate(NORTH, EAST)} rotates the piece one space clockwise, so that the old north side is the
-     * new east side. Does not clone the piece first, so use this wisely!
+     * new east side. Does not clone the piece first, so use this wisely! Rotating only changes the
+     * piece's orientation, and the rotation recorded by the store it was first added to, so it
+     * never allocates.
      *
      * @param from the direction to be rotated from
      * @param to   the direction to be rotated to
      * @return this, after rotation
      */
     public Piece rotate(Direction from, Direction to) {
-        final Side[] newSides = new Side[Constants.NUM_SIDES];
-        int rotAmt = (to.ordinal() - from.ordinal()) % Constants.NUM_SIDES;
-        if (rotAmt < 0) {
-            rotAmt += Constants.NUM_SIDES;
-        }
-        System.arraycopy(sides, 0, newSides, rotAmt, Constants.NUM_SIDES - rotAmt);
-        System.arraycopy(sides, Constants.NUM_SIDES - rotAmt, newSides, 0, rotAmt);
-        sides = newSides;
+        // The side that was at from is now at to, so the sides start that much earlier
+        final int turns = (to.ordinal() - from.ordinal()) & (Constants.NUM_SIDES - 1);
+        orientation = (byte) ((orientation - turns) & (Constants.NUM_SIDES - 1));
+        if (store != null) {
+            store.turned(handle, turns);
+        }
         return this;
     }
 
     /**
      * Makes a clone of thise piece, then rotates that clone from {@code from} to {@code to}.
      * Rotation is done by calling {@link #rotate}, so this rotation will follow that method's
-     * rules.
+     * rules. The clone shares this piece's sides, so nothing but the piece itself is copied.
      *
      * @param from the direction to be rotated from
      * @param to   the direction to be rotated to
@@ -193,24 +437,17 @@ public class Piece {
     }
 
     /**
-     * Makes a deep copy of this piece, copying each side as well.
+     * Makes a copy of this piece. Sides are immutable, so the copy shares them with this piece.
      *
-     * @return a deep copy of this piece
+     * @return a copy of this piece
      */
     public Piece copy() {
-        final Builder builder = new Builder();
-        for (Direction dir : Direction.values()) {
-            final Side s = sides[dir.ordinal()];
-            if (s != null) {
-                builder.setSide(sides[dir.ordinal()], dir); // Builder clones the side
-            }
-        }
+        final Piece piece = new Piece(sides.clone());
+        piece.orientation = orientation;
 
-        final Piece piece = builder.build();
-
-        // If we have this piece's types already, carry them over to the clone
-        if (pieceTypes != null) {
-            piece.pieceTypes = pieceTypes.clone();
+        piece.pieceTypeMask = pieceTypeMask;
+        if (sideIds != null) {
+            piece.sideIds = sideIds.clone();
         }
         return piece;
     }
@@ -218,16 +455,32 @@ public class Piece {
     public static class Builder {
 
         private final Side[] sides = new Side[Constants.NUM_SIDES];
+        private final int[] sideIds = {SideTable.NO_SIDE, SideTable.NO_SIDE, SideTable.NO_SIDE,
+                                       SideTable.NO_SIDE};
 
         /**
-         * Sets this piece's side in the given direction to the given side. Makes a copy of the
-         * given side to stay safe from bad people.
+         * Sets this piece's side in the given direction to the given side. Sides are immutable, so
+         * the side is shared rather than copied.
          *
-         * @param side the side to be added
+         * @param side the side to be added (non-null)
          * @param dir  the direction of the side in this piece
          */
         public Builder setSide(Side side, Direction dir) {
-            sides[dir.ordinal()] = side.copy();
+            return setSide(side, SideTable.NO_SIDE, dir);
+        }
+
+        /**
+         * Sets this piece's side in the given direction to the given side, which is already in a
+         * {@link SideTable} with the given ID. The built piece returns the ID from {@link
+         * #getSideId}, as if its sides had been interned.
+         *
+         * @param side   the side to be added (non-null)
+         * @param sideId the ID of the side, or {@link SideTable#NO_SIDE} if it isn't known
+         * @param dir    the direction of the side in this piece
+         */
+        public Builder setSide(Side side, int sideId, Direction dir) {
+            sides[dir.ordinal()] = Objects.requireNonNull(side);
+            sideIds[dir.ordinal()] = sideId;
             return this;
         }
 
@@ -237,7 +490,14 @@ public class Piece {
         public Piece build() {
             for (Side side : sides) {
                 if (side != null) {
-                    return new Piece(sides);
+                    final Piece piece = new Piece(sides.clone());
+                    for (int sideId : sideIds) {
+                        if (sideId != SideTable.NO_SIDE) {
+                            piece.sideIds = sideIds.clone();
+                            break;
+                        }
+                    }
+                    return piece;
                 }
             }
             throw new IllegalStateException("At least one side must be non-null");
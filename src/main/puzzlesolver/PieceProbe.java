@@ -0,0 +1,78 @@
+package puzzlesolver;
+
+import com.sun.istack.internal.NotNull;
+
+import java.util.Objects;
+
+import puzzlesolver.enums.Direction;
+import puzzlesolver.side.Side;
+import puzzlesolver.side.SideTable;
+
+/**
+ * A mutable {@link Piece}, for looking pieces up in a {@link puzzlesolver.piecelist.PieceList}. A
+ * solver keeps a probe and fills it in place for every query, rather than building a new piece
+ * each time, so that probing allocates nothing. Since a probe is a piece, anything that takes a
+ * piece to look for takes a probe directly.
+ *
+ * Like any piece, a probe must have at least one non-null side when it is used. It may have none
+ * while it is being filled in. Probes are never put in a solution or a list.
+ */
+public class PieceProbe extends Piece {
+
+    /**
+     * Constructs a new probe with no sides.
+     */
+    public PieceProbe() {
+        super();
+    }
+
+    /**
+     * Clears all of this probe's sides, and turns it back to its original orientation.
+     *
+     * @return this, after clearing
+     */
+    public PieceProbe clear() {
+        clearSides();
+        return this;
+    }
+
+    /**
+     * Sets this probe's side in the given direction to the given side. Sides are immutable, so the
+     * side is shared rather than copied.
+     *
+     * @param side the side to be set (non-null)
+     * @param dir  the direction of the side in this probe
+     * @return this, after setting the side
+     */
+    public PieceProbe setSide(@NotNull Side side, Direction dir) {
+        return setSide(side, SideTable.NO_SIDE, dir);
+    }
+
+    /**
+     * Sets this probe's side in the given direction to the given side, which is already in a
+     * {@link SideTable} with the given ID.
+     *
+     * @param side   the side to be set (non-null)
+     * @param sideId the ID of the side, or {@link SideTable#NO_SIDE} if it isn't known
+     * @param dir    the direction of the side in this probe
+     * @return this, after setting the side
+     */
+    public PieceProbe setSide(@NotNull Side side, int sideId, Direction dir) {
+        putSide(dir, Objects.requireNonNull(side), sideId);
+        return this;
+    }
+
+    /**
+     * Does this probe have no sides at all?
+     *
+     * @return true if every side is {@code null}, false otherwise
+     */
+    public boolean isEmpty() {
+        for (Direction dir : Direction.values()) {
+            if (!sideNull(dir)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,488 @@
+package puzzlesolver;
+
+import com.sun.istack.internal.NotNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.side.Side;
+import puzzlesolver.side.SideTable;
+
+/**
+ * A store of pieces, kept as parallel primitive arrays indexed by an {@code int} handle: the IDs
+ * of their sides in a {@link SideTable}, how far they have been turned since they were added, their
+ * type mask and whether they have been placed. Solvers and the piece lists they use hold handles
+ * rather than pieces, and matching a probe against a stored piece only reads these arrays, so it
+ * never touches the piece's {@link Piece} or {@link Side} objects unless the probe has a side with
+ * no ID.
+ *
+ * Each handle also has a {@link Piece} view, which is the piece that was added. Views are what the
+ * UI draws, and what lists hand back to anything that works with pieces rather than handles. A
+ * piece remembers the first store it is added to and its handle there, so that store finds the
+ * handle of a piece without a map, and turning the view directly updates the store's record of
+ * its rotation. A piece that is already in another store, such as one that a solver was given
+ * again after it was restarted, is looked up in a map instead, and its rotation is worked out from
+ * its view.
+ *
+ * A store made with a {@link SideTable} tracks which unplaced piece owns each side, for sides that
+ * only one piece holds, so the only candidate for a probe can be found from any such side of the
+ * probe. A store made without one takes pieces whose sides aren't interned, and matches them by
+ * their sides alone.
+ */
+public class PieceStore {
+
+    /**
+     * Handle returned for pieces that aren't in the store.
+     */
+    public static final int NO_PIECE = -1;
+
+  /*
+   * INVARIANTS
+   *
+   * sideIds, rotations, typeMasks, placed, views
+   * - Non-null, with room for at least size pieces (4 side IDs per piece)
+   * - sideIds[4h + d] is the ID of the side of piece h in direction d, as it was added, or NO_SIDE
+   *   if that side is null or sideTable is null
+   * - rotations[h] is the clockwise quarter turns that views[h] has been turned since it was
+   *   added, unless h is a guest, in which case it is the orientation of views[h] when it was added
+   * - typeMasks[h] == views[h].getPieceTypeMask()
+   * - views[h].store() == this and views[h].handle() == h, unless h is a guest
+   *
+   * guests, guestHandles
+   * - Both null if no piece in this store was in another store first
+   * - Otherwise, guests.get(views[h]) == h and guestHandles.get(h) for exactly the guests h, which
+   *   are the pieces whose store() isn't this
+   *
+   * owners, shared
+   * - Non-null, same length, empty if sideTable is null
+   * - shared[id] if more than one side of the stored pieces has that ID
+   * - owners[id] is the unplaced piece holding side id if !shared[id], otherwise NO_PIECE
+   */
+
+    private final SideTable sideTable;
+    private int[] sideIds;
+    private byte[] rotations;
+    private short[] typeMasks;
+    private boolean[] placed;
+    private Piece[] views;
+    private int size;
+
+    private Map<Piece, Integer> guests;
+    private BitSet guestHandles;
+
+    private int[] owners;
+    private boolean[] shared;
+
+    /**
+     * Constructs a new, empty {@code PieceStore} for pieces whose sides aren't interned.
+     *
+     * @param initialCapacity the amount of pieces to make room for (non-negative)
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public PieceStore(int initialCapacity) {
+        this(null, initialCapacity);
+    }
+
+    /**
+     * Constructs a new, empty {@code PieceStore} for pieces whose sides are interned in the given
+     * table.
+     *
+     * @param sideTable       the table that the pieces' sides are interned in, or {@code null} if
+     *                        they aren't interned
+     * @param initialCapacity the amount of pieces to make room for (non-negative)
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public PieceStore(SideTable sideTable, int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("initialCapacity cannot be negative");
+        }
+        this.sideTable = sideTable;
+        sideIds = new int[initialCapacity * Constants.NUM_SIDES];
+        rotations = new byte[initialCapacity];
+        typeMasks = new short[initialCapacity];
+        placed = new boolean[initialCapacity];
+        views = new Piece[initialCapacity];
+        owners = new int[0];
+        shared = new boolean[0];
+    }
+
+    /**
+     * Adds the given piece, in its current orientation. If this store has a {@link SideTable}, the
+     * piece becomes the owner of any of its sides that no other stored piece holds.
+     *
+     * @param piece the piece to be added, with its sides interned in this store's table if it has
+     *              one (non-null)
+     * @return the handle of the piece
+     * @throws IllegalArgumentException if the piece is already in the store, or this store has a
+     *                                  table and a side of the piece hasn't been interned
+     */
+    public int add(@NotNull Piece piece) {
+        Objects.requireNonNull(piece);
+        if (handleOf(piece) != NO_PIECE) {
+            throw new IllegalArgumentException("Piece is already in the store");
+        }
+        if (sideTable != null) {
+            for (Direction dir : Direction.values()) {
+                if (piece.getSideId(dir) == SideTable.NO_SIDE && !piece.sideNull(dir)) {
+                    throw new IllegalArgumentException("Piece sides must be interned");
+                }
+            }
+        }
+
+        final int handle = size++;
+        if (handle == views.length) {
+            final int newLength = Math.max(16, views.length * 2);
+            sideIds = Arrays.copyOf(sideIds, newLength * Constants.NUM_SIDES);
+            rotations = Arrays.copyOf(rotations, newLength);
+            typeMasks = Arrays.copyOf(typeMasks, newLength);
+            placed = Arrays.copyOf(placed, newLength);
+            views = Arrays.copyOf(views, newLength);
+        }
+        if (sideTable != null && owners.length < sideTable.size()) {
+            final int oldLength = owners.length;
+            owners = Arrays.copyOf(owners, Math.max(sideTable.size(), oldLength * 2));
+            Arrays.fill(owners, oldLength, owners.length, NO_PIECE);
+            shared = Arrays.copyOf(shared, owners.length);
+        }
+
+        for (Direction dir : Direction.values()) {
+            final int sideId = sideTable != null ? piece.getSideId(dir) : SideTable.NO_SIDE;
+            sideIds[handle * Constants.NUM_SIDES + dir.ordinal()] = sideId;
+            if (sideId != SideTable.NO_SIDE) {
+                own(sideId, handle);
+            }
+        }
+        typeMasks[handle] = (short) piece.getPieceTypeMask();
+        placed[handle] = false;
+        views[handle] = piece;
+        if (piece.store() == null) {
+            piece.setStore(this, handle);
+            rotations[handle] = 0;
+        } else {
+            if (guests == null) {
+                guests = new IdentityHashMap<>();
+                guestHandles = new BitSet();
+            }
+            guests.put(piece, handle);
+            guestHandles.set(handle);
+            rotations[handle] = (byte) piece.orientation();
+        }
+        return handle;
+    }
+
+    private void own(int sideId, int handle) {
+        if (shared[sideId]) {
+            return;
+        }
+        if (owners[sideId] == NO_PIECE) {
+            owners[sideId] = handle;
+        } else {
+            shared[sideId] = true;
+            owners[sideId] = NO_PIECE;
+        }
+    }
+
+    /**
+     * Gets the amount of pieces in this store, placed or not.
+     *
+     * @return the amount of pieces
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the handle of the given piece.
+     *
+     * @param piece the piece to look up
+     * @return the handle of the piece, or {@link #NO_PIECE} if it isn't in this store
+     */
+    public int handleOf(Piece piece) {
+        if (piece == null) {
+            return NO_PIECE;
+        }
+        if (piece.store() == this) {
+            return piece.handle();
+        }
+        final Integer handle = guests == null ? null : guests.get(piece);
+        return handle == null ? NO_PIECE : handle;
+    }
+
+    /**
+     * Gets the view of the piece with the given handle, which is the piece that was added, as it
+     * is turned now.
+     *
+     * @param handle the handle of the piece
+     * @return the piece
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    public Piece view(int handle) {
+        checkHandle(handle);
+        return views[handle];
+    }
+
+    /**
+     * Gets the ID of the side of the given piece in the given direction, as the piece is turned
+     * now.
+     *
+     * @param handle the handle of the piece
+     * @param dir    the direction of the side
+     * @return the ID of the side, or {@link SideTable#NO_SIDE} if the side is {@code null} or this
+     * store has no table
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    public int sideId(int handle, Direction dir) {
+        return sideIds[handle * Constants.NUM_SIDES + addedIndex(handle, dir.ordinal())];
+    }
+
+    /**
+     * Gets the side of the given piece in the given direction, as the piece is turned now.
+     *
+     * @param handle the handle of the piece
+     * @param dir    the direction of the side
+     * @return the side, which may be {@code null}
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    public Side side(int handle, Direction dir) {
+        return addedSide(handle, addedIndex(handle, dir.ordinal()));
+    }
+
+    /**
+     * Gets the side of the given piece that faced the given direction when it was added, however
+     * it has been turned since. Lists file pieces by these sides, since they never change.
+     *
+     * @param handle the handle of the piece
+     * @param dir    the direction that the side faced when the piece was added
+     * @return the side, which may be {@code null}
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    public Side addedSide(int handle, Direction dir) {
+        checkHandle(handle);
+        return addedSide(handle, dir.ordinal());
+    }
+
+    private Side addedSide(int handle, int index) {
+        final int sideId = sideIds[handle * Constants.NUM_SIDES + index];
+        if (sideId != SideTable.NO_SIDE) {
+            return sideTable.get(sideId);
+        }
+        // Not interned, so get it from the view, which faces it the other way by its rotation
+        return views[handle].getSide(
+            Direction.values()[(index + rotation(handle)) & (Constants.NUM_SIDES - 1)]);
+    }
+
+    /**
+     * Gets the index among the sides of the given piece, as it was added, of the side that faces
+     * the given direction now.
+     */
+    private int addedIndex(int handle, int dirOrdinal) {
+        return (dirOrdinal - rotation(handle)) & (Constants.NUM_SIDES - 1);
+    }
+
+    /**
+     * Gets the mask of the {@link puzzlesolver.enums.PieceType}s that the given piece can be.
+     *
+     * @param handle the handle of the piece
+     * @return the piece's type mask, as returned by {@link Piece#getPieceTypeMask()}
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    public int typeMask(int handle) {
+        checkHandle(handle);
+        return typeMasks[handle];
+    }
+
+    /**
+     * Gets how far the given piece has been turned since it was added. This is up to date however
+     * the piece was turned, whether by {@link #turn} or by turning its view directly.
+     *
+     * @param handle the handle of the piece
+     * @return the amount of clockwise quarter turns from the orientation the piece was added in
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    public int rotation(int handle) {
+        checkHandle(handle);
+        if (guestHandles != null && guestHandles.get(handle)) {
+            // Its turns are recorded by its first store, so work them out from its view. Each
+            // clockwise turn takes one off the orientation.
+            return (rotations[handle] - views[handle].orientation()) & (Constants.NUM_SIDES - 1);
+        }
+        return rotations[handle];
+    }
+
+    /**
+     * Records that the given piece has been turned. Only for {@link Piece#rotate}, which calls this
+     * on the store that the piece was first added to.
+     *
+     * @param handle the handle of the piece
+     * @param turns  the clockwise quarter turns it was turned by
+     */
+    void turned(int handle, int turns) {
+        rotations[handle] = (byte) ((rotations[handle] + turns) & (Constants.NUM_SIDES - 1));
+    }
+
+    /**
+     * Has the given piece been placed?
+     *
+     * @param handle the handle of the piece
+     * @return true if {@link #markPlaced} has been called for the piece
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    public boolean isPlaced(int handle) {
+        checkHandle(handle);
+        return placed[handle];
+    }
+
+    /**
+     * Gets the unplaced piece that holds the side with the given ID, if it is the only piece
+     * that ever held it.
+     *
+     * @param sideId the ID of the side
+     * @return the handle of the owner, or {@link #NO_PIECE} if the owner has been placed, the side
+     * is shared or no stored piece has it
+     */
+    public int owner(int sideId) {
+        return sideId >= 0 && sideId < owners.length ? owners[sideId] : NO_PIECE;
+    }
+
+    /**
+     * Is the side with the given ID held by more than one stored piece? Owners of shared sides,
+     * like flat sides, aren't tracked.
+     *
+     * @param sideId the ID of the side
+     * @return true if more than one side of the stored pieces has that ID
+     */
+    public boolean isShared(int sideId) {
+        return sideId >= 0 && sideId < shared.length && shared[sideId];
+    }
+
+    /**
+     * Finds the rotation in which the given piece fits the given probe. Sides of the probe with an
+     * ID are matched by ID. Sides without one are checked with {@link Side#equals}, and {@code
+     * null} sides match anything. The probe's types must include the piece's type.
+     *
+     * @param handle the handle of the piece
+     * @param probe  the piece to be matched (non-null)
+     * @return the clockwise quarter turns from the orientation the piece was added in that make
+     * it fit the probe, or -1 if it doesn't fit in any rotation
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    public int fit(int handle, @NotNull Piece probe) {
+        checkHandle(handle);
+        if ((probe.getPieceTypeMask() & typeMasks[handle]) == 0) {
+            return -1;
+        }
+        for (int rotation = 0; rotation < Constants.NUM_SIDES; rotation++) {
+            if (fits(handle, rotation, probe)) {
+                return rotation;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the rotation that turns the side with the given ID of the given piece to face the
+     * given direction, and checks if the piece fits the probe in that rotation.
+     *
+     * @param handle the handle of the piece
+     * @param sideId the ID of a side of the piece
+     * @param dir    the direction the side must face
+     * @param probe  the piece to be matched (non-null)
+     * @return the clockwise quarter turns that make the piece fit the probe with the side facing
+     * {@code dir}, or -1 if it doesn't fit that way
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    public int fit(int handle, int sideId, Direction dir, @NotNull Piece probe) {
+        checkHandle(handle);
+        if ((probe.getPieceTypeMask() & typeMasks[handle]) == 0) {
+            return -1;
+        }
+        for (int i = 0; i < Constants.NUM_SIDES; i++) {
+            if (sideIds[handle * Constants.NUM_SIDES + i] == sideId) {
+                // Turning clockwise moves the side at i to i + rotation
+                final int rotation = (dir.ordinal() - i) & (Constants.NUM_SIDES - 1);
+                if (fits(handle, rotation, probe)) {
+                    return rotation;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Does the given piece, as it is turned now, match the given probe? Sides are matched like with
+     * {@link #fit}.
+     *
+     * @param handle the handle of the piece
+     * @param probe  the piece to be matched (non-null)
+     * @return true if the piece matches the probe without turning it
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    public boolean matches(int handle, @NotNull Piece probe) {
+        return (probe.getPieceTypeMask() & typeMask(handle)) != 0
+               && fits(handle, rotation(handle), probe);
+    }
+
+    private boolean fits(int handle, int rotation, Piece probe) {
+        for (Direction dir : Direction.values()) {
+            if (probe.sideNull(dir)) {
+                continue;
+            }
+            final int index = (dir.ordinal() - rotation) & (Constants.NUM_SIDES - 1);
+            final int sideId = sideIds[handle * Constants.NUM_SIDES + index];
+            final int probeId = probe.getSideId(dir);
+            if (sideId != SideTable.NO_SIDE && probeId != SideTable.NO_SIDE) {
+                if (probeId != sideId) {
+                    return false;
+                }
+            } else {
+                final Side side = addedSide(handle, index);
+                if (side == null || !probe.getSide(dir).equals(side)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Turns the view of the given piece to the given rotation, so that it matches what {@link
+     * #fit} returned.
+     *
+     * @param handle   the handle of the piece
+     * @param rotation the clockwise quarter turns from the orientation the piece was added in
+     * @return the view of the piece, turned
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    public Piece turn(int handle, int rotation) {
+        final int change = (rotation - rotation(handle)) & (Constants.NUM_SIDES - 1);
+        return views[handle].rotate(Direction.NORTH, Direction.values()[change]);
+    }
+
+    /**
+     * Marks the given piece as placed, and releases the sides it owns.
+     *
+     * @param handle the handle of the piece
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    public void markPlaced(int handle) {
+        checkHandle(handle);
+        placed[handle] = true;
+        for (int i = 0; i < Constants.NUM_SIDES; i++) {
+            final int sideId = sideIds[handle * Constants.NUM_SIDES + i];
+            if (sideId != SideTable.NO_SIDE && owners[sideId] == handle) {
+                owners[sideId] = NO_PIECE;
+            }
+        }
+    }
+
+    private void checkHandle(int handle) {
+        if (handle < 0 || handle >= size) {
+            throw new IndexOutOfBoundsException(handle + " is not a valid piece handle");
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package puzzlesolver;
 
-import java.util.Comparator;
 import java.util.Objects;
 
 /**
@@ -11,7 +10,7 @@ import java.util.Objects;
  */
 public class Point implements Comparable<Point>, Cloneable {
 
-    private static final Comparator<Double> comp = new DoubleDeltaComparator();
+    private static final DoubleDeltaComparator comp = new DoubleDeltaComparator();
 
     /**
      * X-coordinate of the point (distance from left).
@@ -74,6 +73,7 @@ public class Point implements Comparable<Point>, Cloneable {
             return 0;
         }
 
+        // Both coordinates are primitive, so this never boxes
         int compareResult = comp.compare(y, p.y);
         if (compareResult != 0) {
             return compareResult;
@@ -14,7 +14,11 @@ public class ConsoleConstants {
         CLI_FANCY = "f", CLI_FANCY_LONG = "cli-fancy",
         VERBOSE = "v",
         EXIT_CODES = "e", EXIT_CODES_LONG = "exit-codes",
-        RANDOM_SEED = "r", RANDOM_SEED_LONG = "random-seed";
+        RANDOM_SEED = "r", RANDOM_SEED_LONG = "random-seed",
+        SIMPLIFY_TOLERANCE = "t", SIMPLIFY_TOLERANCE_LONG = "simplify-tolerance",
+        COMPACT_SIDES = "m", COMPACT_SIDES_LONG = "compact-sides",
+        HASH_PIECE_LIST = "p", HASH_PIECE_LIST_LONG = "hash-piece-list",
+        MAPPED_PIECE_LIST = "o", MAPPED_PIECE_LIST_LONG = "mapped-piece-list";
 
     public static final Options options = new Options() {
         {
@@ -26,6 +30,14 @@ public class ConsoleConstants {
             this.addOption(EXIT_CODES, EXIT_CODES_LONG, false, "print meanings of exit codes");
             this.addOption(RANDOM_SEED, RANDOM_SEED_LONG, true,
                            "specify the random seed to be used");
+            this.addOption(SIMPLIFY_TOLERANCE, SIMPLIFY_TOLERANCE_LONG, true,
+                           "simplify sides before solving, dropping points up to this far off");
+            this.addOption(COMPACT_SIDES, COMPACT_SIDES_LONG, false,
+                           "store sides in fixed point before solving, to save memory");
+            this.addOption(HASH_PIECE_LIST, HASH_PIECE_LIST_LONG, false,
+                           "keep unplaced pieces in hash tables instead of sorted lists");
+            this.addOption(MAPPED_PIECE_LIST, MAPPED_PIECE_LIST_LONG, true,
+                           "keep the index of unplaced pieces in this file, reused if it has them");
         }
     };
 
@@ -19,6 +19,32 @@ public class Constants {
 
     public static double COMP_DELTA = 0.00001d;
 
+    /**
+     * Most that a point dropped when simplifying a side at the start of solving can be off the
+     * simplified side, in the same units as {@link #SIDE_LENGTH}. 0 turns simplifying off.
+     */
+    public static double SIMPLIFY_TOLERANCE = 0d;
+
+    /**
+     * Whether sides are converted to {@link puzzlesolver.side.CompactSide}s at the start of
+     * solving, which store coordinates in half the memory.
+     */
+    public static boolean COMPACT_SIDES = false;
+
+    /**
+     * Whether solvers keep their unplaced pieces in a {@link puzzlesolver.piecelist.HashPieceList},
+     * which adds and removes pieces in constant time but doesn't keep them sorted.
+     */
+    public static boolean HASH_PIECE_LIST = false;
+
+    /**
+     * File that solvers keep the index of their unplaced pieces in, with a {@link
+     * puzzlesolver.piecelist.MappedPieceList}, instead of on the heap. {@code null} keeps the index
+     * on the heap. A file that already holds the same pieces is used as it is, so solving the same
+     * puzzle again skips building the index. Solvers that split pieces up by type ignore this.
+     */
+    public static String MAPPED_PIECE_LIST = null;
+
     public static final Logger LOGGER = new Logger(System.out);
 
     public static final Random RANDOM = new Random();
@@ -9,6 +9,54 @@ public enum PieceType {
     CORNER(null, null, 2), EDGE(null, null, 1), ALL_IN(4, 0, 0), ALL_OUT(0, 4, 0),
     THREE_IN(3, 1, 0), THREE_OUT(1, 3, 0), OPPOSITES(2, 2, 0), ADJACENTS(2, 2, 0);
 
+    /**
+     * Bits used for each direction in a side type signature (see {@link #signature}).
+     */
+    private static final int SIGNATURE_BITS = 2;
+
+    /**
+     * Amount of possible side type signatures.
+     */
+    public static final int SIGNATURE_COUNT = 1 << (SIGNATURE_BITS * Constants.NUM_SIDES);
+
+    /**
+     * Mask of the types that a piece can be, for each side type signature. Built once, by running
+     * {@link #canBeType(SideType[])} on every signature.
+     */
+    private static final int[] TYPE_MASKS = new int[SIGNATURE_COUNT];
+
+    /**
+     * Types in each type mask, in the order of {@link PieceType}, shared so that looking them up
+     * never allocates.
+     */
+    private static final PieceType[][] TYPES = new PieceType[1 << values().length][];
+
+    static {
+        final SideType[] sideTypes = new SideType[Constants.NUM_SIDES];
+        for (int signature = 0; signature < SIGNATURE_COUNT; signature++) {
+            for (int dir = 0; dir < Constants.NUM_SIDES; dir++) {
+                final int code = (signature >>> (SIGNATURE_BITS * dir)) & 3;
+                sideTypes[dir] = code == 0 ? null : SideType.values()[code - 1];
+            }
+            for (PieceType pieceType : values()) {
+                if (pieceType.canBeType(sideTypes)) {
+                    TYPE_MASKS[signature] |= pieceType.mask();
+                }
+            }
+        }
+
+        for (int mask = 0; mask < TYPES.length; mask++) {
+            final PieceType[] types = new PieceType[Integer.bitCount(mask)];
+            int i = 0;
+            for (PieceType pieceType : values()) {
+                if ((mask & pieceType.mask()) != 0) {
+                    types[i++] = pieceType;
+                }
+            }
+            TYPES[mask] = types;
+        }
+    }
+
     private final Integer[] sideTypes;
 
     /**
@@ -35,6 +83,57 @@ public enum PieceType {
         }
     }
 
+    /**
+     * Gets the bit for this type in a type mask (see {@link #typeMask}).
+     *
+     * @return {@code 1 << ordinal()}
+     */
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Gets the side type signature of the given piece. The signature has {@value #SIGNATURE_BITS}
+     * bits per direction, in the order of {@link Direction}, starting at the low bits. Each is 0 if
+     * the piece's side is {@code null} in that direction, or 1 plus the ordinal of its {@link
+     * SideType} otherwise.
+     *
+     * @param p the piece to get the signature of (non-null)
+     * @return the signature, from 0 up to {@link #SIGNATURE_COUNT}
+     */
+    public static int signature(Piece p) {
+        int signature = 0;
+        for (Direction dir : Direction.values()) {
+            final Side side = p.getSide(dir);
+            if (side != null) {
+                signature |= (side.getSideType().ordinal() + 1) << (SIGNATURE_BITS * dir.ordinal());
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Gets the types that a piece with the given side type signature can be, as a mask with the
+     * {@link #mask()} of each of them set.
+     *
+     * @param signature the side type signature of a piece (see {@link #signature})
+     * @return the mask of the types the piece can be
+     */
+    public static int typeMask(int signature) {
+        return TYPE_MASKS[signature];
+    }
+
+    /**
+     * Gets the types in the given type mask, in the order of {@link PieceType}. The array is shared
+     * between all callers, so it must not be modified.
+     *
+     * @param mask a type mask, as returned by {@link #typeMask}
+     * @return the types whose bits are set in the mask
+     */
+    public static PieceType[] typesOf(int mask) {
+        return TYPES[mask];
+    }
+
     /**
      * Can the given piece be of this type?
      *
@@ -42,15 +141,23 @@ public enum PieceType {
      * @return true if the piece can be of this type, false if it cannot
      */
     public boolean canBeType(Piece p) {
-        SideType[] sides = new SideType[Constants.NUM_SIDES];
+        return (p.getPieceTypeMask() & mask()) != 0;
+    }
+
+    /**
+     * Can a piece with the given side types be of this type? This is what the lookup table behind
+     * {@link #typeMask} is built from.
+     *
+     * @param sides the type of the side in each direction, in the order of {@link Direction}, or
+     *              {@code null} for unknown sides
+     * @return true if the piece can be of this type, false if it cannot
+     */
+    public boolean canBeType(SideType[] sides) {
         int[] sideTypeAmounts = new int[SideType.values().length];
         int remainingSides = Constants.NUM_SIDES;
-        for (Direction dir : Direction.values()) {
-            final Side side = p.getSide(dir);
-            if (side != null) {
-                SideType st = side.getSideType();
-                sides[dir.ordinal()] = st;
-                ++sideTypeAmounts[side.getSideType().ordinal()];
+        for (SideType st : sides) {
+            if (st != null) {
+                ++sideTypeAmounts[st.ordinal()];
                 --remainingSides;
             }
         }
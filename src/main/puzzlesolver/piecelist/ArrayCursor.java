@@ -0,0 +1,56 @@
+package puzzlesolver.piecelist;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import puzzlesolver.Piece;
+
+/**
+ * A cursor over an array of pieces, for lists that gather their candidates up front. The array is
+ * kept to be filled again, so the cursor doesn't allocate once it is big enough.
+ */
+class ArrayCursor implements PieceCursor {
+
+    private Piece[] pieces = new Piece[10];
+    private int count;
+    private int index;
+
+    /**
+     * Empties this cursor, to be filled with new candidates.
+     */
+    void clear() {
+        Arrays.fill(pieces, 0, count, null);
+        count = 0;
+        index = 0;
+    }
+
+    /**
+     * Adds a candidate to the end of this cursor.
+     *
+     * @param p the candidate
+     */
+    void add(Piece p) {
+        if (count == pieces.length) {
+            pieces = Arrays.copyOf(pieces, pieces.length * 2);
+        }
+        pieces[count++] = p;
+    }
+
+    @Override
+    public int count() {
+        return count;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return index < count;
+    }
+
+    @Override
+    public Piece next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return pieces[index++];
+    }
+}
@@ -0,0 +1,735 @@
+package puzzlesolver.piecelist;
+
+import com.sun.istack.internal.NotNull;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import puzzlesolver.Piece;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.enums.PieceType;
+
+/**
+ * A thread-safe {@link PieceList}, for solvers that place pieces from more than one thread. The
+ * index is split between a number of stripes by side fingerprint: each stripe has a {@link
+ * PieceTable} for each direction, holding the pieces whose side in that direction has a
+ * fingerprint that belongs to the stripe, and its own read-write lock. A lookup only goes to the
+ * stripe of the fingerprint it looks up, which is one stripe unless the side is close enough to a
+ * fingerprint boundary to need more than one, and only takes its read lock, so any number of
+ * threads can look pieces up at once, and threads only wait on a writer that changes the same
+ * stripe.
+ *
+ * Which pieces are in the list is kept separately, in stripes by identity that are called homes,
+ * each with its own lock. A piece is checked and turned only while holding its home's lock, so
+ * lookups never see a piece half-way through being claimed or rotated. Locks are only ever nested
+ * by taking a home's lock while holding a stripe's, so there is no order in which they can
+ * deadlock.
+ *
+ * A piece that one thread finds may be taken by another before the first can place it. {@link
+ * #claim} takes a piece out of the list for exactly one of the threads that race for it, and
+ * {@link #findAndClaim} and {@link #findRotatedAndClaim} find a piece and claim it in one step.
+ * Indices into the list are only stable while no thread is changing it.
+ */
+public class ConcurrentPieceList implements PieceList {
+
+    /**
+     * Lookup that only matches pieces as they are.
+     */
+    private static final int FIND = 0;
+
+    /**
+     * Lookup that matches pieces in any orientation, and turns the match to fit.
+     */
+    private static final int FIND_ROTATED = 1;
+
+    /**
+     * Like {@link #FIND_ROTATED}, but also takes the match out of its home.
+     */
+    private static final int CLAIM_ROTATED = 2;
+
+  /*
+   * INVARIANTS
+   *
+   * tables, tableLocks
+   * - Non-null, contents are non-null, same length as homes, which is a power of two
+   * - tables[s] has NUM_SIDES tables, one for each direction, and is only used while holding
+   *   tableLocks[s]
+   * - Each piece in the list is filed in tables[stripeOf(k)][d], under the fingerprint k of the
+   *   side it had in direction d when it was added, for each direction d
+   * - The tables may also hold pieces that are on their way in or out of the list, which lookups
+   *   skip, since they aren't in any home
+   *
+   * homes, homeLocks
+   * - Non-null, contents are non-null, same length
+   * - The pieces in the list are exactly those in homes[homeOf(p)] for some p, and each home, and
+   *   every piece in it, is only used while holding its lock
+   * - A home's lock is never held while waiting for a stripe's lock
+   *
+   * size
+   * - The sum of the sizes of the homes, whenever no home is locked for writing
+   */
+
+    private final PieceTable[][] tables;
+    private final ReadWriteLock[] tableLocks;
+    private final Home[] homes;
+    private final ReadWriteLock[] homeLocks;
+    private final AtomicInteger size = new AtomicInteger();
+    private final ThreadLocal<ArrayCursor> cursors = ThreadLocal.withInitial(ArrayCursor::new);
+
+    /**
+     * Constructs a new {@code ConcurrentPieceList} with an initial capacity of ten, and four
+     * stripes for each available processor.
+     */
+    public ConcurrentPieceList() {
+        this(10);
+    }
+
+    /**
+     * Constructs a new {@code ConcurrentPieceList} with the given initial capacity, and four
+     * stripes for each available processor.
+     *
+     * @param initialCapacity the initial capacity of the list (non-negative)
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public ConcurrentPieceList(int initialCapacity) {
+        this(initialCapacity, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Constructs a new {@code ConcurrentPieceList} with the given initial capacity and at least the
+     * given number of stripes.
+     *
+     * @param initialCapacity the initial capacity of the list (non-negative)
+     * @param stripeCount     the least number of stripes, which is rounded up to a power of two
+     * @throws IllegalArgumentException if capacity is negative, or {@code stripeCount < 1}
+     */
+    public ConcurrentPieceList(int initialCapacity, int stripeCount) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + initialCapacity);
+        }
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("There must be at least one stripe: " + stripeCount);
+        }
+        final int stripesLength = Math.max(1, Integer.highestOneBit(stripeCount - 1) << 1);
+        tables = new PieceTable[stripesLength][Constants.NUM_SIDES];
+        tableLocks = new ReadWriteLock[stripesLength];
+        homes = new Home[stripesLength];
+        homeLocks = new ReadWriteLock[stripesLength];
+        for (int i = 0; i < stripesLength; i++) {
+            for (int d = 0; d < Constants.NUM_SIDES; d++) {
+                tables[i][d] = new PieceTable(initialCapacity / stripesLength);
+            }
+            tableLocks[i] = new ReentrantReadWriteLock();
+            homes[i] = new Home(initialCapacity / stripesLength);
+            homeLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Gets the index of the stripe that holds the pieces filed under the given fingerprint.
+     *
+     * @param key the fingerprint
+     * @return the index of its stripe
+     */
+    private int stripeOf(long key) {
+        // Spread the bits, since the fingerprint table hashes its keys with the low bits
+        final int hash = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (tables.length - 1);
+    }
+
+    /**
+     * Gets the index of the home that holds the given piece.
+     *
+     * @param p the piece (non-null)
+     * @return the index of its home
+     */
+    private int homeOf(Piece p) {
+        // Spread the bits, since identity hashes are often close together
+        final int hash = System.identityHashCode(p) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (homes.length - 1);
+    }
+
+    private static long[] keysOf(Piece p) {
+        final long[] keys = new long[Constants.NUM_SIDES];
+        for (Direction dir : Direction.values()) {
+            keys[dir.ordinal()] = p.getSide(dir).fingerprint();
+        }
+        return keys;
+    }
+
+    @Override
+    public void add(Piece p) {
+        Objects.requireNonNull(p);
+        final long[] keys = keysOf(p);
+        file(p, keys);
+        if (!join(p, keys)) {
+            unfile(p, keys); // Already in the list, and filed under these keys once already
+        }
+    }
+
+    /**
+     * Adds all pieces in the given array. The pieces are split up by stripe and by home first, so
+     * each is only locked once.
+     *
+     * @param pieces the pieces to be added (non-null, does not contain null)
+     */
+    @Override
+    public void addAll(@NotNull Piece[] pieces) {
+        Objects.requireNonNull(pieces);
+        final long[][] keys = new long[pieces.length][];
+        for (int i = 0; i < pieces.length; i++) {
+            keys[i] = keysOf(Objects.requireNonNull(pieces[i]));
+        }
+
+        // Each entry is the index of a piece and a direction, as NUM_SIDES * index + direction
+        final int[] stripeCounts = new int[tables.length];
+        for (long[] pieceKeys : keys) {
+            for (long key : pieceKeys) {
+                stripeCounts[stripeOf(key)]++;
+            }
+        }
+        final int[][] entriesByStripe = new int[tables.length][];
+        for (int s = 0; s < tables.length; s++) {
+            entriesByStripe[s] = new int[stripeCounts[s]];
+            stripeCounts[s] = 0; // Reuse as the next index to fill
+        }
+        for (int i = 0; i < pieces.length; i++) {
+            for (int d = 0; d < Constants.NUM_SIDES; d++) {
+                final int s = stripeOf(keys[i][d]);
+                entriesByStripe[s][stripeCounts[s]++] = Constants.NUM_SIDES * i + d;
+            }
+        }
+        for (int s = 0; s < tables.length; s++) {
+            tableLocks[s].writeLock().lock();
+            try {
+                for (int entry : entriesByStripe[s]) {
+                    final int i = entry / Constants.NUM_SIDES;
+                    final int d = entry % Constants.NUM_SIDES;
+                    tables[s][d].put(keys[i][d], pieces[i]);
+                }
+            } finally {
+                tableLocks[s].writeLock().unlock();
+            }
+        }
+
+        final int[] homeCounts = new int[homes.length];
+        for (Piece p : pieces) {
+            homeCounts[homeOf(p)]++;
+        }
+        final int[][] indicesByHome = new int[homes.length][];
+        for (int h = 0; h < homes.length; h++) {
+            indicesByHome[h] = new int[homeCounts[h]];
+            homeCounts[h] = 0;
+        }
+        for (int i = 0; i < pieces.length; i++) {
+            final int h = homeOf(pieces[i]);
+            indicesByHome[h][homeCounts[h]++] = i;
+        }
+        final boolean[] joined = new boolean[pieces.length];
+        for (int h = 0; h < homes.length; h++) {
+            homeLocks[h].writeLock().lock();
+            try {
+                for (int i : indicesByHome[h]) {
+                    joined[i] = homes[h].add(pieces[i], keys[i]);
+                    if (joined[i]) {
+                        size.incrementAndGet();
+                    }
+                }
+            } finally {
+                homeLocks[h].writeLock().unlock();
+            }
+        }
+        for (int i = 0; i < pieces.length; i++) {
+            if (!joined[i]) {
+                unfile(pieces[i], keys[i]); // Already in the list, so filed twice
+            }
+        }
+    }
+
+    /**
+     * Files the given piece in the stripes of its keys, locking each stripe in turn.
+     *
+     * @param p    the piece to be filed
+     * @param keys the fingerprints to file it under, one for each direction
+     */
+    private void file(Piece p, long[] keys) {
+        for (int d = 0; d < Constants.NUM_SIDES; d++) {
+            final int stripe = stripeOf(keys[d]);
+            tableLocks[stripe].writeLock().lock();
+            try {
+                tables[stripe][d].put(keys[d], p);
+            } finally {
+                tableLocks[stripe].writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Takes one entry for the given piece out of the stripes of each of its keys, locking each
+     * stripe in turn.
+     *
+     * @param p    the piece to be taken out
+     * @param keys the fingerprints it was filed under, one for each direction
+     */
+    private void unfile(Piece p, long[] keys) {
+        for (int d = 0; d < Constants.NUM_SIDES; d++) {
+            final int stripe = stripeOf(keys[d]);
+            tableLocks[stripe].writeLock().lock();
+            try {
+                tables[stripe][d].remove(keys[d], p);
+            } finally {
+                tableLocks[stripe].writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Adds the given piece to its home, so that lookups can return it.
+     *
+     * @param p    the piece to be added
+     * @param keys the fingerprints it was filed under
+     * @return true if the piece was added, false if it was already in the list
+     */
+    private boolean join(Piece p, long[] keys) {
+        final int home = homeOf(p);
+        homeLocks[home].writeLock().lock();
+        try {
+            if (homes[home].add(p, keys)) {
+                size.incrementAndGet();
+                return true;
+            }
+            return false;
+        } finally {
+            homeLocks[home].writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Piece p) {
+        if (p == null) {
+            return false;
+        }
+        final long[] keys = new long[Constants.NUM_SIDES];
+        final int home = homeOf(p);
+        homeLocks[home].writeLock().lock();
+        try {
+            if (!homes[home].remove(p, keys)) {
+                return false;
+            }
+            size.decrementAndGet();
+        } finally {
+            homeLocks[home].writeLock().unlock();
+        }
+        unfile(p, keys); // Lookups already skip it, so this can wait until the lock is let go
+        return true;
+    }
+
+    /**
+     * Claims the given piece to be placed, by taking it out of this list. However many threads try
+     * to claim the same piece, exactly one of them succeeds, and only that one should place it.
+     *
+     * @param p the piece to be claimed
+     * @return true if this call claimed the piece, false if it was already claimed or was never in
+     * this list
+     */
+    public boolean claim(Piece p) {
+        return remove(p);
+    }
+
+    /**
+     * Finds a piece that matches the given piece, and claims it like with {@link #claim}. If the
+     * piece that matches is claimed by another thread first, the search goes on for another.
+     *
+     * @param p the piece to be found (non-null)
+     * @return the matching piece, which the calling thread now holds the only claim to, or {@code
+     * null} if none is left
+     * @throws NullPointerException if p is {@code null}
+     */
+    public Piece findAndClaim(@NotNull Piece p) {
+        Piece foundPiece;
+        while ((foundPiece = find(p)) != null) {
+            if (claim(foundPiece)) {
+                return foundPiece;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds a piece that matches the given piece in any orientation, claims it like with {@link
+     * #claim}, and rotates it to match, all while holding the lock of its home. No other thread can
+     * turn the piece between it being matched and claimed, or see it being turned.
+     *
+     * @param p the piece to be found (non-null)
+     * @return the matching piece, rotated to match, which the calling thread now holds the only
+     * claim to, or {@code null} if none is left
+     * @throws NullPointerException if p is {@code null}
+     */
+    public Piece findRotatedAndClaim(@NotNull Piece p) {
+        Objects.requireNonNull(p);
+        final long[] keys = new long[Constants.NUM_SIDES];
+        final Piece foundPiece = lookUp(p, CLAIM_ROTATED, keys);
+        if (foundPiece != null) {
+            unfile(foundPiece, keys);
+        }
+        return foundPiece;
+    }
+
+    @Override
+    public void clear() {
+        // Lock everything, stripes before homes like lookups do, so the list is empty all at once
+        for (ReadWriteLock lock : tableLocks) {
+            lock.writeLock().lock();
+        }
+        for (ReadWriteLock lock : homeLocks) {
+            lock.writeLock().lock();
+        }
+        try {
+            for (PieceTable[] stripe : tables) {
+                for (PieceTable table : stripe) {
+                    table.clear();
+                }
+            }
+            for (Home home : homes) {
+                home.clear();
+            }
+            size.set(0);
+        } finally {
+            for (ReadWriteLock lock : homeLocks) {
+                lock.writeLock().unlock();
+            }
+            for (ReadWriteLock lock : tableLocks) {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the piece at the given index, counting through each home in turn. Pieces aren't sorted,
+     * so the direction is only checked. Indices move whenever any thread changes the list.
+     *
+     * @param dir the direction of the internal list to be indexed (non-null)
+     * @param i   the index of the item to be gotten
+     * @return the piece at the given index
+     * @throws IndexOutOfBoundsException if {@code i} is out of the bounds of this list
+     */
+    @Override
+    public Piece get(@NotNull Direction dir, int i) {
+        Objects.requireNonNull(dir);
+        if (i < 0) {
+            throw new IndexOutOfBoundsException("i is out of bounds");
+        }
+        for (int home = 0; home < homes.length; home++) {
+            homeLocks[home].readLock().lock();
+            try {
+                if (i < homes[home].size) {
+                    return homes[home].pieces[i];
+                }
+                i -= homes[home].size;
+            } finally {
+                homeLocks[home].readLock().unlock();
+            }
+        }
+        throw new IndexOutOfBoundsException("i is out of bounds");
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Finds a piece that matches the given piece, holding only read locks. The piece is still in
+     * the list, so it may be claimed by another thread before this one can claim it.
+     *
+     * @param p the piece to be found (non-null)
+     * @return the matching piece, or {@code null} if it isn't found
+     * @throws NullPointerException if p is {@code null}
+     */
+    @Override
+    public Piece find(@NotNull Piece p) {
+        Objects.requireNonNull(p);
+        return lookUp(p, FIND, null);
+    }
+
+    /**
+     * Finds a piece that matches the given piece in any orientation, and rotates it to match. The
+     * piece is rotated while it is still in the list, so threads that might race for it should use
+     * {@link #findRotatedAndClaim} instead.
+     *
+     * @param p the piece to be found (non-null)
+     * @return the matching piece, rotated to match, or {@code null} if it isn't found
+     * @throws NullPointerException if p is {@code null}
+     */
+    @Override
+    public Piece findRotated(@NotNull Piece p) {
+        Objects.requireNonNull(p);
+        return lookUp(p, FIND_ROTATED, null);
+    }
+
+    /**
+     * Looks the given piece up by one of its sides, in the stripe of each fingerprint that side
+     * could have. Lookups that match in any orientation look in the tables for every direction of
+     * the stripe, since between them they hold every side of every piece. Sides too ambiguous to
+     * probe for are matched against every piece in every home instead.
+     *
+     * @param p           the piece to be found (non-null)
+     * @param mode        {@link #FIND}, {@link #FIND_ROTATED} or {@link #CLAIM_ROTATED}
+     * @param claimedKeys where to put the keys that a claimed piece was filed under
+     * @return the matching piece, or {@code null} if it isn't found
+     */
+    private Piece lookUp(Piece p, int mode, long[] claimedKeys) {
+        final Direction lookupDir = p.lookupDirection();
+        final long[] probeFingerprints = p.getSide(lookupDir).probeFingerprints();
+        if (probeFingerprints == null) {
+            return lookUpLinear(p, mode, claimedKeys);
+        }
+
+        for (long fingerprint : probeFingerprints) {
+            final int stripe = stripeOf(fingerprint);
+            tableLocks[stripe].readLock().lock();
+            try {
+                for (int d = 0; d < Constants.NUM_SIDES; d++) {
+                    if (mode == FIND && d != lookupDir.ordinal()) {
+                        continue;
+                    }
+                    final PieceTable table = tables[stripe][d];
+                    for (int slot = table.first(fingerprint); slot >= 0;
+                         slot = table.next(fingerprint, slot)) {
+                        final Piece foundPiece = check(p, table.get(slot), mode, claimedKeys);
+                        if (foundPiece != null) {
+                            return foundPiece;
+                        }
+                    }
+                }
+            } finally {
+                tableLocks[stripe].readLock().unlock();
+            }
+        }
+        return null;
+    }
+
+    private Piece lookUpLinear(Piece p, int mode, long[] claimedKeys) {
+        for (int home = 0; home < homes.length; home++) {
+            final Lock lock = lockFor(home, mode);
+            lock.lock();
+            try {
+                for (int i = 0; i < homes[home].size; i++) {
+                    final Piece foundPiece =
+                        checkLocked(home, p, homes[home].pieces[i], mode, claimedKeys);
+                    if (foundPiece != null) {
+                        return foundPiece;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return null;
+    }
+
+    private Lock lockFor(int home, int mode) {
+        return mode == FIND ? homeLocks[home].readLock() : homeLocks[home].writeLock();
+    }
+
+    /**
+     * Checks whether a piece from the tables is in the list and matches the probe, under the lock
+     * of its home, and turns and claims it if the lookup calls for that.
+     *
+     * @param probe       the piece to match
+     * @param p           the piece from the tables
+     * @param mode        {@link #FIND}, {@link #FIND_ROTATED} or {@link #CLAIM_ROTATED}
+     * @param claimedKeys where to put the keys that a claimed piece was filed under
+     * @return {@code p} if it matches, or {@code null} if it doesn't or isn't in the list
+     */
+    private Piece check(Piece probe, Piece p, int mode, long[] claimedKeys) {
+        final int home = homeOf(p);
+        final Lock lock = lockFor(home, mode);
+        lock.lock();
+        try {
+            return checkLocked(home, probe, p, mode, claimedKeys);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Piece checkLocked(int home, Piece probe, Piece p, int mode, long[] claimedKeys) {
+        if (!homes[home].contains(p) || !probe.canBeType(p.getPieceType())) {
+            return null;
+        }
+        if (mode == FIND) {
+            return probe.maybeEquals(p) ? p : null;
+        }
+        final int turns = HashPieceList.turnsToMatch(probe, p);
+        if (turns < 0) {
+            return null;
+        }
+        if (mode == CLAIM_ROTATED) {
+            homes[home].remove(p, claimedKeys);
+            size.decrementAndGet();
+        }
+        return p.rotate(Direction.NORTH, Direction.values()[turns]);
+    }
+
+    /**
+     * Gets a cursor over every piece that could match the given probe, from among the pieces filed
+     * under a fingerprint that the probe's side in the given direction could have. The candidates
+     * are copied into a cursor that belongs to the calling thread while holding only read locks, so
+     * each thread can use its own cursor at the same time, and it doesn't allocate once its buffer
+     * is big enough. The cursor is a snapshot, so its pieces may be claimed by other threads while
+     * it is being used.
+     *
+     * @param probe the piece to match (non-null), which may have {@code null} sides
+     * @param dir   the direction to look the probe up by (non-null)
+     * @return a cursor over the candidates, with the count of them known up front
+     * @throws IllegalArgumentException if the probe's side in direction {@code dir} is {@code null}
+     */
+    @Override
+    public PieceCursor candidates(@NotNull Piece probe, @NotNull Direction dir) {
+        Objects.requireNonNull(probe);
+        Objects.requireNonNull(dir);
+        if (probe.sideNull(dir)) {
+            throw new IllegalArgumentException("The probe has no side to look up in " + dir);
+        }
+
+        final ArrayCursor cursor = cursors.get();
+        cursor.clear();
+        final long[] probeFingerprints = probe.getSide(dir).probeFingerprints();
+        if (probeFingerprints == null) {
+            // Too ambiguous to probe for, so check every piece
+            for (int home = 0; home < homes.length; home++) {
+                homeLocks[home].readLock().lock();
+                try {
+                    for (int i = 0; i < homes[home].size; i++) {
+                        final Piece p = checkLocked(home, probe, homes[home].pieces[i], FIND, null);
+                        if (p != null) {
+                            cursor.add(p);
+                        }
+                    }
+                } finally {
+                    homeLocks[home].readLock().unlock();
+                }
+            }
+            return cursor;
+        }
+
+        for (long fingerprint : probeFingerprints) {
+            final int stripe = stripeOf(fingerprint);
+            tableLocks[stripe].readLock().lock();
+            try {
+                final PieceTable table = tables[stripe][dir.ordinal()];
+                for (int slot = table.first(fingerprint); slot >= 0;
+                     slot = table.next(fingerprint, slot)) {
+                    final Piece p = check(probe, table.get(slot), FIND, null);
+                    if (p != null) {
+                        cursor.add(p);
+                    }
+                }
+            } finally {
+                tableLocks[stripe].readLock().unlock();
+            }
+        }
+        return cursor;
+    }
+
+    @Override
+    public PieceList sublistByType(PieceType pieceType) {
+        throw new IllegalStateException(
+            "ConcurrentPieceList does not support sub-listing by type!");
+    }
+
+    /**
+     * The pieces in the list whose home is one stripe, packed so that they can be indexed, along
+     * with the keys each one was filed under.
+     */
+    private static final class Home {
+
+      /*
+       * INVARIANTS
+       *
+       * pieces, keys
+       * - Non-null, keys.length is NUM_SIDES * pieces.length
+       * - pieces[0, size) are non-null and distinct, pieces[size, length) are null
+       * - keys[NUM_SIDES * i + d] is the key that pieces[i] is filed under for direction d
+       *
+       * indices
+       * - Non-null
+       * - Maps each of pieces[0, size) to its index in pieces, and has no other keys
+       */
+
+        private Piece[] pieces;
+        private long[] keys;
+        private int size;
+        private final Map<Piece, Integer> indices;
+
+        private Home(int initialCapacity) {
+            pieces = new Piece[Math.max(initialCapacity, 1)];
+            keys = new long[pieces.length * Constants.NUM_SIDES];
+            indices = new IdentityHashMap<>(initialCapacity);
+        }
+
+        private boolean contains(Piece p) {
+            return indices.containsKey(p);
+        }
+
+        /**
+         * Adds the given piece, unless it is already here.
+         *
+         * @return true if the piece was added
+         */
+        private boolean add(Piece p, long[] pieceKeys) {
+            if (indices.containsKey(p)) {
+                return false;
+            }
+            if (size == pieces.length) {
+                pieces = Arrays.copyOf(pieces, size * 2);
+                keys = Arrays.copyOf(keys, pieces.length * Constants.NUM_SIDES);
+            }
+            pieces[size] = p;
+            System.arraycopy(pieceKeys, 0, keys, size * Constants.NUM_SIDES, Constants.NUM_SIDES);
+            indices.put(p, size++);
+            return true;
+        }
+
+        /**
+         * Removes the given piece, filling its place with the last piece.
+         *
+         * @param pieceKeys where to put the keys the piece was filed under
+         * @return true if the piece was removed, false if it wasn't here
+         */
+        private boolean remove(Piece p, long[] pieceKeys) {
+            final Integer index = indices.remove(p);
+            if (index == null) {
+                return false;
+            }
+            System.arraycopy(keys, index * Constants.NUM_SIDES, pieceKeys, 0, Constants.NUM_SIDES);
+            final int last = --size;
+            if (index != last) {
+                pieces[index] = pieces[last];
+                System.arraycopy(keys, last * Constants.NUM_SIDES, keys,
+                                 index * Constants.NUM_SIDES, Constants.NUM_SIDES);
+                indices.put(pieces[index], index);
+            }
+            pieces[last] = null;
+            return true;
+        }
+
+        private void clear() {
+            Arrays.fill(pieces, 0, size, null);
+            indices.clear();
+            size = 0;
+        }
+    }
+}
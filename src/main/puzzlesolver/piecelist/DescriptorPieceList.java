@@ -0,0 +1,271 @@
+package puzzlesolver.piecelist;
+
+import com.sun.istack.internal.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import puzzlesolver.Piece;
+import puzzlesolver.PieceStore;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.side.Side;
+import puzzlesolver.side.SideDescriptor;
+
+/**
+ * A {@link SimplePieceList} that can also match pieces whose sides are close to, but not exactly
+ * equal to, the sides being searched for, such as scanned or noisy ones. Each direction has a
+ * {@link KdTree} of the pieces, keyed by the {@link SideDescriptor} of their side in that
+ * direction. {@link #find} tries an exact match first, then falls back to the nearest pieces by
+ * descriptor.
+ */
+public class DescriptorPieceList extends SimplePieceList {
+
+    /**
+     * Default maximum average descriptor distance for a piece to count as a match.
+     */
+    public static final double DEFAULT_TOLERANCE = Constants.SIDE_LENGTH * 0.005;
+
+    /**
+     * Amount of nearest pieces that {@link #find} considers when there is no exact match.
+     */
+    public static final int FIND_CANDIDATES = 8;
+
+  /*
+   * INVARIANTS
+   *
+   * trees
+   * - Non-null, contents are non-null
+   * - Each tree holds exactly the pieces in this list, each keyed by the descriptor of one of its
+   *   sides (the side in that tree's direction, unless the piece was rotated since)
+   */
+
+    private final KdTree<Piece>[] trees;
+    private final double tolerance;
+
+    /**
+     * Constructs a new {@code DescriptorPieceList} with an initial capacity of ten.
+     */
+    public DescriptorPieceList() {
+        this(10);
+    }
+
+    /**
+     * Constructs a new {@code DescriptorPieceList} with the given initial capacity, and a tolerance
+     * of {@link #DEFAULT_TOLERANCE}.
+     *
+     * @param initialCapacity the initial capacity of the list (non-negative)
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public DescriptorPieceList(int initialCapacity) {
+        this(initialCapacity, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Constructs a new {@code DescriptorPieceList} with the given initial capacity and tolerance.
+     *
+     * @param initialCapacity the initial capacity of the list (non-negative)
+     * @param tolerance       the maximum average distance between the descriptors of the sides
+     *                        being searched for and those of a piece, for that piece to be found
+     *                        (non-negative)
+     * @throws IllegalArgumentException if capacity or tolerance is negative
+     */
+    public DescriptorPieceList(int initialCapacity, double tolerance) {
+        this(new PieceStore(Math.max(initialCapacity, 0)), initialCapacity, tolerance);
+    }
+
+    /**
+     * Constructs a new {@code DescriptorPieceList} with the given initial capacity, for pieces in
+     * the given store, and a tolerance of {@link #DEFAULT_TOLERANCE}.
+     *
+     * @param store           the store that the pieces are kept in (non-null)
+     * @param initialCapacity the initial capacity of the list (non-negative)
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public DescriptorPieceList(@NotNull PieceStore store, int initialCapacity) {
+        this(store, initialCapacity, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Constructs a new {@code DescriptorPieceList} with the given initial capacity and tolerance,
+     * for pieces in the given store.
+     *
+     * @param store           the store that the pieces are kept in (non-null)
+     * @param initialCapacity the initial capacity of the list (non-negative)
+     * @param tolerance       the maximum average distance between the descriptors of the sides
+     *                        being searched for and those of a piece, for that piece to be found
+     *                        (non-negative)
+     * @throws IllegalArgumentException if capacity or tolerance is negative
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public DescriptorPieceList(@NotNull PieceStore store, int initialCapacity, double tolerance) {
+        super(store, initialCapacity);
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("tolerance cannot be negative");
+        }
+        this.tolerance = tolerance;
+        trees = new KdTree[Constants.NUM_SIDES];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = new KdTree<>(SideDescriptor.DEFAULT_SAMPLES);
+        }
+    }
+
+    @Override
+    public void add(Piece p) {
+        super.add(p);
+        addToTrees(p);
+    }
+
+    @Override
+    public void addAll(@NotNull Piece[] pieces) {
+        super.addAll(pieces);
+        for (Piece p : pieces) {
+            addToTrees(p);
+        }
+    }
+
+    private void addToTrees(Piece p) {
+        for (Direction dir : Direction.values()) {
+            trees[dir.ordinal()].add(p.getSide(dir).descriptor().toArray(), p);
+        }
+    }
+
+    @Override
+    public boolean remove(Piece p) {
+        final boolean removed = super.remove(p);
+        if (removed) {
+            for (KdTree<Piece> tree : trees) {
+                tree.remove(p);
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        for (KdTree<Piece> tree : trees) {
+            tree.clear();
+        }
+    }
+
+    // The handle methods go through the piece ones, so that the trees see every change
+
+    @Override
+    public void addHandle(int handle) {
+        add(getStore().view(handle));
+    }
+
+    @Override
+    public void addHandles(int from, int to) {
+        final Piece[] pieces = new Piece[Math.max(to - from, 0)];
+        for (int i = 0; i < pieces.length; i++) {
+            pieces[i] = getStore().view(from + i);
+        }
+        addAll(pieces);
+    }
+
+    @Override
+    public boolean removeHandle(int handle) {
+        return remove(getStore().view(handle));
+    }
+
+    @Override
+    public int findHandle(@NotNull Piece p) {
+        return getStore().handleOf(find(p));
+    }
+
+    /**
+     * Gets the (up to) {@code k} pieces whose sides are nearest in shape to one of the non-null
+     * sides of the given piece. A non-flat side is used if there is one, since every flat side has
+     * the same shape. Only that one side is compared, so the pieces may not match in the other
+     * directions.
+     *
+     * @param p the piece to search around (non-null, with at least one non-null side)
+     * @param k the maximum amount of pieces to return (non-negative)
+     * @return the nearest pieces, nearest first
+     * @throws IllegalArgumentException if {@code k} is negative, or every side of {@code p} is
+     *                                  {@code null}
+     */
+    public List<Piece> nearest(@NotNull Piece p, int k) {
+        Objects.requireNonNull(p);
+        final Direction lookupDir = p.lookupDirection();
+        if (lookupDir == null) {
+            throw new IllegalArgumentException("Piece has no sides to search by");
+        }
+        if (isEmpty()) {
+            return Collections.emptyList();
+        }
+        final double[] query = p.getSide(lookupDir).descriptor().toArray();
+        return trees[lookupDir.ordinal()].nearest(query, k);
+    }
+
+    /**
+     * Finds a piece that exactly matches the given piece. If there is none, finds the piece whose
+     * sides are nearest in shape to those of the given piece, as long as the sides are within this
+     * list's tolerance on average and the piece could be the same type.
+     *
+     * @param p the piece to be found (non-null)
+     * @return the matching piece, or {@code null} if no piece is close enough
+     */
+    @Override
+    public Piece find(@NotNull Piece p) {
+        final Piece exact = super.find(p);
+        if (exact != null) {
+            return exact;
+        }
+
+        final SideDescriptor[] descriptors = describe(p);
+        Piece best = null;
+        double bestDistance = tolerance;
+        for (Piece p2 : nearest(p, FIND_CANDIDATES)) {
+            if (p.canBeType(p2.getPieceType())) {
+                final double distance = averageDistance(p, descriptors, p2);
+                if (distance <= bestDistance) {
+                    best = p2;
+                    bestDistance = distance;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets the descriptors of the non-null sides of the given piece, indexed by direction, with
+     * {@code null} for null sides.
+     */
+    static SideDescriptor[] describe(Piece p) {
+        final SideDescriptor[] descriptors = new SideDescriptor[Constants.NUM_SIDES];
+        for (Direction dir : Direction.values()) {
+            if (!p.sideNull(dir)) {
+                descriptors[dir.ordinal()] = p.getSide(dir).descriptor();
+            }
+        }
+        return descriptors;
+    }
+
+    /**
+     * Gets the average descriptor distance between the non-null sides of {@code p1} and the sides
+     * of {@code p2} in the same directions. Sides that differ in type are infinitely far apart.
+     *
+     * @param p1          the piece being searched for
+     * @param descriptors the descriptors of {@code p1}, from {@link #describe}
+     * @param p2          the candidate piece
+     */
+    static double averageDistance(Piece p1, SideDescriptor[] descriptors, Piece p2) {
+        double sum = 0;
+        int count = 0;
+        for (Direction dir : Direction.values()) {
+            if (!p1.sideNull(dir)) {
+                final Side s2 = p2.getSide(dir);
+                if (p1.getSide(dir).getSideType() != s2.getSideType()) {
+                    return Double.POSITIVE_INFINITY;
+                }
+                sum += descriptors[dir.ordinal()].distance(s2.descriptor());
+                count++;
+            }
+        }
+        return sum / count;
+    }
+}
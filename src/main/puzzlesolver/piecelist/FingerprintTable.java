@@ -0,0 +1,191 @@
+package puzzlesolver.piecelist;
+
+import java.util.Arrays;
+
+import puzzlesolver.PieceStore;
+import puzzlesolver.side.Side;
+
+/**
+ * An open-addressing hash multimap from side fingerprints (see {@link Side#fingerprint}) to
+ * pieces, which are {@code int} handles, such as those of a {@link PieceStore}. Any number of
+ * pieces can share a fingerprint. Lookups are done with slot cursors, so iterating over the pieces
+ * for a fingerprint allocates nothing:
+ *
+ * <pre>
+ * for (int slot = table.first(key); slot >= 0; slot = table.next(key, slot)) {
+ *     int handle = table.get(slot);
+ * }
+ * </pre>
+ *
+ * Removing pieces invalidates any cursor in progress.
+ */
+final class FingerprintTable {
+
+  /*
+   * INVARIANTS
+   *
+   * keys, pieces
+   * - Non-null, same length, length is a power of two
+   * - pieces[i] == NO_PIECE means slot i is empty, and keys[i] is meaningless
+   * - Otherwise pieces[i] is non-negative
+   * - Linear probing: every piece is reachable from the home slot of its key without passing an
+   *   empty slot
+   * - At least half of all slots are empty
+   */
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int NO_PIECE = PieceStore.NO_PIECE;
+
+    private long[] keys;
+    private int[] pieces;
+    private int size;
+
+    /**
+     * Constructs a new {@code FingerprintTable} with room for the given amount of pieces.
+     *
+     * @param expectedSize the amount of pieces expected to be added
+     */
+    FingerprintTable(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        pieces = new int[capacity];
+        Arrays.fill(pieces, NO_PIECE);
+    }
+
+    /**
+     * Adds the given piece under the given key.
+     *
+     * @param key   the fingerprint to file the piece under
+     * @param piece the handle of the piece to be added (non-negative)
+     */
+    void put(long key, int piece) {
+        if ((size + 1) * 2 > pieces.length) {
+            resize(pieces.length * 2);
+        }
+        int slot = home(key);
+        while (pieces[slot] != NO_PIECE) {
+            slot = (slot + 1) & mask();
+        }
+        keys[slot] = key;
+        pieces[slot] = piece;
+        size++;
+    }
+
+    /**
+     * Removes the given piece from under the given key.
+     *
+     * @param key   the fingerprint the piece was filed under
+     * @param piece the handle of the piece to be removed
+     * @return true if the piece was removed, false if it wasn't filed under that key
+     */
+    boolean remove(long key, int piece) {
+        for (int slot = first(key); slot >= 0; slot = next(key, slot)) {
+            if (pieces[slot] == piece) {
+                deleteSlot(slot);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the first slot that holds a piece with the given key.
+     *
+     * @param key the fingerprint to look up
+     * @return the slot index, or -1 if there are no pieces with that key
+     */
+    int first(long key) {
+        return scan(key, home(key));
+    }
+
+    /**
+     * Gets the next slot after the given one that holds a piece with the given key.
+     *
+     * @param key  the fingerprint to look up
+     * @param slot a slot returned by {@link #first} or {@link #next} for the same key
+     * @return the slot index, or -1 if there are no more pieces with that key
+     */
+    int next(long key, int slot) {
+        return scan(key, (slot + 1) & mask());
+    }
+
+    /**
+     * Gets the piece in the given slot.
+     *
+     * @param slot a slot returned by {@link #first} or {@link #next}
+     * @return the handle of the piece in that slot
+     */
+    int get(int slot) {
+        return pieces[slot];
+    }
+
+    /**
+     * Gets the amount of pieces in this table.
+     *
+     * @return the amount of pieces
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes all pieces from this table.
+     */
+    void clear() {
+        Arrays.fill(pieces, NO_PIECE);
+        size = 0;
+    }
+
+    private int scan(long key, int slot) {
+        for (; pieces[slot] != NO_PIECE; slot = (slot + 1) & mask()) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int mask() {
+        return pieces.length - 1;
+    }
+
+    private int home(long key) {
+        return (int) (key ^ (key >>> 32)) & mask();
+    }
+
+    /**
+     * Empties the given slot, shifting later entries in the same probe run back to fill the hole so
+     * no lookup ever stops early.
+     */
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        for (int next = (hole + 1) & mask(); pieces[next] != NO_PIECE;
+             next = (next + 1) & mask()) {
+            // The entry can fill the hole if the hole is between its home and where it is now
+            if (((next - home(keys[next])) & mask()) >= ((next - hole) & mask())) {
+                keys[hole] = keys[next];
+                pieces[hole] = pieces[next];
+                hole = next;
+            }
+        }
+        pieces[hole] = NO_PIECE;
+    }
+
+    private void resize(int capacity) {
+        final long[] oldKeys = keys;
+        final int[] oldPieces = pieces;
+        keys = new long[capacity];
+        pieces = new int[capacity];
+        Arrays.fill(pieces, NO_PIECE);
+        size = 0;
+        for (int i = 0; i < oldPieces.length; i++) {
+            if (oldPieces[i] != NO_PIECE) {
+                put(oldKeys[i], oldPieces[i]);
+            }
+        }
+    }
+}
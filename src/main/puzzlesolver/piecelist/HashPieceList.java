@@ -0,0 +1,533 @@
+package puzzlesolver.piecelist;
+
+import com.sun.istack.internal.NotNull;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import puzzlesolver.Piece;
+import puzzlesolver.PieceStore;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.enums.PieceType;
+import puzzlesolver.side.Side;
+
+/**
+ * An implementation of {@link PieceList} that keeps, for each {@link Direction}, a {@link
+ * FingerprintTable} of the pieces keyed by the fingerprint of their side in that direction. Pieces
+ * are never kept sorted, so {@link #add}, {@link #remove} and {@link #find} all take constant
+ * time, where a {@link SimplePieceList} has to shift its sorted lists on every add and remove.
+ *
+ * The list holds the handles of its pieces in a {@link PieceStore}, which is either shared with
+ * the rest of a solver or the list's own, and matches probes against the store's arrays. The
+ * handles are kept in one array in no particular order, and {@link #get} indexes into that array
+ * whatever the direction, so the order is the same for every direction and changes as pieces are
+ * removed. Pieces are filed by the sides they had when they were added to the store, which never
+ * change, so a piece can be turned any way while it is in the list and still be removed, but
+ * {@link #find} only finds it if it still has those sides.
+ *
+ * Between them, the four tables hold every side of every piece, so they index each piece under all
+ * four orientations. {@link #findRotated} looks a side up in all of them at once, and finds a piece
+ * however it is turned with one lookup, instead of trying the probe in each rotation.
+ */
+public class HashPieceList implements StoredPieceList {
+
+  /*
+   * INVARIANTS
+   *
+   * store
+   * - Non-null
+   *
+   * handles
+   * - Non-null
+   * - handles[0, size) are distinct handles in store
+   *
+   * positions
+   * - Non-null
+   * - positions[h] is the index of h in handles[0, size), or -1 if h isn't there or is past the
+   *   end of positions
+   *
+   * fingerprints
+   * - Non-null, length is NUM_SIDES * handles.length
+   * - fingerprints[NUM_SIDES * i + d] is the key that handles[i] is filed under in
+   *   fingerprintTables[d]
+   *
+   * fingerprintTables
+   * - Non-null, contents are non-null
+   * - Each table holds exactly handles[0, size)
+   */
+
+    private final PieceStore store;
+    private int[] handles;
+    private long[] fingerprints;
+    private int size;
+    private int[] positions = new int[0];
+    private final FingerprintTable[] fingerprintTables =
+        new FingerprintTable[Constants.NUM_SIDES];
+    private final TableCursor cursor = new TableCursor();
+    private final TableCursor counter = new TableCursor();
+
+    /**
+     * Constructs a new {@code HashPieceList} with an initial capacity of ten.
+     */
+    public HashPieceList() {
+        this(10);
+    }
+
+    /**
+     * Constructs a new {@code HashPieceList} with the given initial capacity, which keeps its
+     * pieces in a store of its own.
+     *
+     * @param initialCapacity the initial capacity of the list (non-negative)
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public HashPieceList(int initialCapacity) {
+        this(new PieceStore(Math.max(initialCapacity, 0)), initialCapacity);
+    }
+
+    /**
+     * Constructs a new {@code HashPieceList} with the given initial capacity, for pieces in the
+     * given store. Pieces added by piece rather than by handle are added to the store if they
+     * aren't in it yet.
+     *
+     * @param store           the store that the pieces are kept in (non-null)
+     * @param initialCapacity the initial capacity of the list (non-negative)
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public HashPieceList(@NotNull PieceStore store, int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + initialCapacity);
+        }
+        this.store = Objects.requireNonNull(store);
+        handles = new int[initialCapacity];
+        fingerprints = new long[initialCapacity * Constants.NUM_SIDES];
+        for (int i = 0; i < fingerprintTables.length; i++) {
+            fingerprintTables[i] = new FingerprintTable(initialCapacity);
+        }
+    }
+
+    @Override
+    public PieceStore getStore() {
+        return store;
+    }
+
+    /**
+     * Adds a piece to this list. Adding a piece that is already in the list has no effect.
+     *
+     * @param p the piece to be added
+     */
+    @Override
+    public void add(Piece p) {
+        Objects.requireNonNull(p);
+        addHandle(handleOf(p));
+    }
+
+    /**
+     * Gets the handle of the given piece in this list's store, adding it to the store if it isn't
+     * there yet.
+     */
+    private int handleOf(Piece p) {
+        final int handle = store.handleOf(p);
+        return handle != PieceStore.NO_PIECE ? handle : store.add(p);
+    }
+
+    /**
+     * Adds the piece with the given handle to this list. Adding a piece that is already in the
+     * list has no effect.
+     *
+     * @param handle the handle of the piece in this list's store
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    @Override
+    public void addHandle(int handle) {
+        if (handle < 0 || handle >= store.size()) {
+            throw new IndexOutOfBoundsException(handle + " is not a valid piece handle");
+        }
+        if (position(handle) >= 0) {
+            return;
+        }
+        if (size == handles.length) {
+            ensureCapacity(Math.max(10, handles.length * 2));
+        }
+        if (handle >= positions.length) {
+            final int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(handle + 1, store.size()));
+            Arrays.fill(positions, oldLength, positions.length, -1);
+        }
+
+        handles[size] = handle;
+        positions[handle] = size;
+        for (Direction dir : Direction.values()) {
+            final long fingerprint = store.addedSide(handle, dir).fingerprint();
+            fingerprints[size * Constants.NUM_SIDES + dir.ordinal()] = fingerprint;
+            fingerprintTables[dir.ordinal()].put(fingerprint, handle);
+        }
+        size++;
+    }
+
+    @Override
+    public void addAll(@NotNull Piece[] pieces) {
+        Objects.requireNonNull(pieces);
+        ensureCapacity(size + pieces.length); // Grow at most once
+        for (Piece p : pieces) {
+            add(p);
+        }
+    }
+
+    @Override
+    public void addHandles(int from, int to) {
+        ensureCapacity(size + to - from); // Grow at most once
+        for (int handle = from; handle < to; handle++) {
+            addHandle(handle);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > handles.length) {
+            handles = Arrays.copyOf(handles, capacity);
+            fingerprints = Arrays.copyOf(fingerprints, capacity * Constants.NUM_SIDES);
+        }
+    }
+
+    private int position(int handle) {
+        return handle >= 0 && handle < positions.length ? positions[handle] : -1;
+    }
+
+    @Override
+    public boolean remove(Piece p) {
+        final int handle = p == null ? PieceStore.NO_PIECE : store.handleOf(p);
+        return handle != PieceStore.NO_PIECE && removeHandle(handle);
+    }
+
+    @Override
+    public boolean removeHandle(int handle) {
+        final int index = position(handle);
+        if (index < 0) {
+            return false;
+        }
+
+        // The piece is filed under the fingerprints it had when it was added, even if it was
+        // rotated since
+        for (int i = 0; i < fingerprintTables.length; i++) {
+            fingerprintTables[i].remove(fingerprints[index * Constants.NUM_SIDES + i], handle);
+        }
+
+        // Fill the hole with the last piece, so that the array stays packed
+        final int last = --size;
+        if (index != last) {
+            handles[index] = handles[last];
+            System.arraycopy(fingerprints, last * Constants.NUM_SIDES, fingerprints,
+                             index * Constants.NUM_SIDES, Constants.NUM_SIDES);
+            positions[handles[index]] = index;
+        }
+        positions[handle] = -1;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[handles[i]] = -1;
+        }
+        size = 0;
+        for (FingerprintTable fingerprintTable : fingerprintTables) {
+            fingerprintTable.clear();
+        }
+    }
+
+    /**
+     * Gets the piece at the given index. Pieces aren't sorted, so the direction is only checked,
+     * and the order is the same for every direction.
+     *
+     * @param dir the direction of the internal list to be indexed (non-null)
+     * @param i   the index of the item to be gotten
+     * @return the piece at the given index
+     * @throws IndexOutOfBoundsException if {@code i} is out of the bounds of this list
+     */
+    @Override
+    public Piece get(@NotNull Direction dir, int i) {
+        Objects.requireNonNull(dir);
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("i is out of bounds");
+        }
+        return store.view(handles[i]);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Piece find(@NotNull Piece p) {
+        return viewOf(findHandle(p));
+    }
+
+    private Piece viewOf(int handle) {
+        return handle == PieceStore.NO_PIECE ? null : store.view(handle);
+    }
+
+    @Override
+    public int findHandle(@NotNull Piece p) {
+        Objects.requireNonNull(p);
+        final Direction lookupDir = p.lookupDirection();
+        final long[] probeFingerprints = p.getSide(lookupDir).probeFingerprints();
+        if (probeFingerprints == null) {
+            // Too ambiguous to probe for, and there is no sorted list to fall back on
+            return findLinear(p);
+        }
+
+        final FingerprintTable fingerprintTable = fingerprintTables[lookupDir.ordinal()];
+        for (long fingerprint : probeFingerprints) {
+            for (int slot = fingerprintTable.first(fingerprint); slot >= 0;
+                 slot = fingerprintTable.next(fingerprint, slot)) {
+                final int handle = fingerprintTable.get(slot);
+                if (store.matches(handle, p)) {
+                    return handle;
+                }
+            }
+        }
+        return PieceStore.NO_PIECE;
+    }
+
+    /**
+     * Finds a piece that matches the given piece in any orientation, by looking up one of its sides
+     * in the tables for all four directions, and rotates it to match.
+     *
+     * @param p the piece to be found (non-null)
+     * @return the matching piece, rotated to match, or {@code null} if it isn't found
+     * @throws NullPointerException if p is {@code null}
+     */
+    @Override
+    public Piece findRotated(@NotNull Piece p) {
+        return viewOf(findRotatedHandle(p));
+    }
+
+    @Override
+    public int findRotatedHandle(@NotNull Piece p) {
+        Objects.requireNonNull(p);
+        final Direction lookupDir = p.lookupDirection();
+        final long[] probeFingerprints = p.getSide(lookupDir).probeFingerprints();
+        if (probeFingerprints == null) {
+            // Too ambiguous to probe for
+            return store.handleOf(StoredPieceList.super.findRotated(p));
+        }
+        return findRotated(store, fingerprintTables, p, probeFingerprints);
+    }
+
+    /**
+     * Finds a piece that matches the given piece in any orientation, by looking up the given
+     * fingerprints in the tables for all four directions, and turns it to match with {@link
+     * PieceStore#turn}. Between them, the tables must file every piece under each of its four
+     * sides, so the piece is found however it sits, with one lookup for each table.
+     *
+     * @param store             the store that the handles in the tables belong to
+     * @param fingerprintTables the tables of a list, one for each direction
+     * @param p                 the piece to be found (non-null)
+     * @param probeFingerprints the fingerprints that the lookup side of the piece could have
+     * @return the handle of the matching piece, turned to match, or {@link PieceStore#NO_PIECE}
+     * if it isn't found
+     */
+    static int findRotated(PieceStore store, FingerprintTable[] fingerprintTables, Piece p,
+                           long[] probeFingerprints) {
+        for (FingerprintTable fingerprintTable : fingerprintTables) {
+            for (long fingerprint : probeFingerprints) {
+                for (int slot = fingerprintTable.first(fingerprint); slot >= 0;
+                     slot = fingerprintTable.next(fingerprint, slot)) {
+                    final int handle = fingerprintTable.get(slot);
+                    final int rotation = store.fit(handle, p);
+                    if (rotation >= 0) {
+                        store.turn(handle, rotation);
+                        return handle;
+                    }
+                }
+            }
+        }
+        return PieceStore.NO_PIECE;
+    }
+
+    /**
+     * Works out how far a piece has to be turned to match a probe. Turning the piece clockwise by
+     * {@code turns} puts the side it now has at {@code (d - turns) & 3} in direction {@code d}.
+     *
+     * @param probe the piece to match, which may have {@code null} sides
+     * @param p     the piece to be turned
+     * @return the number of clockwise quarter turns, or -1 if no turn makes the pieces match
+     */
+    static int turnsToMatch(Piece probe, Piece p) {
+        final Direction[] directions = Direction.values();
+        for (int turns = 0; turns < directions.length; turns++) {
+            boolean matches = true;
+            for (int d = 0; matches && d < directions.length; d++) {
+                final Side side = probe.getSide(directions[d]);
+                final Direction from = directions[(d - turns) & (Constants.NUM_SIDES - 1)];
+                matches = side == null || side.equals(p.getSide(from));
+            }
+            if (matches) {
+                return turns;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds a piece that matches the given piece by checking every piece in the list.
+     *
+     * @param p the piece to be found (non-null)
+     * @return the handle of the matching piece, or {@link PieceStore#NO_PIECE} if it isn't found
+     */
+    private int findLinear(Piece p) {
+        for (int i = 0; i < size; i++) {
+            if (store.matches(handles[i], p)) {
+                return handles[i];
+            }
+        }
+        return PieceStore.NO_PIECE;
+    }
+
+    /**
+     * Gets a cursor over every piece that could match the given probe, from among the pieces filed
+     * under a fingerprint that the probe's side in the given direction could have. If the side is
+     * too ambiguous to probe for, every piece in the list is checked.
+     *
+     * @param probe the piece to match (non-null), which may have {@code null} sides
+     * @param dir   the direction to look the probe up by (non-null)
+     * @return a cursor over the candidates, with the count of them known up front
+     * @throws IllegalArgumentException if the probe's side in direction {@code dir} is {@code null}
+     */
+    @Override
+    public PieceCursor candidates(@NotNull Piece probe, @NotNull Direction dir) {
+        return candidates(probe, dir, cursor);
+    }
+
+    /**
+     * Counts the candidates with a cursor of their own, which leaves the list's cursor as it was.
+     */
+    @Override
+    public int countCandidates(@NotNull Piece probe, @NotNull Direction dir) {
+        return candidates(probe, dir, counter).count();
+    }
+
+    private PieceCursor candidates(Piece probe, Direction dir, TableCursor tableCursor) {
+        Objects.requireNonNull(probe);
+        Objects.requireNonNull(dir);
+        if (probe.sideNull(dir)) {
+            throw new IllegalArgumentException("The probe has no side to look up in " + dir);
+        }
+        tableCursor.reset(probe, fingerprintTables[dir.ordinal()],
+                          probe.getSide(dir).probeFingerprints());
+        return tableCursor;
+    }
+
+    /**
+     * A cursor over the pieces under a set of keys in one of the tables, or over the whole list,
+     * which skips the pieces that don't match the probe. The candidates are only counted if {@link
+     * #count} is called, so going through them without counting takes one pass.
+     */
+    private class TableCursor implements PieceCursor {
+
+        private Piece probe;
+        private FingerprintTable table;
+        private long[] keys;
+        private int keyIndex;
+        private int slot;
+        private int index;
+        private int nextHandle;
+        private int count;
+
+        /**
+         * Points this cursor at new keys, and finds the first candidate under them.
+         *
+         * @param probe the piece to match
+         * @param table the table to look the keys up in
+         * @param keys  the keys to look up, or {@code null} to check every piece in the list
+         */
+        private void reset(Piece probe, FingerprintTable table, long[] keys) {
+            this.probe = probe;
+            this.table = table;
+            this.keys = keys;
+            count = -1; // Not counted yet
+            start();
+        }
+
+        private void start() {
+            keyIndex = 0;
+            slot = -1;
+            index = 0;
+            nextHandle = advance();
+        }
+
+        /**
+         * Finds the next candidate after the current position.
+         *
+         * @return the handle of the next candidate, or {@link PieceStore#NO_PIECE} if there are
+         * no more
+         */
+        private int advance() {
+            if (keys == null) {
+                while (index < size) {
+                    final int handle = handles[index++];
+                    if (store.matches(handle, probe)) {
+                        return handle;
+                    }
+                }
+                return PieceStore.NO_PIECE;
+            }
+            while (keyIndex < keys.length) {
+                slot = slot < 0 ? table.first(keys[keyIndex]) : table.next(keys[keyIndex], slot);
+                if (slot < 0) {
+                    keyIndex++; // Done with this key, so start on the next one
+                } else if (store.matches(table.get(slot), probe)) {
+                    return table.get(slot);
+                }
+            }
+            return PieceStore.NO_PIECE;
+        }
+
+        @Override
+        public int count() {
+            if (count < 0) {
+                // Count from the start, then go back to where this cursor was
+                final int oldKeyIndex = keyIndex;
+                final int oldSlot = slot;
+                final int oldIndex = index;
+                final int oldNextHandle = nextHandle;
+                count = 0;
+                for (start(); nextHandle != PieceStore.NO_PIECE; nextHandle = advance()) {
+                    count++;
+                }
+                keyIndex = oldKeyIndex;
+                slot = oldSlot;
+                index = oldIndex;
+                nextHandle = oldNextHandle;
+            }
+            return count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextHandle != PieceStore.NO_PIECE;
+        }
+
+        @Override
+        public Piece next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Piece p = store.view(nextHandle);
+            nextHandle = advance();
+            return p;
+        }
+    }
+
+    @Override
+    public PieceList sublistByType(PieceType pieceType) {
+        throw new IllegalStateException("HashPieceList does not support sub-listing by type!");
+    }
+}
@@ -0,0 +1,317 @@
+package puzzlesolver.piecelist;
+
+import com.sun.istack.internal.NotNull;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A k-d tree of values keyed by points in a fixed number of dimensions, supporting k nearest
+ * neighbour queries by Euclidean distance.
+ *
+ * The tree is built lazily: values added since the last query are held aside, and the whole tree
+ * is rebuilt, balanced, at the next query. Removed values are only marked as removed, and the tree
+ * is rebuilt once they make up more than half of it. This suits the solvers, which add every piece
+ * up front and then only remove them. Values are matched by identity.
+ *
+ * @param <T> the type of the values
+ */
+public class KdTree<T> {
+
+  /*
+   * INVARIANTS
+   *
+   * points, values, removed
+   * - Non-null, length >= treeSize
+   * - The first treeSize entries form a balanced tree: the node for the range [lo, hi) is at
+   *   mid = (lo + hi) >>> 1, its children cover [lo, mid) and [mid + 1, hi), and every point in
+   *   the left range is <= the node's point, and every point in the right range is >=, on the
+   *   axis depth % dimensions
+   *
+   * positions
+   * - Maps every value in the tree to its index, whether or not it has been removed
+   *
+   * pendingPoints, pendingValues
+   * - Same size, hold the values added since the last build
+   */
+
+    private final int dimensions;
+    private double[][] points = new double[0][];
+    private Object[] values = new Object[0];
+    private boolean[] removed = new boolean[0];
+    private int treeSize;
+    private int removedCount;
+    private final Map<T, Integer> positions = new IdentityHashMap<>();
+    private final List<double[]> pendingPoints = new ArrayList<>();
+    private final List<T> pendingValues = new ArrayList<>();
+
+    /**
+     * Constructs a new, empty {@code KdTree}.
+     *
+     * @param dimensions the amount of coordinates in each point (positive)
+     * @throws IllegalArgumentException if {@code dimensions <= 0}
+     */
+    public KdTree(int dimensions) {
+        if (dimensions <= 0) {
+            throw new IllegalArgumentException("dimensions must be positive");
+        }
+        this.dimensions = dimensions;
+    }
+
+    /**
+     * Adds the given value under the given point. The point is not copied, so it must not be
+     * modified afterwards.
+     *
+     * @param point the key of the value (non-null, length equal to the dimensions of this tree)
+     * @param value the value to be added (non-null)
+     * @throws IllegalArgumentException if the point has the wrong amount of dimensions
+     */
+    public void add(@NotNull double[] point, @NotNull T value) {
+        checkPoint(point);
+        Objects.requireNonNull(value);
+        pendingPoints.add(point);
+        pendingValues.add(value);
+    }
+
+    /**
+     * Removes the given value from this tree.
+     *
+     * @param value the value to be removed
+     * @return true if the value was removed, false if it wasn't in this tree
+     */
+    public boolean remove(T value) {
+        final Integer position = positions.get(value);
+        if (position != null && !removed[position]) {
+            removed[position] = true;
+            removedCount++;
+            return true;
+        }
+        for (int i = 0; i < pendingValues.size(); i++) {
+            if (pendingValues.get(i) == value) {
+                pendingPoints.remove(i);
+                pendingValues.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the amount of values in this tree.
+     *
+     * @return the amount of values
+     */
+    public int size() {
+        return treeSize - removedCount + pendingValues.size();
+    }
+
+    /**
+     * Removes all values from this tree.
+     */
+    public void clear() {
+        points = new double[0][];
+        values = new Object[0];
+        removed = new boolean[0];
+        treeSize = 0;
+        removedCount = 0;
+        positions.clear();
+        pendingPoints.clear();
+        pendingValues.clear();
+    }
+
+    /**
+     * Gets the (up to) {@code k} values whose points are nearest to the given point.
+     *
+     * @param query the point to search around (non-null, length equal to the dimensions of this
+     *              tree)
+     * @param k     the maximum amount of values to return (non-negative)
+     * @return the nearest values, nearest first
+     * @throws IllegalArgumentException if the point has the wrong amount of dimensions, or {@code
+     *                                  k} is negative
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> nearest(@NotNull double[] query, int k) {
+        checkPoint(query);
+        if (k < 0) {
+            throw new IllegalArgumentException("k cannot be negative");
+        }
+        if (!pendingValues.isEmpty() || removedCount * 2 > treeSize) {
+            rebuild();
+        }
+
+        final Neighbours neighbours = new Neighbours(Math.min(k, size()));
+        if (neighbours.capacity > 0) {
+            search(query, 0, treeSize, 0, neighbours);
+        }
+        final List<T> result = new ArrayList<>(neighbours.count);
+        for (int i = 0; i < neighbours.count; i++) {
+            result.add((T) values[neighbours.indexes[i]]);
+        }
+        return result;
+    }
+
+    private void checkPoint(double[] point) {
+        if (point.length != dimensions) {
+            throw new IllegalArgumentException(
+                String.format("Expected %d dimensions, got %d", dimensions, point.length));
+        }
+    }
+
+    private void search(double[] query, int lo, int hi, int depth, Neighbours neighbours) {
+        if (lo >= hi) {
+            return;
+        }
+        final int mid = (lo + hi) >>> 1;
+        if (!removed[mid]) {
+            neighbours.offer(mid, squaredDistance(query, points[mid]));
+        }
+
+        // Search the side the query is on first, then the other only if it could be closer
+        final int axis = depth % dimensions;
+        final double diff = query[axis] - points[mid][axis];
+        if (diff < 0) {
+            search(query, lo, mid, depth + 1, neighbours);
+            if (neighbours.mightAccept(diff * diff)) {
+                search(query, mid + 1, hi, depth + 1, neighbours);
+            }
+        } else {
+            search(query, mid + 1, hi, depth + 1, neighbours);
+            if (neighbours.mightAccept(diff * diff)) {
+                search(query, lo, mid, depth + 1, neighbours);
+            }
+        }
+    }
+
+    private static double squaredDistance(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            final double diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /**
+     * Rebuilds the tree from every value that hasn't been removed, including pending ones.
+     */
+    @SuppressWarnings("unchecked")
+    private void rebuild() {
+        final int newSize = size();
+        final double[][] newPoints = new double[newSize][];
+        final Object[] newValues = new Object[newSize];
+        int n = 0;
+        for (int i = 0; i < treeSize; i++) {
+            if (!removed[i]) {
+                newPoints[n] = points[i];
+                newValues[n++] = values[i];
+            }
+        }
+        for (int i = 0; i < pendingValues.size(); i++) {
+            newPoints[n] = pendingPoints.get(i);
+            newValues[n++] = pendingValues.get(i);
+        }
+        pendingPoints.clear();
+        pendingValues.clear();
+
+        points = newPoints;
+        values = newValues;
+        removed = new boolean[newSize];
+        treeSize = newSize;
+        removedCount = 0;
+        build(0, newSize, 0);
+
+        positions.clear();
+        for (int i = 0; i < newSize; i++) {
+            positions.put((T) values[i], i);
+        }
+    }
+
+    private void build(int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        final int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, depth % dimensions);
+        build(lo, mid, depth + 1);
+        build(mid + 1, hi, depth + 1);
+    }
+
+    /**
+     * Partially sorts the range [left, right] on the given axis so that the n-th entry is in its
+     * sorted place, with no greater entries before it and no lesser entries after it.
+     */
+    private void select(int left, int right, int n, int axis) {
+        while (left < right) {
+            final double pivot = points[(left + right) >>> 1][axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (points[i][axis] < pivot) {
+                    i++;
+                }
+                while (points[j][axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (n <= j) {
+                right = j;
+            } else if (n >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        final double[] point = points[i];
+        points[i] = points[j];
+        points[j] = point;
+        final Object value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    /**
+     * The best entries found so far in a query, kept sorted nearest first.
+     */
+    private static final class Neighbours {
+
+        private final int capacity;
+        private final int[] indexes;
+        private final double[] distances;
+        private int count;
+
+        private Neighbours(int capacity) {
+            this.capacity = capacity;
+            indexes = new int[capacity];
+            distances = new double[capacity];
+        }
+
+        /**
+         * Checks if an entry at the given squared distance could be one of the neighbours.
+         */
+        private boolean mightAccept(double distance) {
+            return count < capacity || distance < distances[count - 1];
+        }
+
+        private void offer(int index, double distance) {
+            if (!mightAccept(distance)) {
+                return;
+            }
+            int i = count < capacity ? count++ : count - 1;
+            for (; i > 0 && distances[i - 1] > distance; i--) {
+                indexes[i] = indexes[i - 1];
+                distances[i] = distances[i - 1];
+            }
+            indexes[i] = index;
+            distances[i] = distance;
+        }
+    }
+}
@@ -0,0 +1,721 @@
+package puzzlesolver.piecelist;
+
+import com.sun.istack.internal.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import puzzlesolver.Piece;
+import puzzlesolver.PieceStore;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.enums.PieceType;
+import puzzlesolver.side.Side;
+import puzzlesolver.side.SideDescriptor;
+
+/**
+ * An implementation of {@link PieceList} that finds pieces approximately, using
+ * locality-sensitive hashing of the {@link SideDescriptor}s of their sides. This is meant for very
+ * large puzzles, and for sides that are close to, but not exactly equal to, the sides being
+ * searched for.
+ *
+ * There are several hash tables per direction. Each one files every piece under a key made from a
+ * few random projections of its side's descriptor, each rounded down to a multiple of the bucket
+ * width, so sides with close descriptors are likely to share a key. A lookup only looks at the
+ * pieces that share a key with the side being searched for in at least one table, so its time
+ * depends on how many sides are close to that one, not on how many pieces there are in all.
+ * Bigger puzzles have more sides in the same space of shapes, though, so they need narrower
+ * buckets to keep lookups as quick.
+ *
+ * The trade-off between recall and speed is tuned with the constructor parameters. More tables
+ * find more of the matching pieces, at the cost of looking at more candidates; more projections
+ * per table, or a narrower bucket width, make each table more selective but also more likely to
+ * miss.
+ *
+ * Like a {@link HashPieceList}, the list holds the handles of its pieces in a {@link PieceStore},
+ * packed into one array in no particular order. Next to each handle it keeps the descriptors of
+ * the piece's sides as floats, so that candidates are ranked without going through the pieces
+ * themselves. Pieces are filed by the sides they had when they were added to the store, so a
+ * piece can be turned any way while it is in the list and still be removed. {@link #find} finds it
+ * by the sides it has now, by looking in the tables of each direction for the pieces turned so
+ * that the side they were filed under there faces the lookup direction. {@link #findRotated}
+ * looks for it under all four sides, whichever way it is turned.
+ */
+public class LshPieceList implements StoredPieceList {
+
+    /**
+     * Default amount of hash tables per direction.
+     */
+    public static final int DEFAULT_TABLES = 16;
+
+    /**
+     * Default amount of random projections that make up each key.
+     */
+    public static final int DEFAULT_PROJECTIONS = 4;
+
+    /**
+     * Default bucket width, in the same units as the descriptors.
+     */
+    public static final double DEFAULT_BUCKET_WIDTH = Constants.SIDE_LENGTH * 0.0025;
+
+    private static final int SAMPLES = SideDescriptor.DEFAULT_SAMPLES;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+  /*
+   * INVARIANTS
+   *
+   * store
+   * - Non-null
+   *
+   * projections, offsets
+   * - Non-null, projections[t][j] is the direction of projection j for table t, and offsets[t][j]
+   *   its offset, in [0, bucketWidth)
+   *
+   * handles
+   * - Non-null
+   * - handles[0, size) are distinct handles in store
+   *
+   * positions
+   * - Non-null
+   * - positions[h] is the index of h in handles[0, size), or -1 if h isn't there or is past the
+   *   end of positions
+   *
+   * descriptors
+   * - Non-null, length is NUM_SIDES * SAMPLES * handles.length
+   * - descriptors[(NUM_SIDES * i + d) * SAMPLES, (NUM_SIDES * i + d + 1) * SAMPLES) are the values,
+   *   as floats, of the descriptor of the side that handles[i] was added to the store with in
+   *   direction d
+   *
+   * sideTypes
+   * - Non-null, length is NUM_SIDES * handles.length
+   * - sideTypes[NUM_SIDES * i + d] is the ordinal of the type of that same side
+   *
+   * tables
+   * - Non-null, contents are non-null, tables[dir * tableCount + t] is table t for direction dir
+   * - Each table holds exactly handles[0, size), each under the key of the side it was added to
+   *   the store with in that direction
+   *
+   * marks
+   * - Non-null, marks[h] <= mark for every h
+   *
+   * foundRotation
+   * - The rotation that the last piece returned by search() was checked in
+   */
+
+    private final PieceStore store;
+    private final int tableCount;
+    private final double bucketWidth;
+    private final double tolerance;
+    private final double[][][] projections;
+    private final double[][] offsets;
+    private final FingerprintTable[] tables;
+    private int[] handles;
+    private float[] descriptors;
+    private byte[] sideTypes;
+    private int size;
+    private int[] positions = new int[0];
+    private int[] marks = new int[0];
+    private int mark;
+    private int foundRotation;
+    private final CandidateCursor cursor = new CandidateCursor();
+
+    /**
+     * Constructs a new {@code LshPieceList} with an initial capacity of ten and the default
+     * parameters.
+     */
+    public LshPieceList() {
+        this(10);
+    }
+
+    /**
+     * Constructs a new {@code LshPieceList} with the given initial capacity and the default
+     * parameters, which keeps its pieces in a store of its own.
+     *
+     * @param initialCapacity the initial capacity of the list (non-negative)
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public LshPieceList(int initialCapacity) {
+        this(new PieceStore(Math.max(initialCapacity, 0)), initialCapacity);
+    }
+
+    /**
+     * Constructs a new {@code LshPieceList} with the given initial capacity and the default
+     * parameters, for pieces in the given store.
+     *
+     * @param store           the store that the pieces are kept in (non-null)
+     * @param initialCapacity the initial capacity of the list (non-negative)
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public LshPieceList(@NotNull PieceStore store, int initialCapacity) {
+        this(store, initialCapacity, DEFAULT_TABLES, DEFAULT_PROJECTIONS, DEFAULT_BUCKET_WIDTH,
+             DescriptorPieceList.DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Constructs a new {@code LshPieceList} with the given initial capacity and parameters, which
+     * keeps its pieces in a store of its own.
+     *
+     * @param initialCapacity the initial capacity of the list (non-negative)
+     * @param tables          the amount of hash tables per direction (positive)
+     * @param projections     the amount of random projections that make up each key (positive)
+     * @param bucketWidth     the width of the buckets that projections are rounded to (positive)
+     * @param tolerance       the maximum average distance between the descriptors of the sides
+     *                        being searched for and those of a piece, for that piece to be found
+     *                        (non-negative)
+     * @throws IllegalArgumentException if any of the parameters are out of range
+     */
+    public LshPieceList(int initialCapacity, int tables, int projections, double bucketWidth,
+                        double tolerance) {
+        this(new PieceStore(Math.max(initialCapacity, 0)), initialCapacity, tables, projections,
+             bucketWidth, tolerance);
+    }
+
+    /**
+     * Constructs a new {@code LshPieceList} with the given initial capacity and parameters, for
+     * pieces in the given store. Pieces added by piece rather than by handle are added to the store
+     * if they aren't in it yet. The random projections are drawn from {@link Constants#RANDOM}.
+     *
+     * @param store           the store that the pieces are kept in (non-null)
+     * @param initialCapacity the initial capacity of the list (non-negative)
+     * @param tables          the amount of hash tables per direction (positive)
+     * @param projections     the amount of random projections that make up each key (positive)
+     * @param bucketWidth     the width of the buckets that projections are rounded to (positive)
+     * @param tolerance       the maximum average distance between the descriptors of the sides
+     *                        being searched for and those of a piece, for that piece to be found
+     *                        (non-negative)
+     * @throws IllegalArgumentException if any of the parameters are out of range
+     */
+    public LshPieceList(@NotNull PieceStore store, int initialCapacity, int tables,
+                        int projections, double bucketWidth, double tolerance) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + initialCapacity);
+        }
+        if (tables <= 0 || projections <= 0) {
+            throw new IllegalArgumentException("tables and projections must be positive");
+        }
+        if (!(bucketWidth > 0) || tolerance < 0) {
+            throw new IllegalArgumentException(
+                "bucketWidth must be positive and tolerance non-negative");
+        }
+        this.store = Objects.requireNonNull(store);
+        this.tableCount = tables;
+        this.bucketWidth = bucketWidth;
+        this.tolerance = tolerance;
+
+        // Gaussian projections keep the chance of a collision a function of Euclidean distance
+        this.projections = new double[tables][projections][SideDescriptor.DEFAULT_SAMPLES];
+        this.offsets = new double[tables][projections];
+        for (int t = 0; t < tables; t++) {
+            for (int j = 0; j < projections; j++) {
+                for (int d = 0; d < SideDescriptor.DEFAULT_SAMPLES; d++) {
+                    this.projections[t][j][d] = Constants.RANDOM.nextGaussian();
+                }
+                offsets[t][j] = Constants.RANDOM.nextDouble() * bucketWidth;
+            }
+        }
+
+        this.tables = new FingerprintTable[Constants.NUM_SIDES * tables];
+        for (int i = 0; i < this.tables.length; i++) {
+            this.tables[i] = new FingerprintTable(initialCapacity);
+        }
+        handles = new int[initialCapacity];
+        descriptors = new float[initialCapacity * Constants.NUM_SIDES * SAMPLES];
+        sideTypes = new byte[initialCapacity * Constants.NUM_SIDES];
+    }
+
+    @Override
+    public PieceStore getStore() {
+        return store;
+    }
+
+    /**
+     * Adds a piece to this list. Adding a piece that is already in the list has no effect.
+     *
+     * @param p the piece to be added
+     */
+    @Override
+    public void add(Piece p) {
+        Objects.requireNonNull(p);
+        final int handle = store.handleOf(p);
+        addHandle(handle != PieceStore.NO_PIECE ? handle : store.add(p));
+    }
+
+    /**
+     * Adds the piece with the given handle to this list. Adding a piece that is already in the
+     * list has no effect.
+     *
+     * @param handle the handle of the piece in this list's store
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    @Override
+    public void addHandle(int handle) {
+        if (handle < 0 || handle >= store.size()) {
+            throw new IndexOutOfBoundsException(handle + " is not a valid piece handle");
+        }
+        if (position(handle) >= 0) {
+            return;
+        }
+        if (size == handles.length) {
+            ensureCapacity(Math.max(10, handles.length * 2));
+        }
+        if (handle >= positions.length) {
+            final int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, Math.max(handle + 1, store.size()));
+            Arrays.fill(positions, oldLength, positions.length, -1);
+        }
+
+        handles[size] = handle;
+        positions[handle] = size;
+        for (Direction dir : Direction.values()) {
+            final Side side = store.addedSide(handle, dir);
+            final SideDescriptor descriptor = side.descriptor();
+            final int index = size * Constants.NUM_SIDES + dir.ordinal();
+            sideTypes[index] = (byte) side.getSideType().ordinal();
+            for (int d = 0; d < SAMPLES; d++) {
+                descriptors[index * SAMPLES + d] = (float) descriptor.get(d);
+            }
+            for (int t = 0; t < tableCount; t++) {
+                tables[dir.ordinal() * tableCount + t].put(key(descriptor, t), handle);
+            }
+        }
+        size++;
+    }
+
+    @Override
+    public void addAll(@NotNull Piece[] pieces) {
+        Objects.requireNonNull(pieces);
+        ensureCapacity(size + pieces.length); // Grow at most once
+        for (Piece p : pieces) {
+            add(p);
+        }
+    }
+
+    @Override
+    public void addHandles(int from, int to) {
+        ensureCapacity(size + to - from); // Grow at most once
+        for (int handle = from; handle < to; handle++) {
+            addHandle(handle);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > handles.length) {
+            handles = Arrays.copyOf(handles, capacity);
+            descriptors = Arrays.copyOf(descriptors, capacity * Constants.NUM_SIDES * SAMPLES);
+            sideTypes = Arrays.copyOf(sideTypes, capacity * Constants.NUM_SIDES);
+        }
+    }
+
+    private int position(int handle) {
+        return handle >= 0 && handle < positions.length ? positions[handle] : -1;
+    }
+
+    @Override
+    public boolean remove(Piece p) {
+        final int handle = p == null ? PieceStore.NO_PIECE : store.handleOf(p);
+        return handle != PieceStore.NO_PIECE && removeHandle(handle);
+    }
+
+    @Override
+    public boolean removeHandle(int handle) {
+        final int index = position(handle);
+        if (index < 0) {
+            return false;
+        }
+
+        // The keys aren't kept, since there are so many of them, so they are worked out again from
+        // the sides the piece was filed under
+        for (Direction dir : Direction.values()) {
+            final SideDescriptor descriptor = store.addedSide(handle, dir).descriptor();
+            for (int t = 0; t < tableCount; t++) {
+                tables[dir.ordinal() * tableCount + t].remove(key(descriptor, t), handle);
+            }
+        }
+
+        // Fill the hole with the last piece, so that the array stays packed
+        final int last = --size;
+        if (index != last) {
+            handles[index] = handles[last];
+            System.arraycopy(descriptors, last * Constants.NUM_SIDES * SAMPLES, descriptors,
+                             index * Constants.NUM_SIDES * SAMPLES, Constants.NUM_SIDES * SAMPLES);
+            System.arraycopy(sideTypes, last * Constants.NUM_SIDES, sideTypes,
+                             index * Constants.NUM_SIDES, Constants.NUM_SIDES);
+            positions[handles[index]] = index;
+        }
+        positions[handle] = -1;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[handles[i]] = -1;
+        }
+        size = 0;
+        for (FingerprintTable table : tables) {
+            table.clear();
+        }
+    }
+
+    /**
+     * Gets the piece at the given index. Pieces aren't sorted, so the direction is only checked,
+     * and the order is the same for every direction.
+     *
+     * @param dir the direction of the internal list to be indexed (non-null)
+     * @param i   the index of the item to be gotten
+     * @return the piece at the given index
+     * @throws IndexOutOfBoundsException if {@code i} is out of the bounds of this list
+     */
+    @Override
+    public Piece get(@NotNull Direction dir, int i) {
+        Objects.requireNonNull(dir);
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("i is out of bounds");
+        }
+        return store.view(handles[i]);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets every piece that shares a key with one of the non-null sides of the given piece, in at
+     * least one table, by the side that faces the same way now. A non-flat side is used if there is
+     * one, since every flat side has the same shape. The pieces are not checked against any other
+     * sides.
+     *
+     * @param p the piece to search around (non-null, with at least one non-null side)
+     * @return the candidate pieces, without duplicates, in no particular order
+     * @throws IllegalArgumentException if every side of {@code p} is {@code null}
+     */
+    public List<Piece> candidates(@NotNull Piece p) {
+        final Direction lookupDir = lookupDir(p);
+        final SideDescriptor descriptor = p.getSide(lookupDir).descriptor();
+        final List<Piece> candidates = new ArrayList<>();
+        nextMark();
+        for (Direction dir : Direction.values()) {
+            // Only the pieces turned so that the side filed in dir's tables faces lookupDir now
+            final int rotation = (lookupDir.ordinal() - dir.ordinal()) & (Constants.NUM_SIDES - 1);
+            for (int t = 0; t < tableCount; t++) {
+                final FingerprintTable table = tables[dir.ordinal() * tableCount + t];
+                final long key = key(descriptor, t);
+                for (int slot = table.first(key); slot >= 0; slot = table.next(key, slot)) {
+                    final int handle = table.get(slot);
+                    if (marks[handle] != mark && store.rotation(handle) == rotation) {
+                        marks[handle] = mark;
+                        candidates.add(store.view(handle));
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Finds a piece that matches the given piece, among the pieces that share a key with it (see
+     * {@link #candidates(Piece)}). An exact match is returned if there is one. Otherwise the
+     * candidate whose sides are nearest in shape to those of the given piece is returned, as long
+     * as the sides are within this list's tolerance on average and the piece could be the same
+     * type. Every flat side has the same key, so a piece looked up by a flat side is found among
+     * all the pieces with a flat side in that direction.
+     *
+     * This is approximate: a matching piece that doesn't share a key with the given piece in any
+     * table is not found.
+     *
+     * @param p the piece to be found (non-null)
+     * @return the matching piece, or {@code null} if no candidate is close enough
+     */
+    @Override
+    public Piece find(@NotNull Piece p) {
+        return viewOf(findHandle(p));
+    }
+
+    private Piece viewOf(int handle) {
+        return handle == PieceStore.NO_PIECE ? null : store.view(handle);
+    }
+
+    @Override
+    public int findHandle(@NotNull Piece p) {
+        return search(p, false);
+    }
+
+    /**
+     * Finds a piece that matches the given piece in any orientation, like {@link #find}, and
+     * rotates it to match. Between them, the tables for the four directions file every piece under
+     * each of its sides, so this looks the given piece up once in each of them, instead of trying
+     * it in each rotation.
+     *
+     * @param p the piece to be found (non-null)
+     * @return the matching piece, rotated to match, or {@code null} if no candidate is close enough
+     * @throws NullPointerException if p is {@code null}
+     */
+    @Override
+    public Piece findRotated(@NotNull Piece p) {
+        return viewOf(findRotatedHandle(p));
+    }
+
+    @Override
+    public int findRotatedHandle(@NotNull Piece p) {
+        final int handle = search(p, true);
+        if (handle != PieceStore.NO_PIECE) {
+            store.turn(handle, foundRotation);
+        }
+        return handle;
+    }
+
+    /**
+     * Looks the given piece up by its lookup side, and picks the best candidate like {@link
+     * #find} does. The rotation the candidate was checked in is left in {@link #foundRotation}.
+     *
+     * @param p           the piece to be found (non-null)
+     * @param anyRotation whether to check each candidate turned so that the side it was found by
+     *                    faces the lookup direction, rather than only the candidates that are
+     *                    turned that way now
+     * @return the handle of the best candidate, or {@link PieceStore#NO_PIECE} if none is close
+     * enough
+     */
+    private int search(Piece p, boolean anyRotation) {
+        final Direction lookupDir = lookupDir(p);
+        final SideDescriptor descriptor = p.getSide(lookupDir).descriptor();
+        final float[][] values = describe(p);
+        int best = PieceStore.NO_PIECE;
+        int bestRotation = -1;
+        double bestDistance = tolerance;
+        for (Direction dir : Direction.values()) {
+            // Turning clockwise moves the side added facing dir to face dir + rotation, so this is
+            // how far a piece found in dir's tables has to be turned to face it the lookup way
+            final int rotation = (lookupDir.ordinal() - dir.ordinal()) & (Constants.NUM_SIDES - 1);
+            nextMark(); // A piece can be found by another side in another direction's tables
+            for (int t = 0; t < tableCount; t++) {
+                final FingerprintTable table = tables[dir.ordinal() * tableCount + t];
+                final long key = key(descriptor, t);
+                for (int slot = table.first(key); slot >= 0; slot = table.next(key, slot)) {
+                    final int handle = table.get(slot);
+                    if (marks[handle] == mark
+                        || !anyRotation && store.rotation(handle) != rotation) {
+                        continue;
+                    }
+                    marks[handle] = mark;
+                    final double distance = distance(p, values, handle, rotation);
+                    if (distance < 0) {
+                        foundRotation = rotation;
+                        return handle;
+                    }
+                    if (distance <= bestDistance) {
+                        best = handle;
+                        bestRotation = rotation;
+                        bestDistance = distance;
+                    }
+                }
+            }
+        }
+        foundRotation = bestRotation;
+        return best;
+    }
+
+    /**
+     * Gets the values of the descriptors of the non-null sides of the given piece, as floats like
+     * the ones this list keeps, indexed by direction, with {@code null} for null sides.
+     */
+    private static float[][] describe(Piece p) {
+        final float[][] values = new float[Constants.NUM_SIDES][];
+        for (Direction dir : Direction.values()) {
+            if (!p.sideNull(dir)) {
+                final SideDescriptor descriptor = p.getSide(dir).descriptor();
+                values[dir.ordinal()] = new float[SAMPLES];
+                for (int d = 0; d < SAMPLES; d++) {
+                    values[dir.ordinal()][d] = (float) descriptor.get(d);
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Gets the average descriptor distance between the non-null sides of the given probe and the
+     * sides of the given piece in the same directions, with the piece turned to the given rotation.
+     * The piece's descriptors are read from this list's own arrays, so only an exact match has to
+     * look at its sides.
+     *
+     * @param probe    the piece being searched for
+     * @param values   the descriptor values of the probe, from {@link #describe}
+     * @param handle   the handle of the candidate piece, which is in this list
+     * @param rotation the clockwise quarter turns from the orientation the candidate was added in
+     * @return -1 if the piece matches the probe exactly, infinity if it can't be the probe's type
+     * or one of its sides differs in type from the probe's, and the average distance otherwise
+     */
+    private double distance(Piece probe, float[][] values, int handle, int rotation) {
+        if ((probe.getPieceTypeMask() & store.typeMask(handle)) == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double sum = 0;
+        int count = 0;
+        for (Direction dir : DIRECTIONS) {
+            final float[] probeValues = values[dir.ordinal()];
+            if (probeValues == null) {
+                continue;
+            }
+            // Turning clockwise moves the side added facing d to face d + rotation
+            final int side = positions[handle] * Constants.NUM_SIDES
+                             + ((dir.ordinal() - rotation) & (Constants.NUM_SIDES - 1));
+            if (sideTypes[side] != probe.getSide(dir).getSideType().ordinal()) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double squaredDistance = 0;
+            for (int d = 0; d < SAMPLES; d++) {
+                final double difference = probeValues[d] - descriptors[side * SAMPLES + d];
+                squaredDistance += difference * difference;
+            }
+            sum += Math.sqrt(squaredDistance / SAMPLES);
+            count++;
+        }
+        if (sum > 0) {
+            return sum / count; // Equal sides have equal descriptors, so this can't be exact
+        }
+        for (Direction dir : DIRECTIONS) {
+            final Direction from =
+                DIRECTIONS[(dir.ordinal() - rotation) & (Constants.NUM_SIDES - 1)];
+            if (!probe.sideNull(dir)
+                && !probe.getSide(dir).equals(store.addedSide(handle, from))) {
+                return 0;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets a cursor over every piece that {@link #find} could return for the given probe, looked up
+     * by its side in the given direction: those that share a key with that side in at least one
+     * table, could be the same type, and are an exact match or within this list's tolerance.
+     *
+     * @param probe the piece to match (non-null), which may have {@code null} sides
+     * @param dir   the direction to look the probe up by (non-null)
+     * @return a cursor over the candidates, with the count of them known up front
+     * @throws IllegalArgumentException if the probe's side in direction {@code dir} is {@code null}
+     */
+    @Override
+    public PieceCursor candidates(@NotNull Piece probe, @NotNull Direction dir) {
+        Objects.requireNonNull(probe);
+        Objects.requireNonNull(dir);
+        if (probe.sideNull(dir)) {
+            throw new IllegalArgumentException("The probe has no side to look up in " + dir);
+        }
+
+        final SideDescriptor descriptor = probe.getSide(dir).descriptor();
+        final float[][] values = describe(probe);
+        cursor.count = 0;
+        cursor.index = 0;
+        nextMark();
+        for (Direction filedDir : Direction.values()) {
+            // Only the pieces turned so that the side filed in filedDir's tables faces dir now
+            final int rotation = (dir.ordinal() - filedDir.ordinal()) & (Constants.NUM_SIDES - 1);
+            for (int t = 0; t < tableCount; t++) {
+                final FingerprintTable table = tables[filedDir.ordinal() * tableCount + t];
+                final long key = key(descriptor, t);
+                for (int slot = table.first(key); slot >= 0; slot = table.next(key, slot)) {
+                    final int handle = table.get(slot);
+                    if (marks[handle] != mark && store.rotation(handle) == rotation) {
+                        marks[handle] = mark;
+                        if (distance(probe, values, handle, rotation) <= tolerance) {
+                            cursor.add(handle);
+                        }
+                    }
+                }
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * A cursor over a buffer of handles, which is filled in full before it is handed out.
+     */
+    private class CandidateCursor implements PieceCursor {
+
+        private int[] buffer = new int[16];
+        private int count;
+        private int index;
+
+        private void add(int handle) {
+            if (count == buffer.length) {
+                buffer = Arrays.copyOf(buffer, count * 2);
+            }
+            buffer[count++] = handle;
+        }
+
+        @Override
+        public int count() {
+            return count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < count;
+        }
+
+        @Override
+        public Piece next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return store.view(buffer[index++]);
+        }
+    }
+
+    @Override
+    public PieceList sublistByType(PieceType pieceType) {
+        throw new IllegalStateException("LshPieceList does not support sub-listing by type!");
+    }
+
+    /**
+     * Starts a new lookup, so that every piece counts as not yet seen by it.
+     */
+    private void nextMark() {
+        if (marks.length < store.size()) {
+            marks = Arrays.copyOf(marks, store.size());
+        }
+        if (++mark == 0) { // Wrapped around, so old marks could look new
+            Arrays.fill(marks, 0);
+            mark = 1;
+        }
+    }
+
+    /**
+     * Picks the direction to look the given piece up by: a non-null side, non-flat if possible.
+     */
+    private static Direction lookupDir(Piece p) {
+        Objects.requireNonNull(p);
+        final Direction lookupDir = p.lookupDirection();
+        if (lookupDir == null) {
+            throw new IllegalArgumentException("Piece has no sides to search by");
+        }
+        return lookupDir;
+    }
+
+    /**
+     * Gets the key of the given descriptor in the given table.
+     */
+    private long key(SideDescriptor descriptor, int table) {
+        long h = table;
+        for (int j = 0; j < offsets[table].length; j++) {
+            final double[] projection = projections[table][j];
+            double dot = offsets[table][j];
+            for (int d = 0; d < projection.length; d++) {
+                dot += projection[d] * descriptor.get(d);
+            }
+            h ^= (long) Math.floor(dot / bucketWidth);
+            h *= 0x9E3779B97F4A7C15L;
+            h ^= h >>> 29;
+        }
+        return h;
+    }
+}
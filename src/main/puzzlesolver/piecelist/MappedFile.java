@@ -0,0 +1,124 @@
+package puzzlesolver.piecelist;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * A file mapped into memory, read and written by absolute {@code long} offsets. A single {@link
+ * MappedByteBuffer} can only map 2 GiB, so the file is mapped in chunks. Each chunk reaches a few
+ * bytes into the next, so any primitive that starts in a chunk can be read from that chunk alone.
+ *
+ * Nothing is copied onto the heap, so the operating system's page cache holds the contents, and
+ * they stay cached between runs.
+ */
+final class MappedFile {
+
+    private static final int CHUNK_BITS = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * How far each chunk reaches into the next, which is the size of the largest primitive.
+     */
+    private static final int OVERLAP = Long.BYTES;
+
+    private final MappedByteBuffer[] chunks;
+    private final long length;
+
+    private MappedFile(FileChannel channel, FileChannel.MapMode mode, long length)
+        throws IOException {
+        this.length = length;
+        chunks = new MappedByteBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_BITS)];
+        for (int i = 0; i < chunks.length; i++) {
+            final long position = i * CHUNK_SIZE;
+            chunks[i] = channel.map(mode, position,
+                                    Math.min(CHUNK_SIZE + OVERLAP, length - position));
+        }
+    }
+
+    /**
+     * Creates the given file with the given length, replacing it if it exists, and maps it to be
+     * written.
+     *
+     * @param file   the file to create
+     * @param length the length of the file in bytes
+     * @return the mapped file, which is all zeroes
+     * @throws IOException if the file can't be created or mapped
+     */
+    static MappedFile create(Path file, long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(0); // Drop any old contents
+            raf.setLength(length);
+            return new MappedFile(raf.getChannel(), FileChannel.MapMode.READ_WRITE, length);
+        }
+    }
+
+    /**
+     * Maps an existing file to be read.
+     *
+     * @param file the file to open
+     * @return the mapped file
+     * @throws IOException if the file can't be opened or mapped
+     */
+    static MappedFile open(Path file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            return new MappedFile(raf.getChannel(), FileChannel.MapMode.READ_ONLY, raf.length());
+        }
+    }
+
+    long length() {
+        return length;
+    }
+
+    /**
+     * Writes any changes out to the file.
+     */
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    private MappedByteBuffer chunk(long offset) {
+        return chunks[(int) (offset >>> CHUNK_BITS)];
+    }
+
+    private static int index(long offset) {
+        return (int) (offset & CHUNK_MASK);
+    }
+
+    byte getByte(long offset) {
+        return chunk(offset).get(index(offset));
+    }
+
+    int getInt(long offset) {
+        return chunk(offset).getInt(index(offset));
+    }
+
+    long getLong(long offset) {
+        return chunk(offset).getLong(index(offset));
+    }
+
+    double getDouble(long offset) {
+        return chunk(offset).getDouble(index(offset));
+    }
+
+    void putByte(long offset, byte value) {
+        chunk(offset).put(index(offset), value);
+    }
+
+    void putInt(long offset, int value) {
+        chunk(offset).putInt(index(offset), value);
+    }
+
+    void putLong(long offset, long value) {
+        chunk(offset).putLong(index(offset), value);
+    }
+
+    void putDouble(long offset, double value) {
+        chunk(offset).putDouble(index(offset), value);
+    }
+}
@@ -0,0 +1,855 @@
+package puzzlesolver.piecelist;
+
+import com.sun.istack.internal.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Objects;
+
+import puzzlesolver.Piece;
+import puzzlesolver.PieceStore;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.enums.PieceType;
+import puzzlesolver.side.Side;
+import puzzlesolver.side.SimpleSide;
+
+/**
+ * An implementation of {@link PieceList} that keeps its index in a memory-mapped file instead of
+ * on the heap, for puzzles too big to sort into the four lists of a {@link SimplePieceList}. The
+ * file holds a fixed-width record for each piece, the points of every side, and for each {@link
+ * Direction}, an array of the fingerprints of the pieces' sides in that direction, sorted so that
+ * {@link #find} can binary search it. Only a bit per piece, for whether it has been removed, is
+ * kept on the heap, and the operating system's page cache does the rest.
+ *
+ * The file is written by the first {@link #addAll}, and never changes after that. Pieces added
+ * after that are kept on the heap, in a {@link HashPieceList}. If the file already holds the same
+ * pieces, judged by their count and a digest of the fingerprints of all their sides, it is reused
+ * without writing or sorting anything, so a warm restart only costs a pass over the pieces. Pieces
+ * are looked up by the sides they had when the file was written, like in a {@link HashPieceList}.
+ *
+ * The list keeps no pieces of its own. It hands out pieces by record, which is the index of the
+ * piece in the array the file was written from. Given a {@link PieceStore} that holds the pieces in
+ * the same order, records are handles, and the pieces handed out are the store's views. Without
+ * one, such as when the file is {@link #open opened} on its own, a piece is rebuilt from its
+ * record, without any side IDs, each time one is handed out, and there are no handles.
+ */
+public class MappedPieceList implements StoredPieceList {
+
+  /*
+   * INVARIANTS
+   *
+   * file
+   * - Non-null
+   *
+   * mapped
+   * - null if and only if nothing has been written to the file yet, in which case count is 0
+   * - Otherwise, holds count records, with the key arrays sorted by fingerprint
+   *
+   * store
+   * - null, or store.view(r) is the piece that record r was written from, for 0 <= r < count
+   *
+   * sortChunk
+   * - Positive
+   *
+   * removed
+   * - Non-null
+   * - Bit r is set if record r has been removed, and removedCount is the number of set bits
+   *
+   * overflow
+   * - Non-null
+   * - Holds the pieces added after the file was written, none of which have a live record
+   *
+   * getIndex, getRecord
+   * - getIndex is -1, or record getRecord is the getIndex-th record that hasn't been removed
+   */
+
+    private static final long MAGIC = 0x50757A7A4C697374L; // "PuzzList"
+    private static final int VERSION = 2;
+
+    // The header holds the magic number, version, record count, COMP_DELTA, sides offset and
+    // the digest of the pieces
+    private static final int HEADER_BYTES = 40;
+
+    // Each record holds the offset of the piece's side in each direction
+    private static final int RECORD_BYTES = Constants.NUM_SIDES * Long.BYTES;
+
+    // Each key holds a fingerprint and the index of the record that it belongs to
+    private static final int KEY_BYTES = Long.BYTES + Integer.BYTES;
+
+    // Each side holds its point count and its source's point count, then the points of both
+    private static final int SIDE_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int POINT_BYTES = 2 * Double.BYTES;
+
+    /**
+     * The most keys that are sorted on the heap at once, which takes 24 bytes per key.
+     */
+    private static final int SORT_CHUNK = 1 << 20;
+
+    private final Path file;
+    private final PieceStore store;
+    private final int sortChunk;
+    private MappedFile mapped;
+    private int count;
+    private final BitSet removed = new BitSet();
+    private int removedCount;
+    private final HashPieceList overflow = new HashPieceList(0);
+    private final ArrayCursor cursor = new ArrayCursor();
+    private int getIndex = -1;
+    private int getRecord;
+
+    /**
+     * Constructs a new, empty {@code MappedPieceList}, which writes its index to the given file
+     * when it is first filled, and rebuilds pieces from the file as it hands them out.
+     *
+     * @param file the file to write the index to (non-null)
+     */
+    public MappedPieceList(@NotNull Path file) {
+        this(file, null);
+    }
+
+    /**
+     * Constructs a new, empty {@code MappedPieceList}, which writes its index to the given file
+     * when it is first filled. Anything already in the file is replaced, unless the file already
+     * holds the pieces that the list is filled with, in which case it is used as it is. The list
+     * must be filled with the pieces of the given store in the order of their handles, such as
+     * with {@link #addHandles}.
+     *
+     * @param file  the file to write the index to (non-null)
+     * @param store the store that holds the pieces, or {@code null} to rebuild pieces from the
+     *              file
+     */
+    public MappedPieceList(@NotNull Path file, PieceStore store) {
+        this(file, store, SORT_CHUNK);
+    }
+
+    /**
+     * Constructs a new, empty {@code MappedPieceList} that sorts the given amount of keys on the
+     * heap at once.
+     *
+     * @param file      the file to write the index to (non-null)
+     * @param store     the store that holds the pieces, or {@code null} to rebuild pieces
+     * @param sortChunk the most keys to sort on the heap at once (positive)
+     */
+    MappedPieceList(@NotNull Path file, PieceStore store, int sortChunk) {
+        if (sortChunk <= 0) {
+            throw new IllegalArgumentException("sortChunk must be positive");
+        }
+        this.file = Objects.requireNonNull(file);
+        this.store = store;
+        this.sortChunk = sortChunk;
+    }
+
+    /**
+     * Opens a file written by another {@code MappedPieceList}, without reading or sorting anything
+     * but its header. Pieces are rebuilt from the file as they are handed out.
+     *
+     * @param file the file to open (non-null)
+     * @return a list of every piece in the file
+     * @throws IOException if the file can't be read, or wasn't written by a {@code
+     *                     MappedPieceList} with the current {@link Constants#COMP_DELTA}
+     */
+    public static MappedPieceList open(@NotNull Path file) throws IOException {
+        return open(file, null);
+    }
+
+    /**
+     * Opens a file written by another {@code MappedPieceList}, without reading or sorting anything
+     * but its header.
+     *
+     * @param file   the file to open (non-null)
+     * @param store  the store that holds the pieces that the file was written from, in the same
+     *               order, or {@code null} to rebuild pieces from the file
+     * @return a list of every piece in the file
+     * @throws IOException if the file can't be read, or wasn't written by a {@code
+     *                     MappedPieceList} with the current {@link Constants#COMP_DELTA}
+     */
+    public static MappedPieceList open(@NotNull Path file, PieceStore store)
+        throws IOException {
+        final MappedPieceList list = new MappedPieceList(file, store);
+        list.map(MappedFile.open(file));
+        return list;
+    }
+
+    /**
+     * Checks the header of a mapped file, and starts using it as this list's index.
+     *
+     * @param in the mapped file
+     * @throws IOException if the file wasn't written by a {@code MappedPieceList} with the current
+     *                     {@link Constants#COMP_DELTA}
+     */
+    private void map(MappedFile in) throws IOException {
+        if (in.length() < HEADER_BYTES || in.getLong(0) != MAGIC) {
+            throw new IOException(file + " is not a mapped piece list");
+        }
+        if (in.getInt(8) != VERSION) {
+            throw new IOException(file + " has unsupported version " + in.getInt(8));
+        }
+        // Fingerprints depend on the delta, so they are only any use with the same one
+        final double compDelta = in.getDouble(16);
+        if (Double.compare(compDelta, Constants.COMP_DELTA) != 0) {
+            throw new IOException(String.format("%s was written with a COMP_DELTA of %g, not %g",
+                                                file, compDelta, Constants.COMP_DELTA));
+        }
+        final int n = in.getInt(12);
+        final long sidesOffset = in.getLong(24);
+        if (n < 0 || sidesOffset != keysOffset(n, Constants.NUM_SIDES)
+            || sidesOffset > in.length()) {
+            throw new IOException(file + " is truncated");
+        }
+        mapped = in;
+        count = n;
+    }
+
+    /**
+     * Starts using this list's file as its index, if it was written from the given pieces.
+     *
+     * @param pieces the pieces that this list is being filled with
+     * @return true if the file holds the pieces, false if it has to be written
+     */
+    private boolean reuse(Piece[] pieces) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try {
+            final MappedFile in = MappedFile.open(file);
+            if (in.length() < HEADER_BYTES || in.getInt(12) != pieces.length
+                || in.getLong(32) != digest(pieces)) {
+                return false;
+            }
+            map(in);
+            return true;
+        } catch (IOException e) {
+            return false; // Not a usable list, so it gets written over
+        }
+    }
+
+    /**
+     * Hashes the fingerprint of every side of the given pieces, in order. Files written from
+     * pieces with the same digest are taken to hold the same pieces.
+     *
+     * @param pieces the pieces to hash
+     * @return the digest of the pieces
+     */
+    private static long digest(Piece[] pieces) {
+        long digest = pieces.length;
+        for (Piece p : pieces) {
+            for (Direction dir : Direction.values()) {
+                digest = Long.rotateLeft((digest ^ p.getSide(dir).fingerprint())
+                                         * 0x9E3779B97F4A7C15L, 31);
+            }
+        }
+        return digest;
+    }
+
+    private static long recordOffset(int record) {
+        return HEADER_BYTES + (long) record * RECORD_BYTES;
+    }
+
+    private static long keysOffset(int count, int dirIndex) {
+        return recordOffset(count) + (long) dirIndex * count * KEY_BYTES;
+    }
+
+    private long keyOffset(Direction dir, int i) {
+        return keysOffset(count, dir.ordinal()) + (long) i * KEY_BYTES;
+    }
+
+    private long keyAt(Direction dir, int i) {
+        return mapped.getLong(keyOffset(dir, i));
+    }
+
+    private int recordAt(Direction dir, int i) {
+        return mapped.getInt(keyOffset(dir, i) + Long.BYTES);
+    }
+
+    /**
+     * Writes the index of the given pieces to this list's file, and maps it. The key arrays are
+     * written first, while the space for the sides is free to sort in, then the records and sides.
+     *
+     * @param pieces the pieces to be written (non-null, does not contain null)
+     * @throws IOException if the file can't be written
+     */
+    private void write(Piece[] pieces) throws IOException {
+        final int n = pieces.length;
+        final long sidesOffset = keysOffset(n, Constants.NUM_SIDES);
+        long length = sidesOffset;
+        for (Piece p : pieces) {
+            for (Direction dir : Direction.values()) {
+                length += sideBytes(p.getSide(dir));
+            }
+        }
+
+        final MappedFile out = MappedFile.create(file, length);
+        for (int d = 0; d < Constants.NUM_SIDES; d++) {
+            // Every side takes at least SIDE_HEADER_BYTES, so the sides have room for the runs
+            writeKeys(out, pieces, Direction.values()[d], keysOffset(n, d), keysOffset(n, d + 1));
+        }
+
+        long sideOffset = sidesOffset;
+        for (int r = 0; r < n; r++) {
+            for (Direction dir : Direction.values()) {
+                out.putLong(recordOffset(r) + dir.ordinal() * Long.BYTES, sideOffset);
+                sideOffset = writeSide(out, sideOffset, pieces[r].getSide(dir));
+            }
+        }
+
+        out.putInt(8, VERSION);
+        out.putInt(12, n);
+        out.putDouble(16, Constants.COMP_DELTA);
+        out.putLong(24, sidesOffset);
+        out.putLong(32, digest(pieces));
+        out.putLong(0, MAGIC); // Last, so that a half-written file is never opened
+        out.force();
+
+        mapped = out;
+        count = n;
+    }
+
+    /**
+     * Writes the key array of the given direction, sorted by fingerprint. Keys are sorted on the
+     * heap, {@link #sortChunk} at a time, so the file is only ever written front to back. If there
+     * is more than one chunk, each sorted chunk is written as a run to space in the file that
+     * hasn't been filled yet, and the runs are merged into place, reading each run front to back.
+     *
+     * @param out     the file to write to
+     * @param pieces  the pieces to write the keys of
+     * @param dir     the direction of the sides to write the keys of
+     * @param base    the offset of the key array
+     * @param scratch the offset of unused space with room for the key array
+     */
+    private void writeKeys(MappedFile out, Piece[] pieces, Direction dir, long base,
+                           long scratch) {
+        final int n = pieces.length;
+        final int chunk = Math.min(n, sortChunk);
+        final long[] keys = new long[chunk];
+        final int[] records = new int[chunk];
+        final long[] keyBuffer = new long[chunk];
+        final int[] recordBuffer = new int[chunk];
+        final long runs = n <= chunk ? base : scratch;
+        for (int start = 0; start < n; start += chunk) {
+            final int length = Math.min(chunk, n - start);
+            for (int i = 0; i < length; i++) {
+                keys[i] = pieces[start + i].getSide(dir).fingerprint();
+                records[i] = start + i;
+            }
+            sortKeys(keys, records, keyBuffer, recordBuffer, length);
+            for (int i = 0; i < length; i++) {
+                putKey(out, runs + (long) (start + i) * KEY_BYTES, keys[i], records[i]);
+            }
+        }
+        if (n > chunk) {
+            mergeRuns(out, scratch, n, chunk, base);
+        }
+    }
+
+    private static void putKey(MappedFile out, long offset, long key, int record) {
+        out.putLong(offset, key);
+        out.putInt(offset + Long.BYTES, record);
+    }
+
+    /**
+     * Sorts keys by fingerprint with a bottom-up merge sort, keeping each record with its key.
+     *
+     * @param keys         the keys to sort
+     * @param records      the record of each key
+     * @param keyBuffer    room to merge keys into, at least as long as the keys
+     * @param recordBuffer room to merge records into, at least as long as the keys
+     * @param length       the number of keys
+     */
+    private static void sortKeys(long[] keys, int[] records, long[] keyBuffer, int[] recordBuffer,
+                                 int length) {
+        long[] fromKeys = keys;
+        int[] fromRecords = records;
+        long[] toKeys = keyBuffer;
+        int[] toRecords = recordBuffer;
+        for (int width = 1; width < length; width *= 2) {
+            for (int low = 0; low < length; low += 2 * width) {
+                final int mid = Math.min(low + width, length);
+                final int high = Math.min(low + 2 * width, length);
+                int i = low;
+                int j = mid;
+                for (int k = low; k < high; k++) {
+                    final boolean left = j >= high || (i < mid && fromKeys[i] <= fromKeys[j]);
+                    toKeys[k] = left ? fromKeys[i] : fromKeys[j];
+                    toRecords[k] = left ? fromRecords[i++] : fromRecords[j++];
+                }
+            }
+            final long[] swapKeys = fromKeys;
+            final int[] swapRecords = fromRecords;
+            fromKeys = toKeys;
+            fromRecords = toRecords;
+            toKeys = swapKeys;
+            toRecords = swapRecords;
+        }
+        if (fromKeys != keys) {
+            System.arraycopy(fromKeys, 0, keys, 0, length);
+            System.arraycopy(fromRecords, 0, records, 0, length);
+        }
+    }
+
+    /**
+     * Merges sorted runs of keys into one sorted key array. The first key of each run is kept in
+     * a binary heap, so each key takes a logarithmic number of comparisons in the amount of runs.
+     *
+     * @param out   the file that holds the runs
+     * @param runs  the offset of the runs, which are back to back
+     * @param n     the total amount of keys
+     * @param chunk the amount of keys in each run, except the last, which may have fewer
+     * @param base  the offset to write the merged keys at
+     */
+    private static void mergeRuns(MappedFile out, long runs, int n, int chunk, long base) {
+        final int runCount = (n + chunk - 1) / chunk;
+        final int[] next = new int[runCount]; // Index of the next key of each run
+        final int[] heap = new int[runCount]; // Runs, ordered by their next key
+        final long[] heads = new long[runCount];
+        for (int run = 0; run < runCount; run++) {
+            next[run] = run * chunk;
+            heads[run] = out.getLong(runs + (long) next[run] * KEY_BYTES);
+            heap[run] = run;
+        }
+        int heapSize = runCount;
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heads, i, heapSize);
+        }
+
+        for (int k = 0; k < n; k++) {
+            final int run = heap[0];
+            final long offset = runs + (long) next[run] * KEY_BYTES;
+            putKey(out, base + (long) k * KEY_BYTES, heads[run],
+                   out.getInt(offset + Long.BYTES));
+            if (++next[run] < Math.min((run + 1) * chunk, n)) {
+                heads[run] = out.getLong(offset + KEY_BYTES);
+            } else {
+                heap[0] = heap[--heapSize]; // This run is used up
+            }
+            siftDown(heap, heads, 0, heapSize);
+        }
+    }
+
+    private static void siftDown(int[] heap, long[] heads, int i, int size) {
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heads[heap[child + 1]] < heads[heap[child]]) {
+                child++;
+            }
+            if (heads[heap[i]] <= heads[heap[child]]) {
+                return;
+            }
+            final int run = heap[i];
+            heap[i] = heap[child];
+            heap[child] = run;
+            i = child;
+        }
+    }
+
+    private static long sideBytes(Side side) {
+        final Side full = side.fullResolution();
+        final int sourcePoints = full != side ? full.pointCount() : 0;
+        return SIDE_HEADER_BYTES + (long) (side.pointCount() + sourcePoints) * POINT_BYTES;
+    }
+
+    /**
+     * Writes a side, and the full-resolution side it was simplified from, if it was.
+     *
+     * @param out    the file to write to
+     * @param offset the offset to write the side at
+     * @param side   the side to write
+     * @return the offset just past the side
+     */
+    private static long writeSide(MappedFile out, long offset, Side side) {
+        final Side full = side.fullResolution();
+        out.putInt(offset, side.pointCount());
+        out.putInt(offset + Integer.BYTES, full != side ? full.pointCount() : 0);
+        offset = writePoints(out, offset + SIDE_HEADER_BYTES, side);
+        return full != side ? writePoints(out, offset, full) : offset;
+    }
+
+    private static long writePoints(MappedFile out, long offset, Side side) {
+        for (int i = 0; i < side.pointCount(); i++) {
+            out.putDouble(offset, side.x(i));
+            out.putDouble(offset + Double.BYTES, side.y(i));
+            offset += POINT_BYTES;
+        }
+        return offset;
+    }
+
+    private Side readSide(long offset) {
+        final int pointCount = mapped.getInt(offset);
+        final int sourcePoints = mapped.getInt(offset + Integer.BYTES);
+        offset += SIDE_HEADER_BYTES;
+        final double[] coords = readPoints(offset, pointCount);
+        final SimpleSide full = sourcePoints == 0 ? null : SimpleSide.fromCoordinates(
+            readPoints(offset + (long) pointCount * POINT_BYTES, sourcePoints));
+        return SimpleSide.fromCoordinates(coords, full);
+    }
+
+    private double[] readPoints(long offset, int pointCount) {
+        final double[] coords = new double[pointCount * 2];
+        for (int i = 0; i < coords.length; i++) {
+            coords[i] = mapped.getDouble(offset + (long) i * Double.BYTES);
+        }
+        return coords;
+    }
+
+    /**
+     * Finds the first key in the given direction's array that is at least the given fingerprint.
+     *
+     * @param dir         the direction of the key array
+     * @param fingerprint the fingerprint to look for
+     * @return the index of the first key that isn't less than the fingerprint, which is {@code
+     * count} if they all are
+     */
+    private int lowerBound(Direction dir, long fingerprint) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (keyAt(dir, mid) < fingerprint) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the piece that a record was written from, or rebuilds it if this list has no way to get
+     * the piece itself.
+     *
+     * @param record the index of the record
+     * @return the piece
+     */
+    private Piece piece(int record) {
+        if (store != null) {
+            return store.view(record);
+        }
+        final Piece.Builder builder = new Piece.Builder();
+        for (Direction dir : Direction.values()) {
+            builder.setSide(readSide(mapped.getLong(recordOffset(record)
+                                                    + dir.ordinal() * Long.BYTES)), dir);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Finds the record of a piece that is in this list. A rebuilt piece can't be told apart from
+     * any other piece with the same sides, so without the pieces themselves, this finds the first
+     * record with the same sides in some orientation.
+     *
+     * @param p the piece to find the record of (non-null)
+     * @return the index of the piece's record, or -1 if it has none that hasn't been removed
+     */
+    private int recordOf(Piece p) {
+        if (p.sideNull(Direction.NORTH)) {
+            return -1; // Only probes have null sides
+        }
+        // The piece's north side was in one of the directions when it was written
+        final long fingerprint = p.getSide(Direction.NORTH).fingerprint();
+        for (Direction dir : Direction.values()) {
+            for (int i = lowerBound(dir, fingerprint); i < count && keyAt(dir, i) == fingerprint;
+                 i++) {
+                final int record = recordAt(dir, i);
+                if (!removed.get(record)
+                    && (store != null ? store.view(record) == p
+                        : HashPieceList.turnsToMatch(p, piece(record)) >= 0)) {
+                    return record;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a piece to this list. Adding a piece that is already in the list has no effect. Since
+     * the file never changes once it is written, the piece is kept on the heap.
+     *
+     * @param p the piece to be added
+     */
+    @Override
+    public void add(Piece p) {
+        Objects.requireNonNull(p);
+        if (recordOf(p) < 0) {
+            overflow.add(p);
+        }
+    }
+
+    /**
+     * Adds all pieces in the given array. If this list is empty and hasn't written its file yet,
+     * the pieces are written to it, unless it already holds them. Otherwise, they are kept on the
+     * heap.
+     *
+     * @param pieces the pieces to be added (non-null, does not contain null)
+     * @throws UncheckedIOException if the file can't be written
+     */
+    @Override
+    public void addAll(@NotNull Piece[] pieces) {
+        Objects.requireNonNull(pieces);
+        if (mapped != null || !overflow.isEmpty()) {
+            for (Piece p : pieces) {
+                add(p);
+            }
+            return;
+        }
+        for (Piece p : pieces) {
+            Objects.requireNonNull(p);
+        }
+        try {
+            if (!reuse(pieces)) {
+                write(pieces);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't write " + file, e);
+        }
+    }
+
+    @Override
+    public boolean remove(Piece p) {
+        if (p == null) {
+            return false;
+        }
+        if (overflow.remove(p)) {
+            return true;
+        }
+        final int record = recordOf(p);
+        if (record < 0) {
+            return false;
+        }
+        removed.set(record);
+        removedCount++;
+        getIndex = -1;
+        return true;
+    }
+
+    /**
+     * Gets the store that holds the pieces in this list.
+     *
+     * @return the store
+     * @throws IllegalStateException if this list rebuilds its pieces from the file instead
+     */
+    @Override
+    public PieceStore getStore() {
+        if (store == null) {
+            throw new IllegalStateException("MappedPieceList rebuilds its pieces, so has no store");
+        }
+        return store;
+    }
+
+    /**
+     * Adds the piece with the given handle to this list. A piece with a record in the file that
+     * was removed gets its record back, rather than being kept on the heap.
+     *
+     * @param handle the handle of the piece, which is its record if it has one
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     * @throws IllegalStateException     if this list has no store
+     */
+    @Override
+    public void addHandle(int handle) {
+        final Piece p = getStore().view(handle);
+        if (handle < count && removed.get(handle)) {
+            overflow.remove(p); // In case it was added back by piece
+            removed.clear(handle);
+            removedCount--;
+            getIndex = -1;
+        } else if (handle >= count) {
+            add(p);
+        }
+    }
+
+    @Override
+    public boolean removeHandle(int handle) {
+        final Piece p = getStore().view(handle);
+        if (handle < count && !removed.get(handle)) {
+            removed.set(handle);
+            removedCount++;
+            getIndex = -1;
+            return true;
+        }
+        return overflow.remove(p);
+    }
+
+    @Override
+    public void clear() {
+        removed.set(0, count);
+        removedCount = count;
+        overflow.clear();
+        getIndex = -1;
+    }
+
+    /**
+     * Gets the piece at the given index. Pieces are in the order they were written in, whatever
+     * the direction, followed by the pieces added after that. Going through the pieces in order
+     * takes constant time per piece.
+     *
+     * @param dir the direction of the internal list to be indexed (non-null)
+     * @param i   the index of the item to be gotten
+     * @return the piece at the given index
+     * @throws IndexOutOfBoundsException if {@code i} is out of the bounds of this list
+     */
+    @Override
+    public Piece get(@NotNull Direction dir, int i) {
+        Objects.requireNonNull(dir);
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("i is out of bounds");
+        }
+        final int mappedSize = count - removedCount;
+        if (i >= mappedSize) {
+            return overflow.get(dir, i - mappedSize);
+        }
+
+        // Carry on from the last index if we can, rather than counting from the start
+        if (getIndex < 0 || i < getIndex) {
+            getIndex = 0;
+            getRecord = removed.nextClearBit(0);
+        }
+        while (getIndex < i) {
+            getRecord = removed.nextClearBit(getRecord + 1);
+            getIndex++;
+        }
+        return piece(getRecord);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public int size() {
+        return count - removedCount + overflow.size();
+    }
+
+    @Override
+    public Piece find(@NotNull Piece p) {
+        Objects.requireNonNull(p);
+        final Direction lookupDir = p.lookupDirection();
+        final long[] probeFingerprints = p.getSide(lookupDir).probeFingerprints();
+        if (probeFingerprints == null) {
+            // Too ambiguous to probe for, so check every record
+            for (int record = removed.nextClearBit(0); record < count;
+                 record = removed.nextClearBit(record + 1)) {
+                final Piece p2 = piece(record);
+                if (matches(p, p2)) {
+                    return p2;
+                }
+            }
+            return overflow.find(p);
+        }
+
+        for (long fingerprint : probeFingerprints) {
+            for (int i = lowerBound(lookupDir, fingerprint);
+                 i < count && keyAt(lookupDir, i) == fingerprint; i++) {
+                final int record = recordAt(lookupDir, i);
+                if (!removed.get(record)) {
+                    final Piece p2 = piece(record);
+                    if (matches(p, p2)) {
+                        return p2;
+                    }
+                }
+            }
+        }
+        return overflow.find(p);
+    }
+
+    private static boolean matches(Piece probe, Piece p) {
+        return probe.canBeType(p.getPieceType()) && probe.maybeEquals(p);
+    }
+
+    /**
+     * Finds a piece that matches the given piece in any orientation, by looking up one of its sides
+     * in the key arrays for all four directions, and rotates it to match. Pieces rebuilt from the
+     * file are new each time, so only the returned piece is rotated.
+     *
+     * @param p the piece to be found (non-null)
+     * @return the matching piece, rotated to match, or {@code null} if it isn't found
+     * @throws NullPointerException if p is {@code null}
+     */
+    @Override
+    public Piece findRotated(@NotNull Piece p) {
+        Objects.requireNonNull(p);
+        final Direction lookupDir = p.lookupDirection();
+        final long[] probeFingerprints = p.getSide(lookupDir).probeFingerprints();
+        if (probeFingerprints == null) {
+            return StoredPieceList.super.findRotated(p); // Too ambiguous to probe for
+        }
+
+        for (Direction dir : Direction.values()) {
+            for (long fingerprint : probeFingerprints) {
+                for (int i = lowerBound(dir, fingerprint);
+                     i < count && keyAt(dir, i) == fingerprint; i++) {
+                    final int record = recordAt(dir, i);
+                    if (removed.get(record)) {
+                        continue;
+                    }
+                    final Piece p2 = piece(record);
+                    if (p.canBeType(p2.getPieceType())) {
+                        final int turns = HashPieceList.turnsToMatch(p, p2);
+                        if (turns >= 0) {
+                            return p2.rotate(Direction.NORTH, Direction.values()[turns]);
+                        }
+                    }
+                }
+            }
+        }
+        return overflow.findRotated(p);
+    }
+
+    /**
+     * Gets a cursor over every piece that could match the given probe, from among the pieces whose
+     * side in the given direction has a fingerprint that the probe's side could have. If the side
+     * is too ambiguous to probe for, every piece in the list is checked.
+     *
+     * @param probe the piece to match (non-null), which may have {@code null} sides
+     * @param dir   the direction to look the probe up by (non-null)
+     * @return a cursor over the candidates, with the count of them known up front
+     * @throws IllegalArgumentException if the probe's side in direction {@code dir} is {@code null}
+     */
+    @Override
+    public PieceCursor candidates(@NotNull Piece probe, @NotNull Direction dir) {
+        Objects.requireNonNull(probe);
+        Objects.requireNonNull(dir);
+        if (probe.sideNull(dir)) {
+            throw new IllegalArgumentException("The probe has no side to look up in " + dir);
+        }
+
+        cursor.clear();
+        final long[] probeFingerprints = probe.getSide(dir).probeFingerprints();
+        if (probeFingerprints == null) {
+            for (int record = removed.nextClearBit(0); record < count;
+                 record = removed.nextClearBit(record + 1)) {
+                addIfMatches(probe, record);
+            }
+        } else {
+            for (long fingerprint : probeFingerprints) {
+                for (int i = lowerBound(dir, fingerprint);
+                     i < count && keyAt(dir, i) == fingerprint; i++) {
+                    final int record = recordAt(dir, i);
+                    if (!removed.get(record)) {
+                        addIfMatches(probe, record);
+                    }
+                }
+            }
+        }
+
+        final PieceCursor overflowCursor = overflow.candidates(probe, dir);
+        while (overflowCursor.hasNext()) {
+            cursor.add(overflowCursor.next());
+        }
+        return cursor;
+    }
+
+    private void addIfMatches(Piece probe, int record) {
+        final Piece p = piece(record);
+        if (matches(probe, p)) {
+            cursor.add(p);
+        }
+    }
+
+    @Override
+    public PieceList sublistByType(PieceType pieceType) {
+        throw new IllegalStateException("MappedPieceList does not support sub-listing by type!");
+    }
+}
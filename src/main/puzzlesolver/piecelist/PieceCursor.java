@@ -0,0 +1,36 @@
+package puzzlesolver.piecelist;
+
+import java.util.NoSuchElementException;
+
+import puzzlesolver.Piece;
+
+/**
+ * A cursor over the pieces in a {@link PieceList} that could match a probe, from {@link
+ * PieceList#candidates}. Lists reuse their cursor between calls rather than making a new one, so a
+ * cursor is only valid until the next call to {@link PieceList#candidates} on the same list, or
+ * until the list is changed.
+ */
+public interface PieceCursor {
+
+    /**
+     * Gets how many pieces this cursor goes over in total, including any already passed.
+     *
+     * @return the number of candidates
+     */
+    int count();
+
+    /**
+     * Are there any more candidates?
+     *
+     * @return true if {@link #next} has another piece to return, false otherwise
+     */
+    boolean hasNext();
+
+    /**
+     * Gets the next candidate.
+     *
+     * @return the next piece that could match the probe
+     * @throws NoSuchElementException if there are no more candidates
+     */
+    Piece next();
+}
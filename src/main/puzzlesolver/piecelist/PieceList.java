@@ -75,6 +75,42 @@ public interface PieceList {
      */
     Piece find(@NotNull Piece p);
 
+    /**
+     * Finds a piece that matches the given piece in any orientation, and rotates it so that it
+     * matches the given piece as it is. The given piece is left as it was. By default, this looks
+     * for the given piece in each of its rotations with {@link #find}.
+     *
+     * @param p the piece to be found (non-null)
+     * @return the matching piece, rotated to match, or {@code null} if it isn't found
+     * @throws NullPointerException if p is {@code null}
+     */
+    default Piece findRotated(@NotNull Piece p) {
+        Piece foundPiece = find(p);
+        int rotations;
+        for (rotations = 0; foundPiece == null && rotations < Direction.values().length - 1;
+             rotations++) {
+            p.rotate(Direction.NORTH, Direction.EAST); // If no matches were found, rotate once
+            foundPiece = find(p); // Try again
+        }
+        p.rotate(Direction.values()[rotations], Direction.NORTH); // Put it back how it was
+        if (foundPiece != null) {
+            foundPiece.rotate(Direction.values()[rotations], Direction.NORTH); // Rotate it to match
+        }
+        return foundPiece;
+    }
+
+    /**
+     * Gets a cursor over every piece that could match the given probe, from among the pieces whose
+     * side in the given direction is equal to the probe's. The cursor is this list's own, so it
+     * doesn't allocate, and it is only valid until the next call or until the list is changed.
+     *
+     * @param probe the piece to match (non-null), which may have {@code null} sides
+     * @param dir   the direction to look the probe up by (non-null)
+     * @return a cursor over the candidates, with the count of them known up front
+     * @throws IllegalArgumentException if the probe's side in direction {@code dir} is {@code null}
+     */
+    PieceCursor candidates(@NotNull Piece probe, @NotNull Direction dir);
+
     /**
      * Get a sorted list of all pieces in this list that are of the given type.
      *
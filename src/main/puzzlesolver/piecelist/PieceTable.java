@@ -0,0 +1,144 @@
+package puzzlesolver.piecelist;
+
+import java.util.Arrays;
+
+import puzzlesolver.Piece;
+
+/**
+ * A {@link FingerprintTable} for lists that hold pieces themselves rather than handles into a
+ * {@link puzzlesolver.PieceStore}. Each piece that is filed gets a slot of its own in an array, and
+ * the table holds the index of that slot. Slots are reused once their piece is removed. Lookups
+ * work like those of a {@link FingerprintTable}:
+ *
+ * <pre>
+ * for (int slot = table.first(key); slot >= 0; slot = table.next(key, slot)) {
+ *     Piece piece = table.get(slot);
+ * }
+ * </pre>
+ *
+ * Removing pieces invalidates any cursor in progress.
+ */
+final class PieceTable {
+
+  /*
+   * INVARIANTS
+   *
+   * table
+   * - Non-null, holds exactly the indices in [0, used) that aren't in free[0, freeCount)
+   *
+   * pieces
+   * - Non-null, pieces[i] is the piece filed under index i if the table holds i, otherwise null
+   *
+   * free
+   * - Non-null, free[0, freeCount) are the distinct indices below used that the table doesn't hold
+   */
+
+    private final FingerprintTable table;
+    private Piece[] pieces;
+    private int used;
+    private int[] free = new int[0];
+    private int freeCount;
+
+    /**
+     * Constructs a new {@code PieceTable} with room for the given amount of pieces.
+     *
+     * @param expectedSize the amount of pieces expected to be added
+     */
+    PieceTable(int expectedSize) {
+        table = new FingerprintTable(expectedSize);
+        pieces = new Piece[Math.max(expectedSize, 1)];
+    }
+
+    /**
+     * Adds the given piece under the given key.
+     *
+     * @param key   the fingerprint to file the piece under
+     * @param piece the piece to be added (non-null)
+     */
+    void put(long key, Piece piece) {
+        final int index;
+        if (freeCount > 0) {
+            index = free[--freeCount];
+        } else {
+            if (used == pieces.length) {
+                pieces = Arrays.copyOf(pieces, pieces.length * 2);
+            }
+            index = used++;
+        }
+        pieces[index] = piece;
+        table.put(key, index);
+    }
+
+    /**
+     * Removes the given piece from under the given key. Pieces are matched by identity.
+     *
+     * @param key   the fingerprint the piece was filed under
+     * @param piece the piece to be removed
+     * @return true if the piece was removed, false if it wasn't filed under that key
+     */
+    boolean remove(long key, Piece piece) {
+        for (int slot = table.first(key); slot >= 0; slot = table.next(key, slot)) {
+            final int index = table.get(slot);
+            if (pieces[index] == piece) {
+                table.remove(key, index);
+                pieces[index] = null;
+                if (freeCount == free.length) {
+                    free = Arrays.copyOf(free, Math.max(16, free.length * 2));
+                }
+                free[freeCount++] = index;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the first slot that holds a piece with the given key.
+     *
+     * @param key the fingerprint to look up
+     * @return the slot index, or -1 if there are no pieces with that key
+     */
+    int first(long key) {
+        return table.first(key);
+    }
+
+    /**
+     * Gets the next slot after the given one that holds a piece with the given key.
+     *
+     * @param key  the fingerprint to look up
+     * @param slot a slot returned by {@link #first} or {@link #next} for the same key
+     * @return the slot index, or -1 if there are no more pieces with that key
+     */
+    int next(long key, int slot) {
+        return table.next(key, slot);
+    }
+
+    /**
+     * Gets the piece in the given slot.
+     *
+     * @param slot a slot returned by {@link #first} or {@link #next}
+     * @return the piece in that slot
+     */
+    Piece get(int slot) {
+        return pieces[table.get(slot)];
+    }
+
+    /**
+     * Gets the amount of pieces in this table.
+     *
+     * @return the amount of pieces
+     */
+    int size() {
+        return table.size();
+    }
+
+    /**
+     * Removes all pieces from this table.
+     */
+    void clear() {
+        table.clear();
+        Arrays.fill(pieces, 0, used, null);
+        used = 0;
+        freeCount = 0;
+    }
+}
@@ -2,10 +2,12 @@ package puzzlesolver.piecelist;
 
 import com.sun.istack.internal.NotNull;
 
-import java.util.Arrays;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.function.BiFunction;
 
 import puzzlesolver.Piece;
+import puzzlesolver.PieceStore;
 import puzzlesolver.enums.Direction;
 import puzzlesolver.enums.PieceType;
 
@@ -14,36 +16,165 @@ import puzzlesolver.enums.PieceType;
  * sorted into one of these PieceLists by their piece types, with one type per list. Access indices
  * start at 0 (inclusive) and end at the sum of all internal piece lists (exclusive). Indices
  * continue through each internal list in the order that piece types appear in {@link PieceType}.
+ * The index where each type's list starts is kept up to date, so {@link #size}, {@link #sizeOf}
+ * and {@link #get} take constant time. The lists all keep their pieces in this list's {@link
+ * PieceStore}, so handles are passed straight through to the list for their type.
  */
 public class PieceTypePieceList extends SimplePieceList {
 
-    private PieceList[] pieceLists = new PieceList[PieceType.values().length];
+  /*
+   * INVARIANTS
+   *
+   * pieceLists
+   * - Non-null, contents are non-null
+   * - Only changed through this list, not through sublistByType
+   *
+   * offsets
+   * - Non-null, one longer than pieceLists
+   * - offsets[t] is the sum of the sizes of pieceLists[0, t), so the last element is the size of
+   *   this list
+   */
+
+    private final StoredPieceList[] pieceLists =
+        new StoredPieceList[PieceType.values().length];
+    private final int[] offsets = new int[PieceType.values().length + 1];
+    private final TypeCursor cursor = new TypeCursor();
 
     public PieceTypePieceList() {
         this(10);
     }
 
     public PieceTypePieceList(int initialCapacity) {
+        this(new PieceStore(Math.max(initialCapacity, 0)), initialCapacity);
+    }
+
+    /**
+     * Constructs a new {@code PieceTypePieceList} for pieces in the given store, which keeps the
+     * pieces of each type in a {@link SimplePieceList}.
+     *
+     * @param store           the store that the pieces are kept in (non-null)
+     * @param initialCapacity the initial capacity of the whole list
+     */
+    public PieceTypePieceList(@NotNull PieceStore store, int initialCapacity) {
+        this(store, initialCapacity, SimplePieceList::new);
+    }
+
+    /**
+     * Constructs a new {@code PieceTypePieceList} for pieces in the given store, which keeps the
+     * pieces of each type in a list from the given factory.
+     *
+     * @param store           the store that the pieces are kept in (non-null)
+     * @param initialCapacity the initial capacity of the whole list
+     * @param listFactory     makes the list for each type, given the store and that list's initial
+     *                        capacity. Each list must keep its pieces in the given store.
+     * @throws IllegalArgumentException if a list keeps its pieces in another store
+     */
+    public PieceTypePieceList(@NotNull PieceStore store, int initialCapacity,
+                              @NotNull BiFunction<PieceStore, Integer, StoredPieceList>
+                                  listFactory) {
+        super(store, 0);
+        Objects.requireNonNull(listFactory);
         final int listSize = initialCapacity / PieceType.values().length;
         for (PieceType pieceType : PieceType.values()) {
-            pieceLists[pieceType.ordinal()] = new SimplePieceList(listSize);
+            final StoredPieceList pieceList = listFactory.apply(store, listSize);
+            if (pieceList.getStore() != store) {
+                throw new IllegalArgumentException("Lists must keep pieces in the given store");
+            }
+            pieceLists[pieceType.ordinal()] = pieceList;
         }
     }
 
+    /**
+     * Constructs a new {@code PieceTypePieceList} holding the given pieces, which are split up by
+     * type and added in bulk like with {@link #addAll}.
+     *
+     * @param pieces the pieces to be added (non-null, does not contain null)
+     * @return the new list
+     */
+    public static PieceTypePieceList of(@NotNull Piece[] pieces) {
+        final PieceTypePieceList pieceList = new PieceTypePieceList(pieces.length);
+        pieceList.addAll(pieces);
+        return pieceList;
+    }
+
     @Override
     public void add(Piece p) {
         Objects.requireNonNull(p);
         pieceLists[p.getPieceType().ordinal()].add(p);
+        updateOffsets();
+    }
+
+    /**
+     * Adds all pieces in the given array. The pieces are split up by type in one pass, and then
+     * each type's pieces are added to its list in bulk.
+     *
+     * @param pieces the pieces to be added (non-null, does not contain null)
+     */
+    @Override
+    public void addAll(@NotNull Piece[] pieces) {
+        Objects.requireNonNull(pieces);
+        final int[] counts = new int[pieceLists.length];
+        for (Piece p : pieces) {
+            counts[p.getPieceType().ordinal()]++;
+        }
+        final Piece[][] piecesByType = new Piece[pieceLists.length][];
+        for (int i = 0; i < pieceLists.length; i++) {
+            piecesByType[i] = new Piece[counts[i]];
+            counts[i] = 0; // Reuse as the next index to fill
+        }
+        for (Piece p : pieces) {
+            final int type = p.getPieceType().ordinal();
+            piecesByType[type][counts[type]++] = p;
+        }
+        for (int i = 0; i < pieceLists.length; i++) {
+            pieceLists[i].addAll(piecesByType[i]);
+        }
+        updateOffsets();
     }
 
     @Override
     public boolean remove(Piece p) {
-        for (PieceList pieceList : pieceLists) {
-            if (pieceList.remove(p)) {
-                return true;
-            }
+        // A piece can only be in the list for its own type
+        if (p == null || !pieceLists[p.getPieceType().ordinal()].remove(p)) {
+            return false;
         }
-        return false;
+        updateOffsets();
+        return true;
+    }
+
+    @Override
+    public void addHandle(int handle) {
+        pieceLists[typeOf(handle)].addHandle(handle);
+        updateOffsets();
+    }
+
+    /**
+     * Adds the pieces with the given range of handles, split up by type like with {@link
+     * #addAll}.
+     *
+     * @param from the first handle to be added, inclusive
+     * @param to   the last handle to be added, exclusive
+     */
+    @Override
+    public void addHandles(int from, int to) {
+        final Piece[] pieces = new Piece[Math.max(to - from, 0)];
+        for (int i = 0; i < pieces.length; i++) {
+            pieces[i] = getStore().view(from + i);
+        }
+        addAll(pieces);
+    }
+
+    @Override
+    public boolean removeHandle(int handle) {
+        if (!pieceLists[typeOf(handle)].removeHandle(handle)) {
+            return false;
+        }
+        updateOffsets();
+        return true;
+    }
+
+    private int typeOf(int handle) {
+        return getStore().view(handle).getPieceType().ordinal();
     }
 
     @Override
@@ -51,22 +182,55 @@ public class PieceTypePieceList extends SimplePieceList {
         for (PieceList pieceList : pieceLists) {
             pieceList.clear();
         }
+        updateOffsets();
+    }
+
+    /**
+     * Recalculates where each type's list starts, from the sizes of the lists. There are only a
+     * few types, and each list knows its own size, so this takes constant time.
+     */
+    private void updateOffsets() {
+        for (int i = 0; i < pieceLists.length; i++) {
+            offsets[i + 1] = offsets[i] + pieceLists[i].size();
+        }
     }
 
+    /**
+     * Gets the piece at the given index, counting through the list of each type in turn. The piece
+     * is the one at that index within its type's list, if that list is sorted by the given
+     * direction.
+     *
+     * @param dir the direction of the internal lists to be indexed (non-null)
+     * @param i   the index of the item to be gotten
+     * @return the piece at the given index
+     * @throws IndexOutOfBoundsException if {@code i} is out of the bounds of this list
+     */
     @Override
     public Piece get(@NotNull Direction dir, int i) {
-        for (PieceType pieceType : PieceType.values()) {
-            Piece p;
-            if ((p = pieceLists[pieceType.ordinal()].get(dir, i)) != null) {
-                return p;
-            }
+        Objects.requireNonNull(dir);
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("i is out of bounds");
         }
-        return null;
+        int type = 0;
+        while (i >= offsets[type + 1]) {
+            type++;
+        }
+        return pieceLists[type].get(dir, i - offsets[type]);
     }
 
     @Override
     public int size() {
-        return Arrays.stream(pieceLists).mapToInt(PieceList::size).sum();
+        return offsets[pieceLists.length];
+    }
+
+    /**
+     * Gets how many pieces of the given type are in this list.
+     *
+     * @param pieceType the type to count (non-null)
+     * @return the size of the list for that type
+     */
+    public int sizeOf(@NotNull PieceType pieceType) {
+        return offsets[pieceType.ordinal() + 1] - offsets[pieceType.ordinal()];
     }
 
     @Override
@@ -80,6 +244,133 @@ public class PieceTypePieceList extends SimplePieceList {
         return null;
     }
 
+    @Override
+    public Piece findRotated(@NotNull Piece p) {
+        for (PieceType pieceType : p.getPieceTypes()) {
+            Piece foundPiece;
+            if ((foundPiece = pieceLists[pieceType.ordinal()].findRotated(p)) != null) {
+                return foundPiece;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int findHandle(@NotNull Piece p) {
+        for (PieceType pieceType : p.getPieceTypes()) {
+            final int handle = pieceLists[pieceType.ordinal()].findHandle(p);
+            if (handle != PieceStore.NO_PIECE) {
+                return handle;
+            }
+        }
+        return PieceStore.NO_PIECE;
+    }
+
+    @Override
+    public int findRotatedHandle(@NotNull Piece p) {
+        for (PieceType pieceType : p.getPieceTypes()) {
+            final int handle = pieceLists[pieceType.ordinal()].findRotatedHandle(p);
+            if (handle != PieceStore.NO_PIECE) {
+                return handle;
+            }
+        }
+        return PieceStore.NO_PIECE;
+    }
+
+    /**
+     * Gets a cursor over every piece that could match the given probe, going through the list of
+     * each type that the probe could be in turn.
+     *
+     * @param probe the piece to match (non-null), which may have {@code null} sides
+     * @param dir   the direction to look the probe up by (non-null)
+     * @return a cursor over the candidates, with the count of them known up front
+     * @throws IllegalArgumentException if the probe's side in direction {@code dir} is {@code null}
+     */
+    @Override
+    public PieceCursor candidates(@NotNull Piece probe, @NotNull Direction dir) {
+        Objects.requireNonNull(probe);
+        Objects.requireNonNull(dir);
+        if (probe.sideNull(dir)) {
+            throw new IllegalArgumentException("The probe has no side to look up in " + dir);
+        }
+        cursor.reset(probe, dir);
+        return cursor;
+    }
+
+    /**
+     * Counts the candidates in the list of each type that the probe could be, without going
+     * through the cursors of those lists.
+     */
+    @Override
+    public int countCandidates(@NotNull Piece probe, @NotNull Direction dir) {
+        Objects.requireNonNull(probe);
+        Objects.requireNonNull(dir);
+        if (probe.sideNull(dir)) {
+            throw new IllegalArgumentException("The probe has no side to look up in " + dir);
+        }
+        int count = 0;
+        for (PieceType pieceType : probe.getPieceTypes()) {
+            count += pieceLists[pieceType.ordinal()].countCandidates(probe, dir);
+        }
+        return count;
+    }
+
+    /**
+     * A cursor that chains together the cursors of the lists for each type that the probe could
+     * be. Each of those lists keeps its own cursor, so only one is in use at a time, and the next
+     * one is only asked for once the one before it runs out. Counting goes through {@link
+     * #countCandidates} instead, so it never disturbs them.
+     */
+    private class TypeCursor implements PieceCursor {
+
+        private Piece probe;
+        private Direction dir;
+        private PieceType[] pieceTypes;
+        private int typeIndex;
+        private PieceCursor current;
+        private int count;
+
+        private void reset(Piece probe, Direction dir) {
+            this.probe = probe;
+            this.dir = dir;
+            pieceTypes = probe.getPieceTypes();
+            typeIndex = 0;
+            current = null;
+            count = -1; // Not counted yet
+        }
+
+        /**
+         * Moves on through the lists until one has a candidate left, or there are no more lists.
+         */
+        private void skip() {
+            while ((current == null || !current.hasNext()) && typeIndex < pieceTypes.length) {
+                current = pieceLists[pieceTypes[typeIndex++].ordinal()].candidates(probe, dir);
+            }
+        }
+
+        @Override
+        public int count() {
+            if (count < 0) {
+                count = countCandidates(probe, dir);
+            }
+            return count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            skip();
+            return current != null && current.hasNext();
+        }
+
+        @Override
+        public Piece next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+
     @Override
     public PieceList sublistByType(PieceType pieceType) {
         Objects.requireNonNull(pieceType);
@@ -2,42 +2,105 @@ package puzzlesolver.piecelist;
 
 import com.sun.istack.internal.NotNull;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
 
 import puzzlesolver.Funcs;
 import puzzlesolver.Piece;
-import puzzlesolver.PieceComparator;
+import puzzlesolver.PieceStore;
 import puzzlesolver.constants.Constants;
 import puzzlesolver.enums.Direction;
 import puzzlesolver.enums.PieceType;
+import puzzlesolver.side.Side;
 
 /**
- * An implementation of {@link PieceList} where pieces are stored 4 times each. 4 internal {@link
- * ArrayList}s store the pieces, each one with identical contents except for order. Each list is
- * sorted by one of the directions in {@link Direction}.
+ * An implementation of {@link PieceList} where pieces are stored 4 times each. 4 internal arrays
+ * store the handles of the pieces in a {@link PieceStore}, each one with identical contents except
+ * for order. Each array is sorted by one of the directions in {@link Direction}, by the side that
+ * each piece had in that direction when it was added to the store, which never changes however the
+ * piece is turned. Each direction also has a {@link FingerprintTable} of the same pieces, keyed by
+ * the fingerprint of that side, which {@link #find} uses to look pieces up without searching the
+ * sorted arrays. Between them, the tables hold every side of every piece, so {@link #findRotated}
+ * finds a piece in any orientation with one lookup in each.
+ *
+ * Removing a piece only marks its handle as removed, in constant time, rather than finding it in
+ * each array and shifting the rest of the array. Its elements stay behind as tombstones, which
+ * still have the piece's sides, so the arrays stay sorted, and tombstones are dropped from all 4
+ * arrays at once after enough of them build up, or before the arrays are indexed by {@link #get}.
+ * Adding a piece back while its tombstones are still there just marks it as in the list again.
  */
-public class SimplePieceList implements PieceList {
+public class SimplePieceList implements StoredPieceList {
 
   /*
    * INVARIANTS
    *
-   * pieceLists
+   * store
    * - Non-null
-   * - Contents are non-null
-   * - All 4 lists always have all the same elements; they only vary in order
-   * - All 4 lists are always sorted using a PieceComparator for that list's corresponding direction
-   * - Contents of all internal lists are non-null
    *
-   * comparators
+   * handleLists
+   * - Non-null, contents are non-null and all the same length, which is at least length
+   * - handleLists[d][0, length) are the handles of the pieces in the list, and the tombstones of
+   *   removed pieces, each once
+   * - All 4 arrays always have all the same handles; they only vary in order
+   * - Each array is sorted by store.addedSide(h, d) of the piece h of each element
+   *
+   * filed
+   * - Non-null
+   * - Set for exactly the handles in handleLists[d][0, length)
+   *
+   * live
    * - Non-null
-   * - Contents are non-null
+   * - Set for exactly the handles of the pieces in the list, which are all filed; the other filed
+   *   handles are tombstones
+   *
+   * sideLists
+   * - Non-null, contents are non-null
+   * - sideLists[d] is a view of the sides that handleLists[d][0, length) is sorted by
+   *
+   * fingerprintTables
+   * - Non-null, contents are non-null
+   * - Each table holds exactly the handles in handleLists, each filed under the fingerprint of
+   *   store.addedSide(h, d) for the table's direction d
+   *
+   * tombstoneCount
+   * - The number of filed handles that aren't live
+   * - At most MAX_TOMBSTONE_RATIO times length
    */
 
-    private final ArrayList<Piece>[] pieceLists;
-    private final PieceComparator[] comparators = new PieceComparator[Constants.NUM_SIDES];
+    /**
+     * Most tombstones there can be per element of the sorted arrays before they are compacted.
+     * Compacting takes linear time, so this has to be a fraction of the list for removal to take
+     * constant time on average.
+     */
+    private static final double MAX_TOMBSTONE_RATIO = 0.25;
+
+    /**
+     * Fewest pieces that {@link #addAll} sorts for all 4 directions at once, rather than one after
+     * the other. Below this, starting the tasks costs more than it saves.
+     */
+    private static final int MIN_PARALLEL_SORT = 1 << 13;
+
+    private static final Comparator<Side> SIDE_ORDER = Comparator.naturalOrder();
+
+    private final PieceStore store;
+    private final int[][] handleLists = new int[Constants.NUM_SIDES][];
+    private final SideList[] sideLists = new SideList[Constants.NUM_SIDES];
+    private int length;
+    private final BitSet filed = new BitSet();
+    private final BitSet live = new BitSet();
+    private int tombstoneCount;
+    private final RangeCursor cursor = new RangeCursor();
+    private final RangeCursor counter = new RangeCursor();
+    private final FingerprintTable[] fingerprintTables =
+        new FingerprintTable[Constants.NUM_SIDES];
 
     /**
      * Constructs a new {@code SimplePieceList} with an initial capacity of ten.
@@ -47,60 +110,372 @@ public class SimplePieceList implements PieceList {
     }
 
     /**
-     * Constructs a new {@code SimplePieceList} with the given initial capacity.
+     * Constructs a new {@code SimplePieceList} with the given initial capacity, which keeps its
+     * pieces in a store of its own.
      *
      * @param initialCapacity the initial capacity of the list (non-negative)
      * @throws IllegalArgumentException if capacity is negative
      */
-    @SuppressWarnings("unchecked")
     public SimplePieceList(int initialCapacity) {
-        pieceLists = new ArrayList[4];
-        for (int i = 0; i < pieceLists.length; i++) {
-            pieceLists[i] = new ArrayList<>(initialCapacity);
-            comparators[i] = new PieceComparator(Direction.values()[i]);
+        this(new PieceStore(Math.max(initialCapacity, 0)), initialCapacity);
+    }
+
+    /**
+     * Constructs a new {@code SimplePieceList} with the given initial capacity, for pieces in the
+     * given store. Pieces added by piece rather than by handle are added to the store if they
+     * aren't in it yet.
+     *
+     * @param store           the store that the pieces are kept in (non-null)
+     * @param initialCapacity the initial capacity of the list (non-negative)
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public SimplePieceList(@NotNull PieceStore store, int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative: " + initialCapacity);
+        }
+        this.store = Objects.requireNonNull(store);
+        for (int i = 0; i < handleLists.length; i++) {
+            handleLists[i] = new int[initialCapacity];
+            sideLists[i] = new SideList(i);
+            fingerprintTables[i] = new FingerprintTable(initialCapacity);
+        }
+    }
+
+    /**
+     * Constructs a new {@code SimplePieceList} holding the given pieces, which are sorted in bulk
+     * like with {@link #addAll}.
+     *
+     * @param pieces the pieces to be added (non-null, does not contain null)
+     * @return the new list
+     */
+    public static SimplePieceList of(@NotNull Piece[] pieces) {
+        final SimplePieceList pieceList = new SimplePieceList(pieces.length);
+        pieceList.addAll(pieces);
+        return pieceList;
+    }
+
+    @Override
+    public PieceStore getStore() {
+        return store;
+    }
+
+    /**
+     * A view of the sides that one of the sorted arrays is sorted by, so that it can be searched
+     * like a sorted list of sides.
+     */
+    private class SideList extends AbstractList<Side> implements RandomAccess {
+
+        private final int listIndex;
+
+        private SideList(int listIndex) {
+            this.listIndex = listIndex;
+        }
+
+        @Override
+        public Side get(int i) {
+            return store.addedSide(handleLists[listIndex][i], Direction.values()[listIndex]);
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+    }
+
+    /**
+     * Gets the handle of the given piece in this list's store, adding it to the store if it isn't
+     * there yet.
+     */
+    private int handleOf(Piece p) {
+        final int handle = store.handleOf(p);
+        return handle != PieceStore.NO_PIECE ? handle : store.add(p);
+    }
+
+    private void checkHandle(int handle) {
+        if (handle < 0 || handle >= store.size()) {
+            throw new IndexOutOfBoundsException(handle + " is not a valid piece handle");
         }
     }
 
     @Override
     public void add(Piece p) {
         Objects.requireNonNull(p);
-        for (int i = 0; i < pieceLists.length; i++) {
-            final int destination = Collections.binarySearch(pieceLists[i], p, comparators[i]);
-            pieceLists[i].add(destination < 0 ? -(destination + 1) : destination, p);
+        insert(handleOf(p));
+    }
+
+    @Override
+    public void addHandle(int handle) {
+        checkHandle(handle);
+        insert(handle);
+    }
+
+    /**
+     * Inserts a piece into each sorted array and fingerprint table. Unlike {@link #add}, this is
+     * never overridden, so {@link #addAll} can fall back on it. A piece that is already in the
+     * list is left as it is, and one whose tombstones are still in the arrays is brought back in
+     * place.
+     *
+     * @param handle the handle of the piece to be inserted
+     */
+    private void insert(int handle) {
+        if (live.get(handle)) {
+            return;
+        }
+        live.set(handle);
+        if (filed.get(handle)) {
+            tombstoneCount--;
+            fileInTables(handle);
+            return;
+        }
+        ensureCapacity(length + 1);
+        for (int i = 0; i < handleLists.length; i++) {
+            final Side side = store.addedSide(handle, Direction.values()[i]);
+            int destination = Collections.binarySearch(sideLists[i], side);
+            destination = destination < 0 ? -(destination + 1) : destination;
+            final int[] handleList = handleLists[i];
+            System.arraycopy(handleList, destination, handleList, destination + 1,
+                             length - destination);
+            handleList[destination] = handle;
+        }
+        filed.set(handle);
+        fileInTables(handle);
+        length++;
+    }
+
+    /**
+     * Files a piece in each fingerprint table, under the sides it was added to the store with.
+     */
+    private void fileInTables(int handle) {
+        for (int i = 0; i < fingerprintTables.length; i++) {
+            fingerprintTables[i].put(
+                store.addedSide(handle, Direction.values()[i]).fingerprint(), handle);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > handleLists[0].length) {
+            final int newLength = Math.max(capacity, Math.max(10, handleLists[0].length * 2));
+            for (int i = 0; i < handleLists.length; i++) {
+                handleLists[i] = Arrays.copyOf(handleLists[i], newLength);
+            }
         }
     }
 
+    /**
+     * Adds all pieces in the given array. Rather than inserting the pieces one at a time, which
+     * shifts the sorted arrays for each one, the pieces are sorted once for each direction and
+     * merged into the arrays in one pass.
+     *
+     * @param pieces the pieces to be added (non-null, does not contain null)
+     */
     @Override
     public void addAll(@NotNull Piece[] pieces) {
         Objects.requireNonNull(pieces);
         for (Piece p : pieces) {
-            add(p);
+            Objects.requireNonNull(p);
         }
+        final int[] handles = new int[pieces.length];
+        for (int i = 0; i < pieces.length; i++) {
+            handles[i] = handleOf(pieces[i]);
+        }
+        insertAll(handles);
+    }
+
+    @Override
+    public void addHandles(int from, int to) {
+        final int[] handles = new int[Math.max(to - from, 0)];
+        for (int i = 0; i < handles.length; i++) {
+            checkHandle(from + i);
+            handles[i] = from + i;
+        }
+        insertAll(handles);
+    }
+
+    /**
+     * Sorts the given pieces for each direction, and merges them into the sorted arrays. Each
+     * direction only reads the store and writes its own array, so big batches are sorted and merged
+     * for all 4 directions in parallel.
+     *
+     * @param handles the handles of the pieces to be added
+     */
+    private void insertAll(int[] handles) {
+        compact(); // So that the merge doesn't have to skip tombstones
+        int added = 0;
+        for (int handle : handles) {
+            if (!live.get(handle)) { // Skip pieces that are already in the list
+                live.set(handle);
+                filed.set(handle);
+                fileInTables(handle);
+                handles[added++] = handle;
+            }
+        }
+        final int[] newHandles = Arrays.copyOf(handles, added);
+
+        ensureCapacity(length + newHandles.length);
+        final IntStream listIndexes = IntStream.range(0, handleLists.length);
+        (newHandles.length >= MIN_PARALLEL_SORT ? listIndexes.parallel() : listIndexes)
+            .forEach(i -> {
+                final int[] sorted = newHandles.clone();
+                sort(sorted, Direction.values()[i]);
+                merge(i, sorted);
+            });
+        length += newHandles.length;
+    }
+
+    /**
+     * Sorts the given handles by the sides their pieces had in the given direction when they were
+     * added to the store. This is a merge sort, which only ever compares neighbouring runs, so
+     * unlike {@link Arrays#sort(Object[], Comparator)}, it doesn't mind that sides within {@link
+     * Constants#COMP_DELTA} of each other compare equal, which isn't quite transitive. The sides
+     * are looked up once, and moved along with their handles, so comparing them never goes through
+     * the store.
+     *
+     * @param handles the handles to be sorted
+     * @param dir     the direction of the sides to sort by
+     */
+    private void sort(int[] handles, Direction dir) {
+        Side[] fromSides = new Side[handles.length];
+        for (int i = 0; i < handles.length; i++) {
+            fromSides[i] = store.addedSide(handles[i], dir);
+        }
+        Side[] toSides = new Side[handles.length];
+        int[] from = handles;
+        int[] to = new int[handles.length];
+        for (int width = 1; width < handles.length; width *= 2) {
+            for (int start = 0; start < handles.length; start += 2 * width) {
+                final int mid = Math.min(start + width, handles.length);
+                final int end = Math.min(start + 2 * width, handles.length);
+                int left = start;
+                int right = mid;
+                for (int k = start; k < end; k++) {
+                    final int next;
+                    if (right >= end
+                        || left < mid && fromSides[left].compareTo(fromSides[right]) <= 0) {
+                        next = left++;
+                    } else {
+                        next = right++;
+                    }
+                    to[k] = from[next];
+                    toSides[k] = fromSides[next];
+                }
+            }
+            final int[] swap = from;
+            from = to;
+            to = swap;
+            final Side[] swapSides = fromSides;
+            fromSides = toSides;
+            toSides = swapSides;
+        }
+        if (from != handles) {
+            System.arraycopy(from, 0, handles, 0, handles.length);
+        }
+    }
+
+    /**
+     * Merges the given pieces into one of the sorted arrays. Pieces that compare equal to pieces
+     * already in the array go after them, like they would have with {@link #add}. The length of
+     * the arrays is left for the caller to update, once all of them are merged.
+     *
+     * @param listIndex the index of the array, which is the ordinal of its direction
+     * @param sorted    the handles to merge in, sorted by their sides in the array's direction
+     */
+    private void merge(int listIndex, int[] sorted) {
+        final Direction dir = Direction.values()[listIndex];
+        final int[] handleList = handleLists[listIndex];
+        final int[] oldHandles = Arrays.copyOf(handleList, length);
+
+        int oldIndex = 0;
+        int index = 0;
+        for (int handle : sorted) {
+            final Side side = store.addedSide(handle, dir);
+            while (oldIndex < oldHandles.length
+                   && store.addedSide(oldHandles[oldIndex], dir).compareTo(side) <= 0) {
+                handleList[index++] = oldHandles[oldIndex++];
+            }
+            handleList[index++] = handle;
+        }
+        System.arraycopy(oldHandles, oldIndex, handleList, index, oldHandles.length - oldIndex);
     }
 
     @Override
     public boolean remove(Piece p) {
-        boolean removed = false;
-        for (ArrayList<Piece> pieceList : pieceLists) {
-            removed = pieceList.remove(p);
+        final int handle = p == null ? PieceStore.NO_PIECE : store.handleOf(p);
+        return handle != PieceStore.NO_PIECE && delete(handle);
+    }
+
+    @Override
+    public boolean removeHandle(int handle) {
+        return delete(handle);
+    }
+
+    /**
+     * Removes a piece from the list and each fingerprint table, leaving its elements in the sorted
+     * arrays behind as tombstones. Unlike {@link #remove} and {@link #removeHandle}, this is never
+     * overridden, so each of them can use it.
+     *
+     * @param handle the handle of the piece to be removed
+     * @return true if the piece was removed, false if it wasn't in the list
+     */
+    private boolean delete(int handle) {
+        if (handle < 0 || !live.get(handle)) {
+            return false;
+        }
+
+        // Leave the piece's elements behind, to keep the arrays sorted
+        live.clear(handle);
+        tombstoneCount++;
+        for (int i = 0; i < fingerprintTables.length; i++) {
+            // Filed under the side it was added with, however it has been turned since
+            fingerprintTables[i].remove(
+                store.addedSide(handle, Direction.values()[i]).fingerprint(), handle);
+        }
+
+        if (tombstoneCount > length * MAX_TOMBSTONE_RATIO) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Drops all tombstones from the sorted arrays.
+     */
+    private void compact() {
+        if (tombstoneCount == 0) {
+            return;
+        }
+        int kept = 0;
+        for (int[] handleList : handleLists) {
+            kept = 0;
+            for (int j = 0; j < length; j++) {
+                if (live.get(handleList[j])) {
+                    handleList[kept++] = handleList[j];
+                }
+            }
         }
-        return removed;
+        filed.and(live);
+        length = kept;
+        tombstoneCount = 0;
     }
 
     @Override
     public void clear() {
-        for (ArrayList<Piece> pieceList : pieceLists) {
-            pieceList.clear();
+        length = 0;
+        filed.clear();
+        live.clear();
+        tombstoneCount = 0;
+        for (FingerprintTable fingerprintTable : fingerprintTables) {
+            fingerprintTable.clear();
         }
     }
 
     @Override
     public Piece get(@NotNull Direction dir, int i) {
         Objects.requireNonNull(dir);
-        if (i < 0 || i >= pieceLists[0].size()) {
+        compact(); // Indices only count the pieces that are left
+        if (i < 0 || i >= length) {
             throw new IndexOutOfBoundsException("i is out of bounds");
         }
-        return pieceLists[dir.ordinal()].get(i);
+        return store.view(handleLists[dir.ordinal()][i]);
     }
 
     @Override
@@ -110,34 +485,224 @@ public class SimplePieceList implements PieceList {
 
     @Override
     public int size() {
-        return pieceLists[0].size();
+        return length - tombstoneCount;
     }
 
     @Override
     public Piece find(@NotNull Piece p) {
+        return viewOf(lookUp(p));
+    }
+
+    private Piece viewOf(int handle) {
+        return handle == PieceStore.NO_PIECE ? null : store.view(handle);
+    }
+
+    @Override
+    public int findHandle(@NotNull Piece p) {
+        return lookUp(p);
+    }
+
+    /**
+     * Finds a piece that matches the given piece, in the fingerprint table for its lookup side.
+     * Unlike {@link #find} and {@link #findHandle}, this is never overridden, so each of them can
+     * use it.
+     *
+     * @param p the piece to be found (non-null)
+     * @return the handle of the matching piece, or {@link PieceStore#NO_PIECE} if it isn't found
+     */
+    private int lookUp(Piece p) {
         Objects.requireNonNull(p);
-        int midIndex;
-        for (Direction dir : Direction.values()) {
-            if (!p.sideNull(dir)) {
-                // Find any piece where two sides compare to 0 (somewhat equal)
-                final int dirOrd = dir.ordinal();
-                midIndex = Collections.binarySearch(pieceLists[dirOrd], p, comparators[dirOrd]);
-                if (midIndex >= 0) { // If that piece was found
-                    final int leftIndex = Funcs.expSearch(pieceLists[dirOrd], comparators[dirOrd],
-                                                          midIndex, true);
-                    final int rightIndex = Funcs.expSearch(pieceLists[dirOrd], comparators[dirOrd],
-                                                           midIndex, false);
-                    for (int i = leftIndex; i <= rightIndex; i++) {
-                        final Piece p2 = pieceLists[dirOrd].get(i);
-                        if (Arrays.binarySearch(p.getPieceTypes(), p2.getPieceType()) >= 0 && p
-                            .maybeEquals(p2)) {
-                            return p2;
-                        }
+
+        // Look up by a non-flat side if there is one, since flat sides are shared by every border
+        // piece and all have the same fingerprint
+        final Direction lookupDir = p.lookupDirection();
+        final Side lookupSide = p.getSide(lookupDir);
+        final long[] fingerprints = lookupSide.probeFingerprints();
+        if (fingerprints == null) {
+            // Too ambiguous to probe for, so search the sorted array instead
+            return findSorted(p, lookupDir);
+        }
+
+        final FingerprintTable fingerprintTable = fingerprintTables[lookupDir.ordinal()];
+        for (long fingerprint : fingerprints) {
+            for (int slot = fingerprintTable.first(fingerprint); slot >= 0;
+                 slot = fingerprintTable.next(fingerprint, slot)) {
+                final int handle = fingerprintTable.get(slot);
+                if (store.matches(handle, p)) {
+                    return handle;
+                }
+            }
+        }
+        return PieceStore.NO_PIECE;
+    }
+
+    /**
+     * Finds a piece that matches the given piece in any orientation, by looking up one of its sides
+     * in the tables for all four directions, and rotates it to match.
+     *
+     * @param p the piece to be found (non-null)
+     * @return the matching piece, rotated to match, or {@code null} if it isn't found
+     * @throws NullPointerException if p is {@code null}
+     */
+    @Override
+    public Piece findRotated(@NotNull Piece p) {
+        return viewOf(findRotatedHandle(p));
+    }
+
+    @Override
+    public int findRotatedHandle(@NotNull Piece p) {
+        Objects.requireNonNull(p);
+        final long[] probeFingerprints = p.getSide(p.lookupDirection()).probeFingerprints();
+        if (probeFingerprints == null) {
+            // Too ambiguous to probe for
+            return store.handleOf(StoredPieceList.super.findRotated(p));
+        }
+        return HashPieceList.findRotated(store, fingerprintTables, p, probeFingerprints);
+    }
+
+    /**
+     * Finds a piece that matches the given piece by binary searching the array sorted by the given
+     * direction, then scanning every piece that compares equal to it. Sides only compare equal if
+     * they match point for point, so that range is a single piece unless the side is flat.
+     *
+     * @param p   the piece to be found (non-null)
+     * @param dir a direction in which the piece has a non-null side
+     * @return the handle of the matching piece, or {@link PieceStore#NO_PIECE} if it isn't found
+     */
+    private int findSorted(Piece p, Direction dir) {
+        // Find any piece where two sides compare to 0 (somewhat equal)
+        final int dirOrd = dir.ordinal();
+        final List<Side> sideList = sideLists[dirOrd];
+        final int midIndex = Collections.binarySearch(sideList, p.getSide(dir));
+        if (midIndex < 0) {
+            return PieceStore.NO_PIECE; // Any match would have to compare equal in this direction
+        }
+        final int leftIndex = Funcs.expSearch(sideList, SIDE_ORDER, midIndex, true);
+        final int rightIndex = Funcs.expSearch(sideList, SIDE_ORDER, midIndex, false);
+        for (int i = leftIndex; i <= rightIndex; i++) {
+            final int handle = handleLists[dirOrd][i];
+            if (live.get(handle) // Skip tombstones
+                && store.matches(handle, p)) {
+                return handle;
+            }
+        }
+        return PieceStore.NO_PIECE;
+    }
+
+    /**
+     * Gets a cursor over every piece that could match the given probe, from the range of the array
+     * sorted by the given direction where the sides compare equal to the probe's.
+     *
+     * @param probe the piece to match (non-null), which may have {@code null} sides
+     * @param dir   the direction to look the probe up by (non-null)
+     * @return a cursor over the candidates, with the count of them known up front
+     * @throws IllegalArgumentException if the probe's side in direction {@code dir} is {@code null}
+     */
+    @Override
+    public PieceCursor candidates(@NotNull Piece probe, @NotNull Direction dir) {
+        return candidates(probe, dir, cursor);
+    }
+
+    /**
+     * Counts the candidates with a cursor of their own, which leaves the list's cursor as it was.
+     */
+    @Override
+    public int countCandidates(@NotNull Piece probe, @NotNull Direction dir) {
+        return candidates(probe, dir, counter).count();
+    }
+
+    private PieceCursor candidates(Piece probe, Direction dir, RangeCursor rangeCursor) {
+        Objects.requireNonNull(probe);
+        Objects.requireNonNull(dir);
+        if (probe.sideNull(dir)) {
+            throw new IllegalArgumentException("The probe has no side to look up in " + dir);
+        }
+
+        final List<Side> sideList = sideLists[dir.ordinal()];
+        final int midIndex = Collections.binarySearch(sideList, probe.getSide(dir));
+        if (midIndex < 0) {
+            rangeCursor.reset(probe, dir.ordinal(), 0, -1); // Nothing compares equal
+        } else {
+            final int leftIndex = Funcs.expSearch(sideList, SIDE_ORDER, midIndex, true);
+            final int rightIndex = Funcs.expSearch(sideList, SIDE_ORDER, midIndex, false);
+            rangeCursor.reset(probe, dir.ordinal(), leftIndex, rightIndex);
+        }
+        return rangeCursor;
+    }
+
+    /**
+     * A cursor over a range of one of the sorted arrays, which skips tombstones and the pieces in
+     * the range that don't match the probe. It only matches pieces as they are needed, so counting
+     * the candidates and going through them each take one pass over the range, and neither is done
+     * unless it's asked for.
+     */
+    private class RangeCursor implements PieceCursor {
+
+        private Piece probe;
+        private int[] handleList;
+        private int start;
+        private int index;
+        private int end;
+        private int count;
+
+        /**
+         * Points this cursor at a new range, without matching anything in it yet.
+         *
+         * @param probe     the piece to match
+         * @param listIndex the index of the array, which is the ordinal of its direction
+         * @param start     the first index of the range
+         * @param end       the last index of the range, inclusive
+         */
+        private void reset(Piece probe, int listIndex, int start, int end) {
+            this.probe = probe;
+            this.handleList = handleLists[listIndex];
+            this.start = start;
+            this.end = end;
+            index = start;
+            count = -1; // Not counted yet
+        }
+
+        private boolean matches(int handle) {
+            return live.get(handle) // Skip tombstones
+                   && store.matches(handle, probe);
+        }
+
+        /**
+         * Moves the index up to the next candidate, or past the end of the range. If the index is
+         * already at a candidate, it stays there.
+         */
+        private void skip() {
+            while (index <= end && !matches(handleList[index])) {
+                index++;
+            }
+        }
+
+        @Override
+        public int count() {
+            if (count < 0) {
+                count = 0;
+                for (int i = start; i <= end; i++) {
+                    if (matches(handleList[i])) {
+                        count++;
                     }
                 }
             }
+            return count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            skip();
+            return index <= end;
+        }
+
+        @Override
+        public Piece next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return store.view(handleList[index++]);
         }
-        return null;
     }
 
     @Override
@@ -0,0 +1,100 @@
+package puzzlesolver.piecelist;
+
+import com.sun.istack.internal.NotNull;
+
+import puzzlesolver.Piece;
+import puzzlesolver.PieceStore;
+import puzzlesolver.enums.Direction;
+
+/**
+ * A {@link PieceList} of pieces in a {@link PieceStore}, which can be worked with by their handles
+ * in the store as well as by piece. Solvers keep their unplaced pieces in one of these, and only
+ * turn handles into pieces for the UI.
+ *
+ * By default, the handle methods go through the piece methods, with each handle's view in the
+ * store. Lists that hold handles themselves override them, and go the other way instead.
+ */
+public interface StoredPieceList extends PieceList {
+
+    /**
+     * Gets the store that the pieces in this list are kept in.
+     *
+     * @return the store
+     */
+    PieceStore getStore();
+
+    /**
+     * Adds the piece with the given handle to this list.
+     *
+     * @param handle the handle of the piece in this list's store
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    default void addHandle(int handle) {
+        add(getStore().view(handle));
+    }
+
+    /**
+     * Adds the pieces with the given range of handles to this list, all at once like with {@link
+     * #addAll}.
+     *
+     * @param from the first handle to be added, inclusive
+     * @param to   the last handle to be added, exclusive
+     * @throws IndexOutOfBoundsException if there is no piece with one of those handles
+     */
+    default void addHandles(int from, int to) {
+        final Piece[] pieces = new Piece[to - from];
+        for (int i = 0; i < pieces.length; i++) {
+            pieces[i] = getStore().view(from + i);
+        }
+        addAll(pieces);
+    }
+
+    /**
+     * Removes the piece with the given handle from this list, if it is in the list.
+     *
+     * @param handle the handle of the piece in this list's store
+     * @return true if something was removed, false otherwise
+     * @throws IndexOutOfBoundsException if there is no piece with that handle
+     */
+    default boolean removeHandle(int handle) {
+        return remove(getStore().view(handle));
+    }
+
+    /**
+     * Finds a piece that matches the given piece, like {@link #find}.
+     *
+     * @param probe the piece to be found (non-null)
+     * @return the handle of the matching piece, or {@link PieceStore#NO_PIECE} if it isn't found
+     * @throws NullPointerException if probe is {@code null}
+     */
+    default int findHandle(@NotNull Piece probe) {
+        return getStore().handleOf(find(probe));
+    }
+
+    /**
+     * Finds a piece that matches the given piece in any orientation, and turns it so that it
+     * matches, like {@link #findRotated}.
+     *
+     * @param probe the piece to be found (non-null)
+     * @return the handle of the matching piece, or {@link PieceStore#NO_PIECE} if it isn't found
+     * @throws NullPointerException if probe is {@code null}
+     */
+    default int findRotatedHandle(@NotNull Piece probe) {
+        return getStore().handleOf(findRotated(probe));
+    }
+
+    /**
+     * Counts the pieces that {@link #candidates} would go over for the given probe, in one pass
+     * and without going through them. Lists that can count them without their own cursor override
+     * this, so that counting leaves a cursor from {@link #candidates} valid. By default, this
+     * counts them with that cursor.
+     *
+     * @param probe the piece to match (non-null), which may have {@code null} sides
+     * @param dir   the direction to look the probe up by (non-null)
+     * @return the number of candidates
+     * @throws IllegalArgumentException if the probe's side in direction {@code dir} is {@code null}
+     */
+    default int countCandidates(@NotNull Piece probe, @NotNull Direction dir) {
+        return candidates(probe, dir).count();
+    }
+}
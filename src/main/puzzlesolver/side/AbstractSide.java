@@ -0,0 +1,326 @@
+package puzzlesolver.side;
+
+import com.sun.istack.internal.NotNull;
+
+import java.util.Objects;
+
+import puzzlesolver.DoubleDeltaComparison;
+import puzzlesolver.Point;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.SideType;
+
+/**
+ * Base class for {@link Side}s, implementing everything that only depends on the points of the
+ * side through {@link #pointCount}, {@link #x} and {@link #y}. This lets implementations store
+ * their points however they like, while sides of different implementations with the same points
+ * still compare, fingerprint, hash and test as equal to each other.
+ */
+public abstract class AbstractSide implements Side {
+
+    /**
+     * Size of a fingerprint quantization cell, as a multiple of {@link Constants#COMP_DELTA}.
+     * Cells must be more than twice as wide as the delta, so that two coordinates within the delta
+     * of each other always land in the same or adjacent cells.
+     */
+    private static final double FINGERPRINT_CELL_FACTOR = 256d;
+
+    /**
+     * Most coordinates that can sit near a cell boundary before {@link #probeFingerprints} gives
+     * up, since each of them doubles the amount of fingerprints to probe.
+     */
+    private static final int MAX_AMBIGUOUS_COORDINATES = 8;
+
+    /**
+     * Cached in place of {@link #probeFingerprints} for sides with too many ambiguous coordinates.
+     */
+    private static final long[] TOO_AMBIGUOUS = new long[0];
+
+    /**
+     * Cached fingerprints of all sides within {@link Constants#COMP_DELTA} of this one. Computed
+     * lazily, since only probes need them; volatile so a shared side publishes the whole array.
+     */
+    private volatile long[] probeFingerprints;
+
+    /**
+     * Cached descriptor of this side. Built lazily, since only approximate lookups need it.
+     */
+    private volatile SideDescriptor descriptor;
+
+    /**
+     * Calculate the {@link SideType} based on the points making up this side.
+     *
+     * Should only be called by constructors, once the points are set. All other functions should
+     * call {@link #getSideType()}.
+     *
+     * @return the type of the side.
+     */
+    protected final SideType findSideType() {
+        final int pointCount = pointCount();
+        if (pointCount == 2) {
+            return SideType.FLAT;
+        }
+
+        double averageHeight = y(0);
+
+        for (int i = 1; i < pointCount; i++) {
+            averageHeight += y(i);
+        }
+
+        averageHeight /= pointCount;
+        double baseline = (y(0) + y(pointCount - 1)) / 2;
+
+        if (averageHeight > baseline) {
+            return SideType.OUT;
+        } else if (averageHeight == baseline) {
+            return SideType.FLAT;
+        } else {
+            return SideType.IN;
+        }
+    }
+
+    /**
+     * Checks that a side has enough points.
+     *
+     * @param pointCount the amount of points in the side
+     * @throws IllegalArgumentException if there are fewer than 2 points
+     */
+    protected static void checkPointCount(int pointCount) {
+        if (pointCount < 2) {
+            throw new IllegalArgumentException(
+                String.format("Must have at least 2 points: %d found.", pointCount));
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(getClass().getSimpleName()).append('{');
+        for (int i = 0; i < pointCount(); i++) {
+            sb.append("point").append(i).append("=").append(new Point(x(i), y(i))).append(", ");
+        }
+        sb.append("sideType=").append(getSideType());
+        sb.append('}');
+        return sb.toString();
+    }
+
+    /**
+     * Checks if the given object is a side with exactly the same points as this one, both as it is
+     * and at full resolution (see {@link #fullResolution}). Coordinates are compared like {@link
+     * Double#equals}, so 0.0 and -0.0 differ. Sides of different implementations can be equal.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AbstractSide)) {
+            return false;
+        }
+        final Side other = (Side) o;
+        if (!samePoints(this, other)) {
+            return false;
+        }
+        final Side full = fullResolution();
+        final Side otherFull = other.fullResolution();
+        return full == otherFull
+               || (full == this && otherFull == other)
+               || samePoints(full, otherFull);
+    }
+
+    private static boolean samePoints(Side s1, Side s2) {
+        final int pointCount = s1.pointCount();
+        if (pointCount != s2.pointCount()) {
+            return false;
+        }
+        for (int i = 0; i < pointCount; i++) {
+            if (Double.doubleToLongBits(s1.x(i)) != Double.doubleToLongBits(s2.x(i))
+                || Double.doubleToLongBits(s1.y(i)) != Double.doubleToLongBits(s2.y(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hashes the points of this side, in the same way that {@link
+     * java.util.Arrays#hashCode(double[])} hashes their interleaved coordinates.
+     */
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < pointCount(); i++) {
+            result = 31 * result + Double.hashCode(x(i));
+            result = 31 * result + Double.hashCode(y(i));
+        }
+        return result;
+    }
+
+    /**
+     * Checks fit compatibility between this side and the given {@param other} side. Sides are
+     * ordered by side type, then corner distance, then amount of points, then lexicographically by
+     * their points. Coordinates within {@link Constants#COMP_DELTA} of each other are considered
+     * equal, so only sides that match point for point compare as equal.
+     *
+     * @param other the {@link Side} to compare this side to.
+     * @return 0 if they are equivalent.
+     * @throws NullPointerException if the {@param other} {@link Side} is {@code null}.
+     */
+    @Override
+    public int compareTo(@NotNull Side other) {
+        Objects.requireNonNull(other);
+
+        int sideTypeComparison = getSideType().compareTo(other.getSideType());
+        if (sideTypeComparison != 0) {
+            return sideTypeComparison;
+        }
+
+        int compareResult = compareCoordinates(getCornerDistance(), other.getCornerDistance());
+        if (compareResult != 0) {
+            return compareResult;
+        }
+
+        final int pointCount = pointCount();
+        if (pointCount != other.pointCount()) {
+            return Integer.compare(pointCount, other.pointCount());
+        }
+
+        // Compare point by point, y before x like Point#compareTo, stopping at the first difference
+        for (int i = 0; i < pointCount; i++) {
+            compareResult = compareCoordinates(y(i), other.y(i));
+            if (compareResult != 0) {
+                return compareResult;
+            }
+            compareResult = compareCoordinates(x(i), other.x(i));
+            if (compareResult != 0) {
+                return compareResult;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Compares two coordinates, treating them as equal if they are within {@link
+     * Constants#COMP_DELTA} of each other.
+     */
+    private static int compareCoordinates(double d1, double d2) {
+        return DoubleDeltaComparison.compare(d1, d2, Constants.COMP_DELTA);
+    }
+
+    @Override
+    public Point[] getPoints() {
+        final Point[] points = new Point[pointCount()];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Point(x(i), y(i));
+        }
+        return points;
+    }
+
+    @Override
+    public long[] probeFingerprints() {
+        long[] fingerprints = probeFingerprints;
+        if (fingerprints == null) {
+            probeFingerprints = fingerprints = findProbeFingerprints();
+        }
+        return fingerprints == TOO_AMBIGUOUS ? null : fingerprints;
+    }
+
+    /**
+     * Calculates the fingerprint of this side. Implementations should call this once, on
+     * construction, and return the result from {@link #fingerprint}.
+     *
+     * @return the fingerprint of the points, using the current {@link Constants#COMP_DELTA}
+     */
+    protected final long findFingerprint() {
+        return hash(quantize(0));
+    }
+
+    /**
+     * Calculates the fingerprints of all sides within {@link Constants#COMP_DELTA} of this one.
+     * Should only be called by {@link #probeFingerprints()}.
+     *
+     * @return the fingerprints, starting with this side's own, or {@link #TOO_AMBIGUOUS}
+     */
+    private long[] findProbeFingerprints() {
+        final double delta = Constants.COMP_DELTA;
+        final long[] low = quantize(-delta);
+        final long[] high = quantize(delta);
+
+        // Find the coordinates whose delta range straddles a cell boundary
+        final int[] ambiguous = new int[low.length];
+        int ambiguousCount = 0;
+        for (int i = 0; i < low.length; i++) {
+            if (low[i] != high[i]) {
+                if (ambiguousCount == MAX_AMBIGUOUS_COORDINATES) {
+                    return TOO_AMBIGUOUS;
+                }
+                ambiguous[ambiguousCount++] = i;
+            }
+        }
+
+        // Try every combination of cells for the ambiguous coordinates, own cells first
+        final long[] own = quantize(0);
+        final long[] cells = own.clone();
+        final long[] result = new long[1 << ambiguousCount];
+        for (int combination = 0; combination < result.length; combination++) {
+            for (int i = 0; i < ambiguousCount; i++) {
+                final int coord = ambiguous[i];
+                final long other = own[coord] == low[coord] ? high[coord] : low[coord];
+                cells[coord] = (combination & (1 << i)) == 0 ? own[coord] : other;
+            }
+            result[combination] = hash(cells);
+        }
+        return result;
+    }
+
+    /**
+     * Quantizes every coordinate of this side, after shifting it by the given offset, to a grid of
+     * {@link #FINGERPRINT_CELL_FACTOR} times {@link Constants#COMP_DELTA}. Rounding is symmetric
+     * around zero, so negating a coordinate negates its cell.
+     *
+     * @param offset the amount to add to each coordinate before quantizing
+     * @return the cells of the coordinates, in the order x0, y0, x1, y1, ...
+     */
+    private long[] quantize(double offset) {
+        final double cellSize = Constants.COMP_DELTA * FINGERPRINT_CELL_FACTOR;
+        final long[] cells = new long[pointCount() * 2];
+        for (int i = 0; i < pointCount(); i++) {
+            cells[2 * i] = quantize(x(i) + offset, cellSize);
+            cells[2 * i + 1] = quantize(y(i) + offset, cellSize);
+        }
+        return cells;
+    }
+
+    private static long quantize(double value, double cellSize) {
+        final long cell = (long) Math.floor(Math.abs(value) / cellSize + 0.5d);
+        return value < 0 ? -cell : cell;
+    }
+
+    /**
+     * Hashes the given quantized coordinates into a fingerprint.
+     *
+     * @param cells the cells of the coordinates, as returned by {@link #quantize(double)}
+     * @return the fingerprint of the cells
+     */
+    private static long hash(long[] cells) {
+        long hash = cells.length;
+        for (long cell : cells) {
+            hash ^= cell;
+            hash *= 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 29;
+        }
+        // Final avalanche, so the low bits are usable as a hash table index
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @Override
+    public SideDescriptor descriptor() {
+        SideDescriptor result = descriptor;
+        if (result == null) {
+            descriptor = result = SideDescriptor.of(this);
+        }
+        return result;
+    }
+}
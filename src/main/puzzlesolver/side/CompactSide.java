@@ -0,0 +1,258 @@
+package puzzlesolver.side;
+
+import com.sun.istack.internal.NotNull;
+
+import java.util.Objects;
+
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.SideType;
+
+/**
+ * An implementation of {@code Side} that stores its points in fixed point, as {@code int}s in
+ * units of {@link #QUANTUM}, using half the memory of a {@link SimpleSide}. Coordinates are rounded
+ * to the nearest multiple of the quantum when the side is made, which moves each of them by at most
+ * half a quantum, and so moves two of them closer or further apart by at most one quantum.
+ * Comparing compact sides is only as good as that: coordinates that were within {@code COMP_DELTA
+ * - QUANTUM} of each other still compare equal, and coordinates that were more than {@code
+ * COMP_DELTA + QUANTUM} apart still compare unequal, but coordinates in between can compare either
+ * way, so two sides that compared equal may not once they are compact, or the other way around.
+ *
+ * The quantum is a power of two, so every stored coordinate decodes to an exact {@code double},
+ * and sides made from the same points always decode to the same coordinates. Compact sides
+ * compare, hash and test as equal with any other {@link AbstractSide} that has the same decoded
+ * points. Heights are stored negated when the first corner's height is negative or -0.0, like the
+ * corners of an inverse, so that an inverse can share its side's coordinates and still decode
+ * to exactly the same heights, signed zeroes included, as the inverse of a {@link SimpleSide}.
+ *
+ * Instances are immutable.
+ *
+ * <h4>Assertions:</h4> <ul> <li><code>pointCount() > 1</code></li> </ul>
+ */
+public class CompactSide extends AbstractSide {
+
+    /**
+     * Size of one fixed-point unit. This must be at most half of {@link Constants#COMP_DELTA}, so
+     * that the band around the delta where rounding can change a comparison is no wider than the
+     * delta itself. At 2^-24, the band around the default delta is under 1% of it either way.
+     */
+    public static final double QUANTUM = 1d / (1 << 24);
+
+    /**
+     * Largest magnitude a coordinate can have and still be stored, which is just under 128, many
+     * times {@link Constants#SIDE_LENGTH}.
+     */
+    public static final double MAX_COORDINATE = Integer.MAX_VALUE * QUANTUM;
+
+    /**
+     * Coordinates of the points on the side, interleaved, in units of {@link #QUANTUM}.
+     */
+    private final int[] coords;
+
+    /**
+     * Whether the heights in {@link #coords} are stored negated.
+     */
+    private final boolean negated;
+
+    /**
+     * The {@link SideType} of this side.
+     */
+    private final SideType sideType;
+
+    /**
+     * Distance between the corners.
+     */
+    private final double cornerDistance;
+
+    /**
+     * Fingerprint of the points, using the {@link Constants#COMP_DELTA} at construction time.
+     */
+    private final long fingerprint;
+
+    /**
+     * Cached inverse of this side. The inverse points back at this side, so the two are built at
+     * most once per pair.
+     */
+    private volatile CompactSide inverse;
+
+    /**
+     * The full-resolution side that this one was simplified from, or {@code null} if this side
+     * hasn't been simplified.
+     */
+    private final CompactSide source;
+
+    /**
+     * Constructs a new {@code CompactSide} that takes ownership of the given coordinates.
+     *
+     * @param coords   the interleaved coordinates of the points, in units of {@link #QUANTUM}
+     * @param negated  whether the heights in {@code coords} are negated
+     * @param sideType the type of the side, or {@code null} to take it from the source, or the
+     *                 points if there is no source
+     * @param inverse  the inverse of the new side, or {@code null} if it hasn't been built yet
+     * @param source   the full-resolution side that the coordinates were simplified from, or
+     *                 {@code null} if they are full resolution
+     */
+    private CompactSide(int[] coords, boolean negated, SideType sideType, CompactSide inverse,
+                        CompactSide source) {
+        checkPointCount(coords.length / 2);
+        this.coords = coords;
+        this.negated = negated;
+        this.inverse = inverse;
+        this.source = source;
+        // Simplifying can shift the average height, so keep the type of the original points
+        this.sideType = sideType != null ? sideType
+                        : source != null ? source.sideType : findSideType();
+        cornerDistance = Math.abs(x(pointCount() - 1) - x(0));
+        fingerprint = findFingerprint();
+    }
+
+    /**
+     * Makes a compact version of the given side. The side's type is kept, and if the side was
+     * simplified, so is a compact version of its full-resolution side.
+     *
+     * @param side the side to make compact (non-null)
+     * @return the compact side, which is {@code side} itself if it is already compact
+     * @throws IllegalArgumentException if a coordinate is larger than {@link #MAX_COORDINATE}
+     * @throws IllegalStateException    if {@link Constants#COMP_DELTA} is too small for {@link
+     *                                  #QUANTUM}
+     */
+    public static CompactSide of(@NotNull Side side) {
+        Objects.requireNonNull(side);
+        if (side instanceof CompactSide) {
+            return (CompactSide) side;
+        }
+        if (QUANTUM * 2 > Constants.COMP_DELTA) {
+            throw new IllegalStateException(
+                String.format("COMP_DELTA of %g is too small for compact sides",
+                              Constants.COMP_DELTA));
+        }
+
+        final boolean negated = isNegative(side.y(0));
+        final Side full = side.fullResolution();
+        return new CompactSide(encode(side, negated), negated, side.getSideType(), null,
+                               full != side ? of(full) : null);
+    }
+
+    private static boolean isNegative(double coordinate) {
+        return Double.doubleToRawLongBits(coordinate) < 0;
+    }
+
+    /**
+     * Encodes the coordinates of the given side.
+     *
+     * @param side    the side to encode
+     * @param negated whether to store the heights negated
+     * @return the interleaved coordinates, in units of {@link #QUANTUM}
+     * @throws IllegalArgumentException if a coordinate is larger than {@link #MAX_COORDINATE}
+     */
+    private static int[] encode(Side side, boolean negated) {
+        final int[] coords = new int[side.pointCount() * 2];
+        for (int i = 0; i < side.pointCount(); i++) {
+            coords[2 * i] = encode(side.x(i));
+            coords[2 * i + 1] = encode(negated ? -side.y(i) : side.y(i));
+        }
+        return coords;
+    }
+
+    private static int encode(double coordinate) {
+        if (!(Math.abs(coordinate) <= MAX_COORDINATE)) {
+            throw new IllegalArgumentException(
+                String.format("Coordinate %f is too large for a compact side", coordinate));
+        }
+        return (int) Math.round(coordinate / QUANTUM);
+    }
+
+    @Override
+    public int pointCount() {
+        return coords.length / 2;
+    }
+
+    @Override
+    public double x(int i) {
+        return coords[2 * i] * QUANTUM;
+    }
+
+    @Override
+    public double y(int i) {
+        final double height = coords[2 * i + 1] * QUANTUM;
+        return negated ? -height : height;
+    }
+
+    @Override
+    public double getCornerDistance() {
+        return cornerDistance;
+    }
+
+    @Override
+    public SideType getSideType() {
+        return sideType;
+    }
+
+    @Override
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public Side copy() {
+        return new CompactSide(coords.clone(), negated, sideType, null, source);
+    }
+
+    /**
+     * Simplifies this side in the same way as {@link SimpleSide#simplify}, starting from the
+     * full-resolution points.
+     *
+     * @param tolerance the most any dropped point can be off the simplified line
+     * @return the simplified side, which is the full-resolution side if {@code tolerance <= 0} or
+     * no points could be dropped
+     */
+    @Override
+    public CompactSide simplify(double tolerance) {
+        final CompactSide full = fullResolution();
+        final SimpleSide simplified =
+            SimpleSide.fromCoordinates(coordinatesOf(full)).simplify(tolerance);
+        if (simplified.pointCount() == full.pointCount()) {
+            return full;
+        }
+
+        // The decoded coordinates are exact, so encoding them again gives back the same units
+        return new CompactSide(encode(simplified, full.negated), full.negated, full.sideType, null,
+                               simplified.fullResolution() != simplified ? full : null);
+    }
+
+    private static double[] coordinatesOf(Side side) {
+        final double[] coords = new double[side.pointCount() * 2];
+        for (int i = 0; i < side.pointCount(); i++) {
+            coords[2 * i] = side.x(i);
+            coords[2 * i + 1] = side.y(i);
+        }
+        return coords;
+    }
+
+    /**
+     * Gets the full-resolution side that this one was simplified from.
+     *
+     * @return the source of this side, or this side if it hasn't been simplified
+     */
+    @Override
+    public CompactSide fullResolution() {
+        return source != null ? source : this;
+    }
+
+    /**
+     * Gets the inverse of this side. The inverse is built on the first call and cached, and it is
+     * linked back to this side, so {@code s.inverse().inverse() == s}. The two share their
+     * coordinates.
+     *
+     * @return the inverse of this side
+     */
+    @Override
+    public CompactSide inverse() {
+        CompactSide result = inverse;
+        if (result == null) {
+            // Flipping the sign of every height is the same as flipping how they are stored
+            inverse = result = new CompactSide(coords, !negated, null, this,
+                                               source != null ? source.inverse() : null);
+        }
+        return result;
+    }
+}
@@ -10,6 +10,9 @@ import puzzlesolver.enums.SideType;
  * or determined during generation. Sub-classes MUST override {@link Object#equals} and {@link
  * Object#hashCode}.
  *
+ * Sub-classes MUST be immutable. Sides are shared between pieces, probes and lists without ever
+ * being copied, so a side that changed after construction would silently corrupt all of them.
+ *
  * Note: sub-classes may have a natural ordering that is inconsistent with {@link Object#equals}.
  * {@link Object#equals} MUST be no less specific about equality than {@link Comparable#compareTo},
  * and will typically be more specific.
@@ -33,27 +36,105 @@ public interface Side extends Comparable<Side>, Cloneable {
     SideType getSideType();
 
     /**
-     * Creates a deep copy of this side and returns it.
+     * Creates a deep copy of this side and returns it. Since sides are immutable, this is never
+     * needed to protect a side from modification.
      *
      * @return a deep copy of this side, with no shared variables
      */
     Side copy();
 
     /**
-     * Creates a deep copy of the inverse of this side.
+     * Gets the inverse of this side, which is the side that fits against it. Implementations may
+     * cache the inverse, so repeated calls can return the same instance, and {@code
+     * s.inverse().inverse()} may be {@code s} itself.
      *
-     * @return a deep copy of the inverse of this side, with no shared variables
+     * @return the inverse of this side
      */
     Side inverse();
 
     /**
-     * Get a <i>shallow</i> copy of the {@link Point}s, not the original {@link Point}s. The array
-     * itself is copied, but each {@link Point} is not.
+     * Get the {@link Point}s of this side. The array and the points in it are newly allocated on
+     * every call, so prefer {@link #pointCount}, {@link #x} and {@link #y} anywhere performance
+     * matters.
      *
-     * @return a copy of the array of {@link Point}s representing this side.
+     * @return a new array of {@link Point}s representing this side.
      */
     Point[] getPoints();
 
+    /**
+     * Gets the amount of points on this side.
+     *
+     * @return the amount of points, always at least 2
+     */
+    int pointCount();
+
+    /**
+     * Gets the x-coordinate of the point at the given index.
+     *
+     * @param i the index of the point, [0, {@link #pointCount})
+     * @return the x-coordinate of that point
+     */
+    double x(int i);
+
+    /**
+     * Gets the y-coordinate of the point at the given index.
+     *
+     * @param i the index of the point, [0, {@link #pointCount})
+     * @return the y-coordinate of that point
+     */
+    double y(int i);
+
+    /**
+     * Gets a stable 64-bit fingerprint of this side's geometry. Sides that are equal according to
+     * {@link Object#equals} always have the same fingerprint. Coordinates are quantized
+     * symmetrically around zero, so {@link #inverse} quantizes to exactly the negated cells of
+     * this side, and {@code s.inverse().inverse()} always has the same fingerprint as {@code s}.
+     *
+     * @return the fingerprint of this side
+     */
+    long fingerprint();
+
+    /**
+     * Gets every fingerprint that a side could have if each of its coordinates is within {@link
+     * puzzlesolver.constants.Constants#COMP_DELTA} of this side's. The first element is always
+     * {@link #fingerprint}. Callers must not modify the returned array.
+     *
+     * @return the possible fingerprints of sides that match this one, or {@code null} if there are
+     * too many to be worth probing for
+     */
+    long[] probeFingerprints();
+
+    /**
+     * Gets the {@link SideDescriptor} of this side, with {@link SideDescriptor#DEFAULT_SAMPLES}
+     * samples. Since sides are immutable, implementations may cache it.
+     *
+     * @return the descriptor of this side
+     */
+    default SideDescriptor descriptor() {
+        return SideDescriptor.of(this);
+    }
+
+    /**
+     * Gets a version of this side with fewer points, where every dropped point is within the given
+     * distance of the remaining outline. A simplified side still only {@link Object#equals} sides
+     * that match it at full resolution. Implementations that can't simplify return this side.
+     *
+     * @param tolerance the most any dropped point can be off the simplified outline
+     * @return the simplified side, or the full-resolution side if {@code tolerance <= 0}
+     */
+    default Side simplify(double tolerance) {
+        return this;
+    }
+
+    /**
+     * Gets the full-resolution side that this one was {@link #simplify simplified} from.
+     *
+     * @return the full-resolution side, or this side if it hasn't been simplified
+     */
+    default Side fullResolution() {
+        return this;
+    }
+
     /**
      * Is this side flat or not?
      *
@@ -0,0 +1,198 @@
+package puzzlesolver.side;
+
+import com.sun.istack.internal.NotNull;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A fixed-length shape descriptor of a {@link Side}, for matching sides that are close but not
+ * exactly equal, such as scanned or noisy ones.
+ *
+ * The descriptor is the side's height profile, resampled at evenly spaced positions along the line
+ * between its two corners. Heights are measured perpendicular to that line, from the first corner,
+ * so the descriptor does not change if the whole side is translated or rotated. The corners
+ * themselves are left out, since their height is always 0.
+ *
+ * Inverting a side negates its descriptor, and the distance between descriptors is the RMS
+ * difference in height, in the same units as the side's coordinates.
+ */
+public final class SideDescriptor {
+
+    /**
+     * Amount of samples used by {@link #of(Side)}.
+     */
+    public static final int DEFAULT_SAMPLES = 16;
+
+    private final double[] values;
+
+    private SideDescriptor(double[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Makes a descriptor of the given side with {@link #DEFAULT_SAMPLES} samples.
+     *
+     * @param side the side to describe (non-null)
+     * @return the descriptor of the side
+     */
+    public static SideDescriptor of(@NotNull Side side) {
+        return of(side, DEFAULT_SAMPLES);
+    }
+
+    /**
+     * Makes a descriptor of the given side with the given amount of samples.
+     *
+     * @param side    the side to describe (non-null)
+     * @param samples the amount of heights to sample along the side (positive)
+     * @return the descriptor of the side
+     * @throws IllegalArgumentException if {@code samples <= 0}
+     */
+    public static SideDescriptor of(@NotNull Side side, int samples) {
+        Objects.requireNonNull(side);
+        if (samples <= 0) {
+            throw new IllegalArgumentException("samples must be positive");
+        }
+
+        // Set up the frame along the line from the first corner to the last
+        final int last = side.pointCount() - 1;
+        final double originX = side.x(0);
+        final double originY = side.y(0);
+        final double chordX = side.x(last) - originX;
+        final double chordY = side.y(last) - originY;
+        final double length = Math.sqrt(chordX * chordX + chordY * chordY);
+        final double[] values = new double[samples];
+        if (length == 0) {
+            return new SideDescriptor(values);
+        }
+        final double unitX = chordX / length;
+        final double unitY = chordY / length;
+
+        // Walk along the side once, interpolating the height at each sample position
+        int segment = 0;
+        double startPosition = 0;
+        double startHeight = 0;
+        double endPosition = position(side, 1, originX, originY, unitX, unitY, length);
+        double endHeight = height(side, 1, originX, originY, unitX, unitY);
+        for (int i = 0; i < samples; i++) {
+            final double samplePosition = (i + 1d) / (samples + 1d);
+            while (endPosition < samplePosition && segment + 1 < last) {
+                segment++;
+                startPosition = endPosition;
+                startHeight = endHeight;
+                endPosition = position(side, segment + 1, originX, originY, unitX, unitY, length);
+                endHeight = height(side, segment + 1, originX, originY, unitX, unitY);
+            }
+            final double span = endPosition - startPosition;
+            final double fraction = span > 0 ? (samplePosition - startPosition) / span : 0;
+            values[i] =
+                startHeight + (endHeight - startHeight) * Math.max(0, Math.min(1, fraction));
+        }
+        return new SideDescriptor(values);
+    }
+
+    /**
+     * Gets how far along the chord the given point is, from 0 at the first corner to 1 at the last.
+     */
+    private static double position(Side side, int i, double originX, double originY, double unitX,
+                                   double unitY, double length) {
+        return ((side.x(i) - originX) * unitX + (side.y(i) - originY) * unitY) / length;
+    }
+
+    /**
+     * Gets the height of the given point above the chord.
+     */
+    private static double height(Side side, int i, double originX, double originY, double unitX,
+                                 double unitY) {
+        return (side.y(i) - originY) * unitX - (side.x(i) - originX) * unitY;
+    }
+
+    /**
+     * Gets the amount of values in this descriptor.
+     *
+     * @return the amount of samples
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Gets the value at the given index.
+     *
+     * @param i the index of the sample, [0, {@link #size})
+     * @return the height of the side at that sample
+     */
+    public double get(int i) {
+        return values[i];
+    }
+
+    /**
+     * Gets a copy of the values of this descriptor.
+     *
+     * @return a new array of the sampled heights
+     */
+    public double[] toArray() {
+        return values.clone();
+    }
+
+    /**
+     * Gets the descriptor of the inverse of the described side.
+     *
+     * @return a descriptor with every value negated
+     */
+    public SideDescriptor inverse() {
+        final double[] inverseValues = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            inverseValues[i] = -values[i];
+        }
+        return new SideDescriptor(inverseValues);
+    }
+
+    /**
+     * Gets the RMS distance between this descriptor and the given one.
+     *
+     * @param other the other descriptor (non-null, same size)
+     * @return the root mean square of the differences between the values
+     * @throws IllegalArgumentException if the descriptors have different sizes
+     */
+    public double distance(@NotNull SideDescriptor other) {
+        return Math.sqrt(squaredDistance(values, other.values) / values.length);
+    }
+
+    /**
+     * Gets the squared Euclidean distance between the two arrays.
+     *
+     * @param a the first array
+     * @param b the second array (same length)
+     * @return the sum of the squared differences between the values
+     * @throws IllegalArgumentException if the arrays have different lengths
+     */
+    static double squaredDistance(double[] a, double[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException(
+                String.format("Sizes differ: %d and %d", a.length, b.length));
+        }
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            final double diff = a[i] - b[i];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || !(o == null || getClass() != o.getClass())
+                            && Arrays.equals(values, ((SideDescriptor) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return "SideDescriptor" + Arrays.toString(values);
+    }
+}
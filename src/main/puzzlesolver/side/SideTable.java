@@ -0,0 +1,172 @@
+package puzzlesolver.side;
+
+import com.sun.istack.internal.NotNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A table of interned {@link Side}s. Each distinct side geometry (according to {@link
+ * Side#equals}) is given a dense {@code int} ID, starting at 0. The table also stores the ID of
+ * each side's mate, meaning the side that is equal to its {@link Side#inverse}, so finding the side
+ * that fits against a known side is a pair of array reads rather than a new inverse side.
+ */
+public class SideTable {
+
+    /**
+     * ID used for sides that are unknown or not in the table, and for sides that have no mate.
+     */
+    public static final int NO_SIDE = -1;
+
+  /*
+   * INVARIANTS
+   *
+   * ids
+   * - Non-null
+   * - ids.get(sides[i]) == i for all 0 <= i < size
+   *
+   * sides, mateIds
+   * - Non-null, same length, length >= size
+   * - mateIds[i] == NO_SIDE, or sides[mateIds[i]] equals sides[i].inverse()
+   * - mateIds[mateIds[i]] == i whenever mateIds[i] != NO_SIDE
+   */
+
+    private final Map<Side, Integer> ids;
+    private Side[] sides;
+    private int[] mateIds;
+    private int size;
+
+    /**
+     * Constructs a new {@code SideTable} with an initial capacity of sixteen sides.
+     */
+    public SideTable() {
+        this(16);
+    }
+
+    /**
+     * Constructs a new {@code SideTable} with the given initial capacity.
+     *
+     * @param initialCapacity the amount of sides to make room for (non-negative)
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public SideTable(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("initialCapacity cannot be negative");
+        }
+        ids = new HashMap<>(initialCapacity * 2);
+        sides = new Side[initialCapacity];
+        mateIds = new int[initialCapacity];
+    }
+
+    /**
+     * Interns the given side. If an equal side is already in this table, its ID is returned.
+     * Otherwise the side is given the next ID and is linked with its mate, if the mate has
+     * already been interned.
+     *
+     * @param side the side to be interned (non-null)
+     * @return the ID of the side
+     * @throws NullPointerException if {@code side} is {@code null}
+     */
+    public int intern(@NotNull Side side) {
+        Objects.requireNonNull(side);
+        final Integer existingId = ids.get(side);
+        if (existingId != null) {
+            return existingId;
+        }
+
+        final int id = size++;
+        if (id == sides.length) {
+            final int newLength = Math.max(16, sides.length * 2);
+            sides = Arrays.copyOf(sides, newLength);
+            mateIds = Arrays.copyOf(mateIds, newLength);
+        }
+        sides[id] = side;
+        mateIds[id] = NO_SIDE;
+        ids.put(side, id);
+
+        // If the inverse of this side is already here, link the two together
+        final Integer mateId = ids.get(side.inverse());
+        if (mateId != null && mateId != id) {
+            mateIds[id] = mateId;
+            mateIds[mateId] = id;
+        }
+        return id;
+    }
+
+    /**
+     * Gets the ID of the given side, without interning it.
+     *
+     * @param side the side to look up (non-null)
+     * @return the ID of the side, or {@link #NO_SIDE} if it isn't in this table
+     * @throws NullPointerException if {@code side} is {@code null}
+     */
+    public int idOf(@NotNull Side side) {
+        Objects.requireNonNull(side);
+        final Integer id = ids.get(side);
+        return id == null ? NO_SIDE : id;
+    }
+
+    /**
+     * Gets the interned side with the given ID. The returned side is shared, not copied.
+     *
+     * @param id the ID of the side
+     * @return the side with that ID
+     * @throws IndexOutOfBoundsException if there is no side with that ID
+     */
+    public Side get(int id) {
+        checkId(id);
+        return sides[id];
+    }
+
+    /**
+     * Gets the ID of the mate of the side with the given ID.
+     *
+     * @param id the ID of the side
+     * @return the ID of the side that equals the inverse of that side, or {@link #NO_SIDE} if no
+     * such side has been interned
+     * @throws IndexOutOfBoundsException if there is no side with that ID
+     */
+    public int mateId(int id) {
+        checkId(id);
+        return mateIds[id];
+    }
+
+    /**
+     * Gets the mate of the side with the given ID. The returned side is shared, not copied.
+     *
+     * @param id the ID of the side
+     * @return the side that equals the inverse of that side, or {@code null} if no such side has
+     * been interned
+     * @throws IndexOutOfBoundsException if there is no side with that ID
+     */
+    public Side mate(int id) {
+        final int mateId = mateId(id);
+        return mateId == NO_SIDE ? null : sides[mateId];
+    }
+
+    /**
+     * Gets the amount of distinct sides in this table.
+     *
+     * @return the amount of interned sides
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Clears this table. IDs that were handed out before this call are no longer valid.
+     */
+    public void clear() {
+        ids.clear();
+        Arrays.fill(sides, 0, size, null);
+        size = 0;
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException(id + " is not a valid side ID");
+        }
+    }
+}
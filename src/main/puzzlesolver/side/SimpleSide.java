@@ -5,38 +5,72 @@ import com.sun.istack.internal.NotNull;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 import puzzlesolver.Point;
+import puzzlesolver.constants.Constants;
 import puzzlesolver.enums.SideType;
 
 /**
- * An implementation of {@code Side}, where each side is represented by a list of {@code Point}s.
+ * An implementation of {@code Side}, where each side is represented by a list of points. The points
+ * are packed into a single {@code double[]} of interleaved x and y coordinates rather than held as
+ * {@link Point} objects, and are read through {@link #x} and {@link #y}.
  *
- * The coordinates of the {@code Point}s are on an axis relative to the side. The x-axis is the line
- * between the two endpoints of the side, and the y-axis is perpendicular to that, going away from
- * the center of the piece.
+ * The coordinates of the points are on an axis relative to the side. The x-axis is the line between
+ * the two endpoints of the side, and the y-axis is perpendicular to that, going away from the
+ * center of the piece.
  *
- * <h4>Assertions:</h4> <ul> <li><code>points.length > 1</code></li> </ul>
+ * Instances are immutable. Everything derived from the points is calculated on construction, so
+ * sides can be shared between pieces and threads without copying.
+ *
+ * A side can be {@link #simplify simplified} to fewer points. A simplified side compares, hashes
+ * and renders using only its remaining points, but keeps the full-resolution side it came from, so
+ * that {@link #equals} can still check every original point.
+ *
+ * <h4>Assertions:</h4> <ul> <li><code>pointCount() > 1</code></li> </ul>
  */
-public class SimpleSide implements Side {
+public class SimpleSide extends AbstractSide {
+
+    /**
+     * A flat side, running straight from one corner to the other. This is the side along the
+     * border of a puzzle, and is shared so that nothing has to build one to probe for border pieces.
+     */
+    public static final SimpleSide FLAT =
+        new SimpleSide(new Point(0d, 0d), new Point(Constants.SIDE_LENGTH, 0d));
 
     /**
-     * List of points on the side.
+     * Coordinates of the points on the side, interleaved.
      *
-     * points[i].x = distance from left side points[i].y = height from side base
+     * coords[2i] = distance of point i from left side, coords[2i + 1] = height of point i from
+     * side base
      */
-    private final Point[] points;
+    private final double[] coords;
 
     /**
      * The {@link SideType} of this {@link SimpleSide}.
      */
-    private SideType sideType;
+    private final SideType sideType;
+
+    /**
+     * Distance between the corners.
+     */
+    private final double cornerDistance;
+
+    /**
+     * Fingerprint of the points, using the {@link Constants#COMP_DELTA} at construction time.
+     */
+    private final long fingerprint;
 
     /**
-     * Cached distance between the corners.
+     * Cached inverse of this side. The inverse points back at this side, so the two are built at
+     * most once per pair.
      */
-    private Double cornerDistance;
+    private volatile SimpleSide inverse;
+
+    /**
+     * The full-resolution side that this one was simplified from, or {@code null} if this side
+     * hasn't been simplified.
+     */
+    private final SimpleSide source;
 
     /**
      * Constructs a new {@code SimpleSide} from the given points.
@@ -46,152 +80,245 @@ public class SimpleSide implements Side {
      *               These must be in the desired order along the side.
      */
     public SimpleSide(@NotNull Point... points) throws IllegalArgumentException {
-        Objects.requireNonNull(points);
-        if (points.length < 2) {
-            throw new IllegalArgumentException(
-                String.format("Must have at least 2 points: %d found.",
-                              points.length));
-        }
-
-        this.points = points.clone();
+        this(Arrays.asList(Objects.requireNonNull(points)));
     }
 
     public SimpleSide(List<Point> points) {
+        this(toCoordinates(points));
+    }
+
+    /**
+     * Constructs a new {@code SimpleSide} that takes ownership of the given coordinates. Only for
+     * use by code that has just built the array and will never touch it again.
+     *
+     * @param coords the interleaved coordinates of the points
+     */
+    private SimpleSide(double[] coords) {
+        this(coords, null, null);
+    }
+
+    /**
+     * Constructs a new {@code SimpleSide} that takes ownership of the given coordinates, and is
+     * already linked to its inverse.
+     *
+     * @param coords  the interleaved coordinates of the points
+     * @param inverse the inverse of the new side, or {@code null} if it hasn't been built yet
+     * @param source  the full-resolution side that the coordinates were simplified from, or {@code
+     *                null} if they are full resolution
+     */
+    private SimpleSide(double[] coords, SimpleSide inverse, SimpleSide source) {
+        checkPointCount(coords.length / 2);
+        this.coords = coords;
+        this.inverse = inverse;
+        this.source = source;
+        // Simplifying can shift the average height, so keep the type of the original points
+        sideType = source != null ? source.sideType : findSideType();
+        cornerDistance = Math.abs(x(pointCount() - 1) - x(0));
+        fingerprint = findFingerprint();
+    }
+
+    private static double[] toCoordinates(List<Point> points) {
         Objects.requireNonNull(points);
-        if (points.size() < 2) {
-            throw new IllegalArgumentException(
-                String.format("Must have at least 2 points: %d found.",
-                              points.size()));
+        final double[] coords = new double[points.size() * 2];
+        int i = 0;
+        for (Point point : points) {
+            coords[i++] = point.x;
+            coords[i++] = point.y;
         }
-        this.points = new Point[points.size()];
-        points.toArray(this.points);
+        return coords;
     }
 
     /**
-     * Calculate the {@link SideType} based on the points making up this {@link SimpleSide}.
-     *
-     * Should only be called by {@link #getSideType()}. All other functions should call {@link
-     * this#getSideType()}.
+     * Constructs a new {@code SimpleSide} from the given interleaved coordinates, in the order x0,
+     * y0, x1, y1, .... The array is copied.
      *
-     * Assuming {@link #sideType} is currently {@code null}, although nothing bad will happen if
-     * it's not.
+     * @param coords the coordinates of the points making up the side (non-null, even length)
+     * @return the new side
+     * @throws IllegalArgumentException if there are fewer than 2 points, or an odd amount of
+     *                                  coordinates
+     */
+    public static SimpleSide fromCoordinates(@NotNull double... coords) {
+        Objects.requireNonNull(coords);
+        if (coords.length % 2 != 0) {
+            throw new IllegalArgumentException(
+                String.format("Must have an even amount of coordinates: %d found.",
+                              coords.length));
+        }
+        return new SimpleSide(coords.clone());
+    }
+
+    /**
+     * Constructs a new {@code SimpleSide} from the given interleaved coordinates, as a side that
+     * was simplified from the given full-resolution side, like one from {@link #simplify}. This is
+     * for rebuilding simplified sides that were stored outside of the heap. The array is copied.
      *
-     * @return the type of the side.
+     * @param coords the coordinates of the points making up the side (non-null, even length)
+     * @param source the full-resolution side, or {@code null} if the coordinates are full
+     *               resolution
+     * @return the new side
+     * @throws IllegalArgumentException if there are fewer than 2 points, or an odd amount of
+     *                                  coordinates
      */
-    private SideType findSideType() {
-        if (points.length == 2) {
-            return sideType = SideType.FLAT;
+    public static SimpleSide fromCoordinates(@NotNull double[] coords, SimpleSide source) {
+        final SimpleSide side = fromCoordinates(coords);
+        if (source == null) {
+            return side;
         }
+        return new SimpleSide(side.coords, null, source.fullResolution());
+    }
 
-        double averageHeight = points[0].y;
+    @Override
+    public int pointCount() {
+        return coords.length / 2;
+    }
 
-        for (int i = 1; i < points.length; i++) {
-            averageHeight += points[i].y;
-        }
+    @Override
+    public double x(int i) {
+        return coords[2 * i];
+    }
 
-        averageHeight /= points.length;
-        double baseline = (points[0].y + points[points.length - 1].y) / 2;
+    @Override
+    public double y(int i) {
+        return coords[2 * i + 1];
+    }
 
-        if (averageHeight > baseline) {
-            return SideType.OUT;
-        } else if (averageHeight == baseline) {
-            return SideType.FLAT;
-        } else {
-            return SideType.IN;
-        }
+    @Override
+    public double getCornerDistance() {
+        return cornerDistance;
     }
 
     @Override
-    public String toString() {
-        final StringBuilder sb = new StringBuilder("SimpleSide{");
-        for (int i = 0; i < points.length; i++) {
-            sb.append("point").append(i).append("=").append(points[i]).append(", ");
-        }
-        sb.append("sideType=").append(getSideType());
-        sb.append('}');
-        return sb.toString();
+    public SideType getSideType() {
+        return sideType;
     }
 
     @Override
-    public boolean equals(Object o) {
-        return this == o || !(o == null || getClass() != o.getClass())
-                            && Arrays.equals(points, ((SimpleSide) o).points);
+    public long fingerprint() {
+        return fingerprint;
     }
 
     @Override
-    public int hashCode() {
-        return Arrays.hashCode(points);
+    public Side copy() {
+        return new SimpleSide(coords.clone(), null, source);
     }
 
     /**
-     * Checks fit compatibility between this {@link SimpleSide} to the given {@param other} {@link
-     * SimpleSide}.
+     * Simplifies this side with the Douglas-Peucker algorithm. Points are dropped as long as every
+     * dropped point is within the given distance of the simplified line, and the corners are always
+     * kept. Simplifying always starts from the full-resolution points, so simplifying a simplified
+     * side again with a different tolerance works as if it were the first time.
      *
-     * @param other the {@link Side} to compare this side to.
-     * @return 0 if they are equivalent.
-     * @throws NullPointerException if the {@param other} {@link Side} is {@code null}.
-     * @throws ClassCastException   if the {@link Side} given is not a {@link SimpleSide}.
+     * The simplified side keeps this side's full-resolution points, for {@link #equals}, unless no
+     * dropped point was off the line at all, since then nothing was lost.
+     *
+     * @param tolerance the most any dropped point can be off the simplified line
+     * @return the simplified side, which is the full-resolution side if {@code tolerance <= 0} or
+     * no points could be dropped
      */
     @Override
-    public int compareTo(@NotNull Side other) {
-        Objects.requireNonNull(other);
-        if (!SimpleSide.class.isInstance(other)) {
-            throw new ClassCastException(
-                String.format("Cannot compare %s to %s.", getClass().toString(),
-                              other.getClass().toString()));
+    public SimpleSide simplify(double tolerance) {
+        final SimpleSide full = fullResolution();
+        final int pointCount = full.pointCount();
+        if (tolerance <= 0 || pointCount <= 2) {
+            return full;
         }
 
-        SimpleSide simpleOther = (SimpleSide) other;
-
-        int sideTypeComparison = getSideType().compareTo(simpleOther.getSideType());
-        if (sideTypeComparison != 0) {
-            return sideTypeComparison;
+        // Split ranges at their farthest point until every point is close enough to its range
+        final boolean[] keep = new boolean[pointCount];
+        keep[0] = keep[pointCount - 1] = true;
+        final int[] stack = new int[pointCount * 2];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        stack[stackSize++] = pointCount - 1;
+        double maxDroppedDistance = 0;
+        int kept = 2;
+        while (stackSize > 0) {
+            final int last = stack[--stackSize];
+            final int first = stack[--stackSize];
+            int farthest = -1;
+            double farthestDistance = 0;
+            for (int i = first + 1; i < last; i++) {
+                final double distance = full.distanceToSegment(i, first, last);
+                if (farthest < 0 || distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest < 0) {
+                continue;
+            }
+            if (farthestDistance > tolerance) {
+                keep[farthest] = true;
+                kept++;
+                stack[stackSize++] = first;
+                stack[stackSize++] = farthest;
+                stack[stackSize++] = farthest;
+                stack[stackSize++] = last;
+            } else {
+                maxDroppedDistance = Math.max(maxDroppedDistance, farthestDistance);
+            }
         }
-
-        int compareResult = Double.compare(getCornerDistance(), other.getCornerDistance());
-        if (compareResult != 0) {
-            return compareResult;
+        if (kept == pointCount) {
+            return full;
         }
 
-        Point[] otherPoints = simpleOther.getPoints();
-
-        Objects.requireNonNull(points);
-        Objects.requireNonNull(otherPoints);
-
-        if (points.length != otherPoints.length) {
-            return Integer.compare(points.length, otherPoints.length);
+        final double[] simplified = new double[kept * 2];
+        int j = 0;
+        for (int i = 0; i < pointCount; i++) {
+            if (keep[i]) {
+                simplified[j++] = full.x(i);
+                simplified[j++] = full.y(i);
+            }
         }
-
-        return 0;
+        return new SimpleSide(simplified, null, maxDroppedDistance > 0 ? full : null);
     }
 
-    @Override
-    public Point[] getPoints() {
-        Point[] copy = new Point[points.length];
-        System.arraycopy(points, 0, copy, 0, points.length);
-        return copy;
-    }
-
-    @Override
-    public double getCornerDistance() {
-        return (cornerDistance == null)
-               ? cornerDistance = Math.abs(points[points.length - 1].x - points[0].x)
-               : cornerDistance;
-    }
-
-    @Override
-    public SideType getSideType() {
-        return (sideType == null) ? sideType = findSideType() : sideType;
+    /**
+     * Gets the distance from point {@code i} to the segment between points {@code first} and
+     * {@code last}.
+     */
+    private double distanceToSegment(int i, int first, int last) {
+        final double segmentX = x(last) - x(first);
+        final double segmentY = y(last) - y(first);
+        final double pointX = x(i) - x(first);
+        final double pointY = y(i) - y(first);
+        final double lengthSquared = segmentX * segmentX + segmentY * segmentY;
+        final double t = lengthSquared == 0 ? 0
+                         : Math.max(0, Math.min(1, (pointX * segmentX + pointY * segmentY)
+                                                   / lengthSquared));
+        final double offX = pointX - t * segmentX;
+        final double offY = pointY - t * segmentY;
+        return Math.sqrt(offX * offX + offY * offY);
     }
 
+    /**
+     * Gets the full-resolution side that this one was simplified from.
+     *
+     * @return the source of this side, or this side if it hasn't been simplified
+     */
     @Override
-    public Side copy() {
-        return new SimpleSide(getPoints());
+    public SimpleSide fullResolution() {
+        return source != null ? source : this;
     }
 
+    /**
+     * Gets the inverse of this side. The inverse is built on the first call and cached, and it is
+     * linked back to this side, so {@code s.inverse().inverse() == s}.
+     *
+     * @return the inverse of this side
+     */
     @Override
     public SimpleSide inverse() {
-        return new SimpleSide(Arrays.stream(points).map(point -> new Point(point.x, -point.y))
-                                  .collect(Collectors.toList()));
+        SimpleSide result = inverse;
+        if (result == null) {
+            final double[] inverseCoords = new double[coords.length];
+            for (int i = 0; i < coords.length; i += 2) {
+                inverseCoords[i] = coords[i];
+                inverseCoords[i + 1] = -coords[i + 1];
+            }
+            inverse = result = new SimpleSide(inverseCoords, this,
+                                              source != null ? source.inverse() : null);
+        }
+        return result;
     }
 }
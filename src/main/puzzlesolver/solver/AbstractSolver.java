@@ -1,27 +1,64 @@
 package puzzlesolver.solver;
 
+import java.util.Arrays;
+
+import puzzlesolver.BorderIndex;
 import puzzlesolver.Funcs;
 import puzzlesolver.Pair;
 import puzzlesolver.Piece;
 import puzzlesolver.PieceNotFoundException;
-import puzzlesolver.Point;
+import puzzlesolver.PieceProbe;
+import puzzlesolver.PieceStore;
 import puzzlesolver.constants.Constants;
 import puzzlesolver.enums.Direction;
 import puzzlesolver.enums.PieceType;
 import puzzlesolver.piecelist.PieceList;
+import puzzlesolver.piecelist.StoredPieceList;
+import puzzlesolver.side.SideTable;
 import puzzlesolver.side.SimpleSide;
 
 public abstract class AbstractSolver implements Solver {
 
     protected class State {
 
-        protected PieceList unplacedPieces;
-        protected Piece[][] solution;
+        /**
+         * The unplaced pieces, which are kept in {@link #pieceStore}.
+         */
+        protected StoredPieceList unplacedPieces;
+
+        /**
+         * The handles of the placed pieces in {@link #pieceStore}, by position, with {@link
+         * PieceStore#NO_PIECE} for spots that haven't been filled.
+         */
+        protected int[][] solution;
+        protected SideTable sideTable;
         protected int x, y;
 
-        protected State(int width, int height, PieceList unplacedPieces) {
-            solution = new Piece[width][height];
+        /**
+         * All of the pieces, placed or not, with the owner of each side that only one piece
+         * holds.
+         */
+        protected PieceStore pieceStore;
+
+        /**
+         * The unplaced pieces that have flat sides, by which sides are flat.
+         */
+        protected BorderIndex borderIndex;
+
+        /**
+         * ID of {@link SimpleSide#FLAT} in {@link #sideTable}, or {@link SideTable#NO_SIDE} if no
+         * piece has a flat side.
+         */
+        protected int flatSideId = SideTable.NO_SIDE;
+
+        protected State(int width, int height, StoredPieceList unplacedPieces,
+                        SideTable sideTable) {
+            solution = new int[width][height];
+            for (int[] column : solution) {
+                Arrays.fill(column, PieceStore.NO_PIECE);
+            }
             this.unplacedPieces = unplacedPieces;
+            this.sideTable = sideTable;
         }
 
         protected int width() {
@@ -50,28 +87,54 @@ public abstract class AbstractSolver implements Solver {
     }
 
     protected State state;
+
+    /**
+     * Mask of the flat sides of the corner that goes in the top-left of the solution.
+     */
+    protected static final int TOP_LEFT_CORNER =
+        BorderIndex.maskOf(Direction.NORTH, Direction.WEST);
+
+    /**
+     * Probe filled in by {@link #makePiece(State)}, so that probing doesn't allocate.
+     */
+    private final PieceProbe probe = new PieceProbe();
     private int totalPieces;
     private int placedPieces;
 
     @Override
     public void init(Piece[] pieces) {
-        PieceList unplacedPieces = makePieceList(pieces);
+        SideTable sideTable = new SideTable(pieces.length * 2);
 
-        // Add all pieces to the list, and count edge pieces as we go
+        // Prepare all the pieces, and count edge pieces as we go
         int edges = 0;
         for (Piece piece : pieces) {
+            piece.simplifySides(Constants.SIMPLIFY_TOLERANCE); // Fewer points to compare
+            if (Constants.COMPACT_SIDES) {
+                piece.compactSides(); // Less memory per side
+            }
+            piece.internSides(sideTable); // Give each side an ID, and link it to its mate
             if (piece.definitelyType(PieceType.EDGE)) {
                 edges++;
             }
-            unplacedPieces.add(piece);
         }
 
-        totalPieces = unplacedPieces.size(); // Keep this for later
-        placedPieces = 0; // Make sure this gets reset
-
         // Calculate dimensions of the puzzle. Use number of edges + 4 corners for perimeter.
         final Pair<Integer, Integer> dimensions = Funcs.getDimensions(edges + 4, pieces.length);
-        state = new State(dimensions.left, dimensions.right, unplacedPieces);
+        state = new State(dimensions.left, dimensions.right, null, sideTable);
+        state.pieceStore = new PieceStore(sideTable, pieces.length);
+        state.borderIndex = new BorderIndex(state.pieceStore, edges + 4);
+        for (Piece piece : pieces) {
+            // Handles follow the order of the array
+            state.borderIndex.add(state.pieceStore.add(piece));
+        }
+        state.flatSideId = sideTable.idOf(SimpleSide.FLAT);
+
+        state.unplacedPieces = makePieceList(state.pieceStore);
+        // Much faster than adding them one at a time
+        state.unplacedPieces.addHandles(0, state.pieceStore.size());
+
+        totalPieces = state.unplacedPieces.size(); // Keep this for later
+        placedPieces = 0; // Make sure this gets reset
     }
 
     @Override
@@ -98,9 +161,24 @@ public abstract class AbstractSolver implements Solver {
         return state.unplacedPieces;
     }
 
+    /**
+     * Gets the solution as pieces, for the UI. The pieces are the views of the placed pieces in the
+     * state's {@link PieceStore}, and the array is made anew on each call.
+     *
+     * @return the placed pieces by position, with {@code null} for spots that haven't been filled
+     */
     @Override
     public Piece[][] getSolution() {
-        return state.solution;
+        final Piece[][] solution = new Piece[state.width()][state.height()];
+        for (int x = 0; x < solution.length; x++) {
+            for (int y = 0; y < solution[x].length; y++) {
+                final int handle = state.solution[x][y];
+                if (handle != PieceStore.NO_PIECE) {
+                    solution[x][y] = state.pieceStore.view(handle);
+                }
+            }
+        }
+        return solution;
     }
 
     @Override
@@ -114,13 +192,14 @@ public abstract class AbstractSolver implements Solver {
     }
 
     /**
-     * Turn the given array of pieces into a {@link PieceList}. This list will be used as the set
-     * of pieces to pull from when solving the puzzle.
+     * Makes the list that will be used as the set of pieces to pull from when solving the puzzle.
+     * It is made once the state's {@link PieceStore} holds the pieces, and is filled with every
+     * handle in the store after it is returned.
      *
-     * @param pieces the set of pieces to be used
-     * @return a {@link PieceList} of the same pieces
+     * @param pieceStore the store that holds the pieces to be used
+     * @return an empty list of pieces in the given store
      */
-    protected abstract PieceList makePieceList(Piece[] pieces);
+    protected abstract StoredPieceList makePieceList(PieceStore pieceStore);
 
     /**
      * Place the first corner down in an empty solution. Undefined results if you call this when
@@ -140,45 +219,114 @@ public abstract class AbstractSolver implements Solver {
 
     /**
      * Makes a piece as accurately as possible to fit at the state's x and y, using the pieces
-     * adjacent to that spot.
+     * adjacent to that spot. The piece is this solver's shared probe, so it is only valid until
+     * the next call.
      *
      * @param state the current state of the puzzle/solver
      * @return the constructed piece
      */
-    protected Piece makePiece(State state) {
-        return makePiece(state, state.x, state.y);
+    protected PieceProbe makePiece(State state) {
+        return makePiece(state, state.x, state.y, probe);
     }
 
     /**
-     * Makes a piece as accurately as possible to fit at the given x and y, using the pieces
-     * adjacent to that spot.
+     * Fills in the given probe as accurately as possible to fit at the given x and y, using the
+     * pieces adjacent to that spot.
      *
      * @param state the current state of the puzzle/solver
      * @param x     the x position to make a piece for
      * @param y     the y position to make a piece for
-     * @return the constructed piece
+     * @param probe the probe to fill in, which is cleared first
+     * @return the probe, after filling it in
+     * @throws IllegalStateException if the spot has no known sides
      */
-    protected Piece makePiece(State state, int x, int y) {
-        Piece.Builder builder = new Piece.Builder();
+    protected PieceProbe makePiece(State state, int x, int y, PieceProbe probe) {
+        probe.clear();
         for (Direction dir : Direction.values()) { // For each side
             final int dirX = x + dir.x;
             final int dirY = y + dir.y;
 
             if (dirX < 0 || dirX >= state.width() || dirY < 0 || dirY >= state.height()) {
-                // If x or y is out of bounds, make a flat side
-                builder.setSide(new SimpleSide(new Point(0d, 0d),
-                                               new Point(Constants.SIDE_LENGTH, 0d)), dir);
-            } else if (state.solution[dirX][dirY] != null) {
-                // If there is an adjacent piece, get its neighboring side
-                builder.setSide(state.solution[dirX][dirY].getSide(dir.opposite()).inverse(), dir);
+                // If x or y is out of bounds, use a flat side
+                probe.setSide(SimpleSide.FLAT, state.flatSideId, dir);
+            } else if (state.solution[dirX][dirY] != PieceStore.NO_PIECE) {
+                // If there is an adjacent piece, get the mate of its neighboring side
+                final int neighbour = state.solution[dirX][dirY];
+                final int mateId = mateIdOf(state, neighbour, dir.opposite());
+                if (mateId != SideTable.NO_SIDE) {
+                    probe.setSide(state.sideTable.get(mateId), mateId, dir);
+                } else {
+                    probe.setSide(state.pieceStore.side(neighbour, dir.opposite()).inverse(), dir);
+                }
+            }
+        }
+        if (probe.isEmpty()) {
+            throw new IllegalStateException("At least one side must be non-null");
+        }
+        return probe;
+    }
+
+    /**
+     * Gets the ID of the side that fits against the given piece's side in the given direction,
+     * from the state's {@link SideTable}. When there is no known mate, the caller has to fall back
+     * to building the inverse of the side.
+     *
+     * @param state  the current state of the puzzle/solver
+     * @param handle the handle of the piece that the side belongs to
+     * @param dir    the direction of the side in that piece, as it is turned now
+     * @return the ID of a side equal to the inverse of the piece's side, or {@link
+     * SideTable#NO_SIDE} if there is none
+     */
+    protected int mateIdOf(State state, int handle, Direction dir) {
+        final int sideId = state.pieceStore.sideId(handle, dir);
+        if (state.sideTable != null && sideId != SideTable.NO_SIDE) {
+            return state.sideTable.mateId(sideId);
+        }
+        return SideTable.NO_SIDE;
+    }
+
+    /**
+     * Finds an unplaced piece that fits the given probe in any rotation, and rotates it to fit.
+     *
+     * When the probe has a side that only one piece holds, that piece is the only one that can
+     * fit, so it is taken from the state's {@link PieceStore} and checked against the store's side
+     * IDs, without searching the list at all. Otherwise, like for probes made only of flat sides,
+     * the list is searched with {@link StoredPieceList#findRotatedHandle}.
+     *
+     * @param state the current state of the puzzle/solver
+     * @param probe the piece to be found
+     * @return the handle of the piece that fits, rotated so that it fits the probe as it was
+     * passed in, or {@link PieceStore#NO_PIECE} if no piece fits
+     */
+    protected int findRotated(State state, Piece probe) {
+        final PieceStore pieceStore = state.pieceStore;
+        for (Direction dir : Direction.values()) {
+            final int sideId = probe.getSideId(dir);
+            if (sideId != SideTable.NO_SIDE && !pieceStore.isShared(sideId)) {
+                final int owner = pieceStore.owner(sideId);
+                if (owner == PieceStore.NO_PIECE) {
+                    return PieceStore.NO_PIECE; // The only piece with this side has been placed
+                }
+                final int rotation = pieceStore.fit(owner, sideId, dir, probe);
+                if (rotation < 0) {
+                    return PieceStore.NO_PIECE;
+                }
+                pieceStore.turn(owner, rotation);
+                return owner;
             }
         }
-        return builder.build();
+
+        // No side to go by, so let the list look for the probe in any rotation
+        return state.unplacedPieces.findRotatedHandle(probe);
     }
 
-    protected void placePiece(State state, Piece piece) {
-        state.solution[state.x][state.y] = piece; // Put the piece in the solution
-        state.unplacedPieces.remove(piece); // Remove the piece from the bag of unplaced ones
+    protected void placePiece(State state, int handle) {
+        state.solution[state.x][state.y] = handle; // Put the piece in the solution
+        state.unplacedPieces.removeHandle(handle); // Remove the piece from the bag of unplaced ones
+        state.pieceStore.markPlaced(handle); // It no longer owns its sides
+        if (state.borderIndex != null) {
+            state.borderIndex.remove(handle);
+        }
         placedPieces++; // Keep track of how many we've placed
     }
 
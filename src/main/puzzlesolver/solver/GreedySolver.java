@@ -9,8 +9,10 @@ import puzzlesolver.Funcs;
 import puzzlesolver.Pair;
 import puzzlesolver.Piece;
 import puzzlesolver.PieceNotFoundException;
+import puzzlesolver.PieceProbe;
+import puzzlesolver.PieceStore;
+import puzzlesolver.constants.Constants;
 import puzzlesolver.enums.Direction;
-import puzzlesolver.enums.PieceType;
 
 /**
  * A greedy solver is one that tries to put in easiest piece next, rather than by simply placing
@@ -30,13 +32,20 @@ import puzzlesolver.enums.PieceType;
  */
 public class GreedySolver extends PieceTypeRotationSolver {
 
-    private final Map<Coord, Pair<Piece, Float>> pieceCache = new HashMap<>();
+    /**
+     * Score of a spot that no unplaced piece can fit. Placing more pieces around it can only rule
+     * out more pieces, so it will never be filled, and it is tried before anything else so that
+     * the solver gives up (or rotates the solution) right away.
+     */
+    protected static final float DEAD_END = -1f;
+
+    private final Map<Coord, Pair<PieceProbe, Float>> pieceCache = new HashMap<>();
 
     @Override
     public void nextStep() throws PieceNotFoundException {
         if (!done()) {
             // If this is the first piece, find the first corner in the list and place it
-            if (state.solution[0][0] == null) {
+            if (state.solution[0][0] == PieceStore.NO_PIECE) {
                 placeCorner(state); // Place the first piece in the puzzle
             } else {
                 placeNextPiece(state); // Place the next piece in the puzzle
@@ -46,39 +55,23 @@ public class GreedySolver extends PieceTypeRotationSolver {
 
     @Override
     protected void placeCorner(State state) {
-        for (int i = 0; i < state.unplacedPieces.size(); i++) {
-            Piece piece = state.unplacedPieces.get(Direction.NORTH, i);
-
-            // For the first corner piece found
-            if (piece.definitelyType(PieceType.CORNER)) {
-                // Rotate it until it fits in the top-left corner
-                while (!piece.getSide(Direction.NORTH).isFlat()
-                       || !piece.getSide(Direction.WEST).isFlat()) {
-                    piece.rotate(Direction.NORTH, Direction.EAST);
-                }
-                placePiece(state, piece);
-                return; // We placed it, done!
-            }
+        // Take any corner, already rotated until it fits in the top-left corner
+        final int piece = state.borderIndex.getRotated(TOP_LEFT_CORNER);
+        if (piece != PieceStore.NO_PIECE) {
+            placePiece(state, piece);
         }
     }
 
     @Override
     protected void placeNextPiece(State state) throws PieceNotFoundException {
-        final Map.Entry<Coord, Pair<Piece, Float>> easiestPieceEntry = getEasiestPiece();
+        final Map.Entry<Coord, Pair<PieceProbe, Float>> easiestPieceEntry = getEasiestPiece();
         state.x = easiestPieceEntry.getKey().x;
         state.y = easiestPieceEntry.getKey().y;
         final Piece easiestPiece = easiestPieceEntry.getValue().left;
-        Piece foundPiece = state.unplacedPieces.find(easiestPiece);
-        int rotations;
-        // Look for matches, and rotat the piece up to 3 times if no matches are found
-        for (rotations = 0; foundPiece == null && rotations < Direction.values().length - 1;
-             rotations++) {
-            easiestPiece
-                .rotate(Direction.NORTH, Direction.EAST); // If no matches were found, rotate once
-            foundPiece = state.unplacedPieces.find(easiestPiece); // Try again
-        }
+        // Look for a match in any rotation, already rotated to fit
+        final int foundPiece = findRotated(state, easiestPiece);
 
-        if (foundPiece == null) { // If it didn't find a piece
+        if (foundPiece == PieceStore.NO_PIECE) { // If it didn't find a piece
             if (rotateSolutionIfHelpful(state)) {
                 rebuildCacheAfterRotation(state); // Replace now-invalid cached pieces
                 placeNextPiece(state); // Call again with the newly-rotated solution
@@ -87,12 +80,11 @@ public class GreedySolver extends PieceTypeRotationSolver {
             throw new PieceNotFoundException(state.x, state.y); // Solution wasn't rotated. GG BOYS.
         }
 
-        foundPiece.rotate(Direction.values()[rotations], Direction.NORTH); // Rotate it back
         placePiece(state, foundPiece);
     }
 
     @Override
-    protected void placePiece(State state, Piece piece) {
+    protected void placePiece(State state, int piece) {
         super.placePiece(state, piece); // Put the piece in the solution
         pieceCache
             .remove(new Coord(state.x, state.y)); // Evict the piece that changed from the cache
@@ -102,15 +94,18 @@ public class GreedySolver extends PieceTypeRotationSolver {
             final Coord coord = new Coord(state.x + dir.x, state.y + dir.y);
             // Cache the adjacent piece, if it's in bounds
             if (Funcs.coordsInBounds(state.width(), state.height(), coord.x, coord.y)
-                && state.solution[coord.x][coord.y] == null) {
+                && state.solution[coord.x][coord.y] == PieceStore.NO_PIECE) {
                 cachePiece(state, coord);
             }
         }
     }
 
-    private Map.Entry<Coord, Pair<Piece, Float>> getEasiestPiece() {
-        Map.Entry<Coord, Pair<Piece, Float>> easiestPiece = null;
-        for (Map.Entry<Coord, Pair<Piece, Float>> entry : pieceCache.entrySet()) {
+    private Map.Entry<Coord, Pair<PieceProbe, Float>> getEasiestPiece() {
+        Map.Entry<Coord, Pair<PieceProbe, Float>> easiestPiece = null;
+        for (Map.Entry<Coord, Pair<PieceProbe, Float>> entry : pieceCache.entrySet()) {
+            if (entry.getValue().right == DEAD_END) {
+                return entry; // Nothing can be easier to rule out
+            }
             if (easiestPiece == null || entry.getValue().right < easiestPiece.getValue().right) {
                 easiestPiece = entry;
             }
@@ -149,23 +144,34 @@ public class GreedySolver extends PieceTypeRotationSolver {
      * @param coord the coord of the piece to be cached
      */
     private void cachePiece(State state, Coord coord) {
-        final Piece piece = makePiece(state, coord.x, coord.y); // Re-make the piece
+        // Re-make the piece, reusing the old probe for this spot if there is one
+        final Pair<PieceProbe, Float> cached = pieceCache.get(coord);
+        final PieceProbe piece = makePiece(state, coord.x, coord.y,
+                                           cached != null ? cached.left : new PieceProbe());
         pieceCache.put(coord, new Pair<>(piece, scorePiece(state, piece)));
     }
 
     /**
      * Gets a score representing how difficult the given piece will be to place in the solution. A
-     * lower score means it will be easier, higher score means it will be more difficult.
+     * lower score means it will be easier, higher score means it will be more difficult. The score
+     * is how many unplaced pieces could actually fit the given piece, in any rotation, counted with
+     * {@link puzzlesolver.piecelist.StoredPieceList#countCandidates}, so a spot that only one piece
+     * can fill scores 1. A spot that no piece can fill scores {@link #DEAD_END}.
      *
-     * @param foundPiece the piece trying to be placed
+     * @param foundPiece the piece trying to be placed, which is turned all the way around and so
+     *                   left as it was
      * @param state      the current state of the puzzle/solver
      * @return the difficulty score
      */
     protected float scorePiece(State state, Piece foundPiece) {
+        final int lookupDir = foundPiece.lookupDirection().ordinal();
         int totalPotentialMatches = 0;
-        for (PieceType pieceType : foundPiece.getPieceTypes()) {
-            totalPotentialMatches += state.unplacedPieces.sublistByType(pieceType).size();
+        for (int turns = 0; turns < Constants.NUM_SIDES; turns++) {
+            // After this many clockwise turns, the lookup side has moved on that many directions
+            final Direction dir = Direction.values()[(lookupDir + turns) % Constants.NUM_SIDES];
+            totalPotentialMatches += state.unplacedPieces.countCandidates(foundPiece, dir);
+            foundPiece.rotate(Direction.NORTH, Direction.EAST);
         }
-        return 1f / totalPotentialMatches;
+        return totalPotentialMatches == 0 ? DEAD_END : totalPotentialMatches;
     }
 }
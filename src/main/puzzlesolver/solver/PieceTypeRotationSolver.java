@@ -1,13 +1,19 @@
 package puzzlesolver.solver;
 
-import puzzlesolver.Piece;
-import puzzlesolver.piecelist.PieceList;
+import puzzlesolver.PieceStore;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.piecelist.HashPieceList;
 import puzzlesolver.piecelist.PieceTypePieceList;
+import puzzlesolver.piecelist.StoredPieceList;
 
 public class PieceTypeRotationSolver extends RotationSolver {
 
     @Override
-    protected PieceList makePieceList(Piece[] pieces) {
-        return new PieceTypePieceList(pieces.length);
+    protected StoredPieceList makePieceList(PieceStore pieceStore) {
+        if (Constants.HASH_PIECE_LIST) {
+            // Keep the lists by type, so that sublistByType still works
+            return new PieceTypePieceList(pieceStore, pieceStore.size(), HashPieceList::new);
+        }
+        return new PieceTypePieceList(pieceStore, pieceStore.size());
     }
 }
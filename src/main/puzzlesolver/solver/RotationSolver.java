@@ -1,9 +1,10 @@
 package puzzlesolver.solver;
 
+import java.util.Arrays;
+
 import puzzlesolver.Piece;
 import puzzlesolver.PieceNotFoundException;
-import puzzlesolver.enums.Direction;
-import puzzlesolver.enums.PieceType;
+import puzzlesolver.PieceStore;
 
 public class RotationSolver extends SimpleSolver {
 
@@ -20,36 +21,19 @@ public class RotationSolver extends SimpleSolver {
 
     @Override
     protected void placeCorner(State state) throws PieceNotFoundException {
-        for (int i = 0; i < state.unplacedPieces.size(); i++) {
-            Piece piece = state.unplacedPieces.get(Direction.NORTH, i);
-
-            // For the first corner piece found
-            if (piece.definitelyType(PieceType.CORNER)) {
-                // Rotate it until it fits in the top-left corner
-                while (!piece.getSide(Direction.NORTH).isFlat()
-                       || !piece.getSide(Direction.WEST).isFlat()) {
-                    piece.rotate(Direction.NORTH, Direction.EAST);
-                }
-                placePiece(state, piece);
-                state.unplacedPieces.remove(piece);
-                return; // We placed it, done!
-            }
+        // Take any corner, already rotated until it fits in the top-left corner
+        final int piece = state.borderIndex.getRotated(TOP_LEFT_CORNER);
+        if (piece != PieceStore.NO_PIECE) {
+            placePiece(state, piece);
         }
     }
 
     @Override
     protected void placeNextPiece(State state) throws PieceNotFoundException {
-        final Piece madePiece = makePiece(state);
-        Piece foundPiece = state.unplacedPieces.find(madePiece);
-        int rotations;
-        // Look for matches, and rotates the piece up to 3 times if no matches are found
-        for (rotations = 0; foundPiece == null && rotations < Direction.values().length - 1;
-             rotations++, foundPiece = state.unplacedPieces.find(madePiece)) {
-            madePiece
-                .rotate(Direction.NORTH, Direction.EAST); // If no matches were found, rotate once
-        }
+        // Look for a match in any rotation, already rotated to fit
+        final int foundPiece = findRotated(state, makePiece(state));
 
-        if (foundPiece == null) { // If it didn't find a piece
+        if (foundPiece == PieceStore.NO_PIECE) { // If it didn't find a piece
             if (rotateSolutionIfHelpful(state)) {
                 placeNextPiece(state); // Call again with the newly-rotated solution
                 return;
@@ -57,9 +41,7 @@ public class RotationSolver extends SimpleSolver {
             throw new PieceNotFoundException(state.x, state.y);
         }
 
-        foundPiece.rotate(Direction.values()[rotations], Direction.NORTH); // Rotate it back
-        placePiece(state, foundPiece); // Put it in the solution
-        state.unplacedPieces.remove(foundPiece); // Remove it from the list of unplaced pieces
+        placePiece(state, foundPiece); // Put it in the solution, and out of the unplaced pieces
     }
 
     /**
@@ -93,13 +75,14 @@ public class RotationSolver extends SimpleSolver {
         final int newWidth = state.height();
         final int newHeight = state.width();
 
-        Piece[][]
-            newSolution =
-            new Piece[newWidth][newHeight]; // Make a new solution with w/h swapped
+        // Make a new solution with w/h swapped, with every spot empty
+        final int[][] newSolution = new int[newWidth][newHeight];
+        for (int[] column : newSolution) {
+            Arrays.fill(column, PieceStore.NO_PIECE);
+        }
         final int minDimension = Math.min(newWidth, newHeight); // We'll need this soon
         for (int x = 0; x < newWidth && x < newHeight;
              x++) { // Copy the old data into the new solution
-            newSolution[x] = new Piece[newHeight];
             System.arraycopy(state.solution[x], 0, newSolution[x], 0, minDimension);
         }
         state.solution = newSolution;
@@ -1,34 +1,44 @@
 package puzzlesolver.solver;
 
-import puzzlesolver.Piece;
+import java.nio.file.Paths;
+
 import puzzlesolver.PieceNotFoundException;
-import puzzlesolver.enums.Direction;
-import puzzlesolver.enums.PieceType;
-import puzzlesolver.piecelist.PieceList;
+import puzzlesolver.PieceStore;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.piecelist.HashPieceList;
+import puzzlesolver.piecelist.MappedPieceList;
 import puzzlesolver.piecelist.SimplePieceList;
+import puzzlesolver.piecelist.StoredPieceList;
 
 public class SimpleSolver extends AbstractSolver {
 
     @Override
     protected void placeCorner(State state) throws PieceNotFoundException {
-        for (int i = 0; i < state.unplacedPieces.size(); i++) {
-            Piece piece = state.unplacedPieces.get(Direction.NORTH, i);
-            if (piece.definitelyType(PieceType.CORNER) && piece.getSide(Direction.NORTH).isFlat() &&
-                piece.getSide(Direction.WEST).isFlat()) {
-                placePiece(state, piece); // Put the piece in the solution
-                break;
-            }
+        // Straight from the border index, without looking through the rest of the pieces
+        final int piece = state.borderIndex.get(TOP_LEFT_CORNER);
+        if (piece != PieceStore.NO_PIECE) {
+            placePiece(state, piece); // Put the piece in the solution
         }
     }
 
     @Override
     protected void placeNextPiece(State state) throws PieceNotFoundException {
-        final Piece piece = state.unplacedPieces.find(makePiece(state));
+        final int piece = state.unplacedPieces.findHandle(makePiece(state));
+        if (piece == PieceStore.NO_PIECE) {
+            throw new PieceNotFoundException(state.x, state.y);
+        }
         placePiece(state, piece); // Put the piece in the solution
     }
 
     @Override
-    protected PieceList makePieceList(Piece[] pieces) {
-        return new SimplePieceList(pieces.length);
+    protected StoredPieceList makePieceList(PieceStore pieceStore) {
+        if (Constants.MAPPED_PIECE_LIST != null) {
+            // Records are written in the order of the handles they are added with
+            return new MappedPieceList(Paths.get(Constants.MAPPED_PIECE_LIST), pieceStore);
+        }
+        if (Constants.HASH_PIECE_LIST) {
+            return new HashPieceList(pieceStore, pieceStore.size());
+        }
+        return new SimplePieceList(pieceStore, pieceStore.size());
     }
 }
@@ -49,7 +49,8 @@ class PuzzleRenderer {
     /**
      * Get a global point from a local point.
      *
-     * @param localPoint   local point to calculate from
+     * @param localX       x-coordinate of the local point to calculate from
+     * @param localY       y-coordinate of the local point to calculate from
      * @param orientation  direction of parent side
      * @param pieceX       x-position in 2D points array
      * @param pieceY       y-position in 2D points array
@@ -57,10 +58,10 @@ class PuzzleRenderer {
      * @param windowHeight width of window to render in
      * @return global point
      */
-    static Point getGlobalPoint(Point localPoint, Direction orientation, int pieceX,
+    static Point getGlobalPoint(double localX, double localY, Direction orientation, int pieceX,
                                 int pieceY, int puzzleWidth, int puzzleHeight,
                                 double windowWidth, double windowHeight) {
-        Objects.requireNonNull(localPoint);
+        Objects.requireNonNull(orientation);
         // May have to scale. For now, made a placeholder.
         final double scaledPadding = UIConstants.VISUAL_PIECE_PADDING;
         final boolean yConstraint = Double.compare(windowWidth, windowHeight) > 0;
@@ -91,22 +92,22 @@ class PuzzleRenderer {
 
         switch (orientation) {
             case NORTH:
-                pointGlobalX += scaleX * localPoint.x;
-                pointGlobalY -= scaleY * localPoint.y;
+                pointGlobalX += scaleX * localX;
+                pointGlobalY -= scaleY * localY;
                 break;
             case EAST:
                 pointGlobalX += scaledPieceSideLength;
-                pointGlobalX += scaleX * localPoint.y;
-                pointGlobalY += scaleY * localPoint.x;
+                pointGlobalX += scaleX * localY;
+                pointGlobalY += scaleY * localX;
                 break;
             case SOUTH:
                 pointGlobalY += scaledPieceSideLength;
-                pointGlobalX += scaleX * localPoint.x;
-                pointGlobalY += scaleY * localPoint.y;
+                pointGlobalX += scaleX * localX;
+                pointGlobalY += scaleY * localY;
                 break;
             case WEST:
-                pointGlobalY += scaleY * localPoint.x;
-                pointGlobalX -= scaleX * localPoint.y;
+                pointGlobalY += scaleY * localX;
+                pointGlobalX -= scaleX * localY;
                 break;
             default:
                 throw new EnumConstantNotPresentException(Direction.class, orientation.name());
@@ -233,12 +234,12 @@ class PuzzleRenderer {
                     new Color(0.8d - 0.7d * x / puzzleWidth - randomVariant,
                               0.7d * x / puzzleWidth + randomVariant,
                               0.8d - 0.7d * y / puzzleHeight - randomVariant, 1.0d));
-                Point[] points = s.getPoints();
-                if (direction == Direction.SOUTH || direction == Direction.WEST) {
-                    ArrayUtils.reverse(points);
-                }
-                for (Point point : points) {
-                    Point globalPoint = getGlobalPoint(point, direction, x, y,
+                final int pointCount = s.pointCount();
+                final boolean reversed =
+                    direction == Direction.SOUTH || direction == Direction.WEST;
+                for (int i = 0; i < pointCount; i++) {
+                    final int index = reversed ? pointCount - 1 - i : i;
+                    Point globalPoint = getGlobalPoint(s.x(index), s.y(index), direction, x, y,
                                                        puzzleWidth, puzzleHeight,
                                                        windowWidth, windowHeight);
                     xs.add(globalPoint.x);
@@ -0,0 +1,99 @@
+package puzzlesolver;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.generator.SimpleGenerator;
+
+public class BorderIndexTest {
+
+    private static final int TOP_LEFT = BorderIndex.maskOf(Direction.NORTH, Direction.WEST);
+
+    private Piece[] pieces;
+    private PieceStore store;
+    private BorderIndex index;
+
+    @Before
+    public void setUp() {
+        Constants.RANDOM.setSeed("BorderIndexTest".hashCode());
+        pieces = new SimpleGenerator().generate(10, 10);
+        store = new PieceStore(pieces.length);
+        index = new BorderIndex(store, 0); // Small, so that it has to grow
+        for (Piece piece : pieces) {
+            index.add(store.add(piece));
+        }
+    }
+
+    @Test
+    public void testAdd() {
+        assertEquals(36, index.size()); // Only the border pieces
+        assertEquals(1, index.size(TOP_LEFT));
+        assertEquals(8, index.size(BorderIndex.maskOf(Direction.SOUTH)));
+        assertEquals(0, index.size(0));
+        assertFalse(index.add(index.get(TOP_LEFT))); // Already indexed
+        for (int handle = 0; handle < store.size(); handle++) {
+            if (BorderIndex.flatMask(store.view(handle)) == 0) {
+                assertFalse(index.add(handle));
+            }
+        }
+    }
+
+    @Test
+    public void testGet() {
+        final Piece corner = store.view(index.get(TOP_LEFT));
+        assertTrue(corner.getSide(Direction.NORTH).isFlat());
+        assertTrue(corner.getSide(Direction.WEST).isFlat());
+        assertFalse(corner.getSide(Direction.EAST).isFlat());
+
+        final int east = BorderIndex.maskOf(Direction.EAST);
+        for (int i = 0; i < 8; i++) {
+            final int edge = index.get(east);
+            assertEquals(east, BorderIndex.flatMask(store.view(edge)));
+            assertTrue(index.remove(edge));
+            assertFalse(index.remove(edge));
+        }
+        assertEquals(PieceStore.NO_PIECE, index.get(east));
+        assertEquals(28, index.size());
+    }
+
+    @Test
+    public void testGetRotated() {
+        // Every corner can be turned to go in the top-left, and each comes up once
+        for (int i = 0; i < 4; i++) {
+            final int corner = index.getRotated(TOP_LEFT);
+            assertEquals(TOP_LEFT, BorderIndex.flatMask(store.view(corner)));
+            assertEquals(TOP_LEFT, index.flatMask(corner));
+            assertEquals(corner, index.get(TOP_LEFT)); // Found with its new mask
+            assertTrue(index.remove(corner));
+        }
+        assertEquals(PieceStore.NO_PIECE, index.getRotated(TOP_LEFT));
+
+        final int edge = index.getRotated(BorderIndex.maskOf(Direction.SOUTH));
+        assertEquals(BorderIndex.maskOf(Direction.SOUTH), BorderIndex.flatMask(store.view(edge)));
+    }
+
+    @Test
+    public void testTurnedOutside() {
+        // Turning a view directly doesn't leave the index behind
+        final int topRight = BorderIndex.maskOf(Direction.NORTH, Direction.EAST);
+        assertTrue(index.remove(index.get(topRight)));
+        final int corner = index.get(TOP_LEFT);
+        store.view(corner).rotate(Direction.NORTH, Direction.EAST);
+        assertEquals(topRight, index.flatMask(corner));
+        assertEquals(corner, index.get(topRight));
+        assertEquals(corner, index.getRotated(TOP_LEFT));
+        assertEquals(TOP_LEFT, BorderIndex.flatMask(store.view(corner)));
+        assertTrue(index.remove(corner));
+        assertEquals(34, index.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadMask() {
+        index.get(1 << Constants.NUM_SIDES);
+    }
+}
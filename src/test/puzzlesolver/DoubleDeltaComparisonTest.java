@@ -0,0 +1,30 @@
+package puzzlesolver;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DoubleDeltaComparisonTest {
+
+    @Test
+    public void testCompare() {
+        assertEquals(-1, DoubleDeltaComparison.compare(4.8999d, 5d, 0.1d));
+        assertEquals(0, DoubleDeltaComparison.compare(4.9d, 5d, 0.1d));
+        assertEquals(0, DoubleDeltaComparison.compare(5.1d, 5d, 0.1d));
+        assertEquals(1, DoubleDeltaComparison.compare(5.100001d, 5d, 0.1d));
+        assertEquals(0, DoubleDeltaComparison.compare(0d, -0d, 0d));
+        assertEquals(1, DoubleDeltaComparison.compare(Double.NaN, 5d, 0.1d));
+    }
+
+    @Test
+    public void testComparatorOverloads() {
+        final DoubleDeltaComparator comp = new DoubleDeltaComparator(0.1d);
+        final double[] values = {-5d, 4.8999d, 4.9d, 5d, 5.05d, 5.100001d};
+        for (double d1 : values) {
+            for (double d2 : values) {
+                assertEquals(comp.compare(Double.valueOf(d1), Double.valueOf(d2)),
+                             comp.compare(d1, d2));
+            }
+        }
+    }
+}
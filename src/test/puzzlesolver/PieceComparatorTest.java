@@ -0,0 +1,86 @@
+package puzzlesolver;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.generator.Generator;
+import puzzlesolver.generator.SimpleGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class PieceComparatorTest {
+
+    private static final int ITERATIONS = 1000000;
+
+    private Piece[] pieces;
+
+    @Before
+    public void setUp() {
+        Constants.RANDOM.setSeed("PieceComparatorTest".hashCode());
+        Generator gen = new SimpleGenerator();
+        pieces = gen.generate(4, 4);
+    }
+
+    @Test
+    public void testCompare() {
+        for (Direction dir : Direction.values()) {
+            final PieceComparator comparator = new PieceComparator(dir);
+            for (Piece p1 : pieces) {
+                assertEquals(0, comparator.compare(p1, p1));
+                for (Piece p2 : pieces) {
+                    assertEquals(p1.getSide(dir).compareTo(p2.getSide(dir)),
+                                 comparator.compare(p1, p2));
+                }
+            }
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testCompareNull() {
+        new PieceComparator(Direction.NORTH).compare(pieces[0], null);
+    }
+
+    /**
+     * Comparisons happen at every step of every binary search in the piece lists, so they must not
+     * allocate anything. Sides are immutable and shared, so nothing on the way needs copying.
+     */
+    @Test
+    public void testCompareAllocationFree() {
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean allocationBean =
+            (com.sun.management.ThreadMXBean) threadBean;
+        assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        final PieceComparator comparator = new PieceComparator(Direction.EAST);
+        final long threadId = Thread.currentThread().getId();
+        int result = 0;
+        result += compareAll(comparator); // Warm up, so class loading isn't counted
+
+        final long before = allocationBean.getThreadAllocatedBytes(threadId);
+        result += compareAll(comparator);
+        final long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+
+        // Allow for the few bytes that reading the counter itself might cost, which is far less
+        // than even one small object for every hundred comparisons
+        assertTrue("Allocated " + allocated + " bytes", allocated < ITERATIONS / 100);
+        assertTrue(result != Integer.MIN_VALUE); // Keep the comparisons from being optimized away
+    }
+
+    private int compareAll(PieceComparator comparator) {
+        int result = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            result += comparator.compare(pieces[i % pieces.length],
+                                         pieces[(i * 7 + 3) % pieces.length]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package puzzlesolver;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.enums.PieceType;
+import puzzlesolver.generator.Generator;
+import puzzlesolver.generator.SimpleGenerator;
+import puzzlesolver.piecelist.SimplePieceList;
+import puzzlesolver.side.SideTable;
+import puzzlesolver.side.SimpleSide;
+
+public class PieceProbeTest {
+
+    private Piece[] pieces;
+    private PieceProbe probe;
+
+    @Before
+    public void setUp() {
+        Constants.RANDOM.setSeed("PieceProbeTest".hashCode());
+        Generator gen = new SimpleGenerator();
+        pieces = gen.generate(4, 4);
+        probe = new PieceProbe();
+    }
+
+    @Test
+    public void testFill() {
+        assertTrue(probe.isEmpty());
+        probe.setSide(SimpleSide.FLAT, 3, Direction.NORTH).setSide(SimpleSide.FLAT, Direction.WEST);
+        assertFalse(probe.isEmpty());
+        assertTrue(probe.getSide(Direction.NORTH) == SimpleSide.FLAT);
+        assertEquals(3, probe.getSideId(Direction.NORTH));
+        assertEquals(SideTable.NO_SIDE, probe.getSideId(Direction.WEST));
+        assertTrue(probe.sideNull(Direction.SOUTH));
+        assertTrue(probe.canBeType(PieceType.CORNER));
+
+        // Types are looked up again after the sides change, and clearing undoes rotation
+        final SimpleSide outSide = new SimpleSide(new Point(0, 0), new Point(5, 1),
+                                                  new Point(Constants.SIDE_LENGTH, 0));
+        probe.rotate(Direction.NORTH, Direction.SOUTH);
+        probe.clear().setSide(outSide, Direction.NORTH);
+        assertTrue(probe.sideNull(Direction.SOUTH));
+        assertTrue(probe.getSide(Direction.NORTH) == outSide);
+        assertEquals(SideTable.NO_SIDE, probe.getSideId(Direction.NORTH));
+        assertTrue(probe.canBeType(PieceType.ALL_OUT));
+        assertFalse(probe.canBeType(PieceType.ALL_IN));
+    }
+
+    @Test
+    public void testFind() {
+        final SimplePieceList list = new SimplePieceList(pieces.length);
+        list.addAll(pieces);
+        for (Piece piece : pieces) {
+            probe.clear();
+            for (Direction dir : Direction.values()) {
+                probe.setSide(piece.getSide(dir), dir);
+            }
+            assertEquals(piece, list.find(probe));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package puzzlesolver;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.enums.PieceType;
+import puzzlesolver.generator.Generator;
+import puzzlesolver.generator.PolypointGenerator;
+import puzzlesolver.side.Side;
+import puzzlesolver.side.SideTable;
+
+public class PieceStoreTest {
+
+    private Piece[] pieces;
+    private SideTable sideTable;
+    private PieceStore store;
+
+    @Before
+    public void setUp() {
+        Constants.RANDOM.setSeed("PieceStoreTest".hashCode());
+        Generator gen = new PolypointGenerator();
+        pieces = gen.generate(3, 3);
+        sideTable = new SideTable();
+        store = new PieceStore(sideTable, 4); // Small, so that it has to grow
+        for (Piece piece : pieces) {
+            piece.internSides(sideTable);
+            store.add(piece);
+        }
+    }
+
+    @Test
+    public void testAdd() {
+        assertEquals(pieces.length, store.size());
+        for (int i = 0; i < pieces.length; i++) {
+            assertEquals(i, store.handleOf(pieces[i]));
+            assertTrue(pieces[i] == store.view(i));
+            assertEquals(pieces[i].getPieceTypeMask(), store.typeMask(i));
+            for (Direction dir : Direction.values()) {
+                assertEquals(pieces[i].getSideId(dir), store.sideId(i, dir));
+            }
+        }
+        assertEquals(PieceStore.NO_PIECE, store.handleOf(pieces[0].copy()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddNotInterned() {
+        store.add(new Piece.Builder().setSide(pieces[0].getSide(Direction.NORTH), Direction.NORTH)
+                      .build());
+    }
+
+    /**
+     * Gets the handle of the only piece without a flat side.
+     */
+    private int centerHandle() {
+        for (int handle = 0; handle < store.size(); handle++) {
+            if (!store.view(handle).canBeType(PieceType.EDGE)
+                && !store.view(handle).canBeType(PieceType.CORNER)) {
+                return handle;
+            }
+        }
+        throw new IllegalStateException("No center piece");
+    }
+
+    @Test
+    public void testOwners() {
+        // The center piece's sides are all unique, and the border pieces share their flat sides
+        final int centerHandle = centerHandle();
+        final Piece center = store.view(centerHandle);
+        for (Direction dir : Direction.values()) {
+            assertFalse(store.isShared(center.getSideId(dir)));
+            assertEquals(centerHandle, store.owner(center.getSideId(dir)));
+        }
+        final Piece border = pieces[centerHandle == 0 ? 1 : 0];
+        for (Direction dir : Direction.values()) {
+            if (border.getSide(dir).isFlat()) {
+                assertTrue(store.isShared(border.getSideId(dir)));
+                assertEquals(PieceStore.NO_PIECE, store.owner(border.getSideId(dir)));
+            }
+        }
+
+        store.markPlaced(centerHandle);
+        assertTrue(store.isPlaced(centerHandle));
+        assertEquals(PieceStore.NO_PIECE, store.owner(center.getSideId(Direction.NORTH)));
+        assertFalse(store.isShared(center.getSideId(Direction.NORTH)));
+    }
+
+    @Test
+    public void testFitAndTurn() {
+        final int centerHandle = centerHandle();
+        final Piece center = store.view(centerHandle);
+        final Piece original = center.copy();
+        final int northId = center.getSideId(Direction.NORTH);
+
+        // Probe with the center's north side turned to face south, plus its west side without an ID
+        final Piece probe = new Piece.Builder()
+            .setSide(center.getSide(Direction.NORTH), northId, Direction.SOUTH)
+            .setSide(center.getSide(Direction.WEST), Direction.EAST).build();
+        assertEquals(2, store.fit(centerHandle, probe));
+        assertEquals(2, store.fit(centerHandle, northId, Direction.SOUTH, probe));
+        assertEquals(-1, store.fit(centerHandle, northId, Direction.NORTH, probe));
+        assertEquals(-1, store.fit(centerHandle == 0 ? 1 : 0, probe));
+
+        final Piece turned = store.turn(centerHandle, 2);
+        assertTrue(center == turned);
+        assertEquals(2, store.rotation(centerHandle));
+        assertEquals(original.copyRotate(Direction.NORTH, Direction.SOUTH), turned);
+        store.turn(centerHandle, 1);
+        assertEquals(original.copyRotate(Direction.NORTH, Direction.EAST), center);
+    }
+
+    @Test
+    public void testTurnedOutside() {
+        // The rotation comes from the view, so turning it directly keeps the store up to date
+        final int centerHandle = centerHandle();
+        final Piece center = store.view(centerHandle);
+        final Piece original = center.copy();
+        final int northId = center.getSideId(Direction.NORTH);
+        center.rotate(Direction.NORTH, Direction.EAST);
+        assertEquals(1, store.rotation(centerHandle));
+        assertEquals(northId, store.sideId(centerHandle, Direction.EAST));
+        assertTrue(center.getSide(Direction.SOUTH) == store.side(centerHandle, Direction.SOUTH));
+        assertTrue(original.getSide(Direction.NORTH)
+                   == store.addedSide(centerHandle, Direction.NORTH));
+        assertTrue(store.matches(centerHandle, center));
+        assertFalse(store.matches(centerHandle, original));
+
+        // Turning to a rotation is from how it was added, not from how it was left
+        store.turn(centerHandle, 2);
+        assertEquals(original.copyRotate(Direction.NORTH, Direction.SOUTH), center);
+        store.turn(centerHandle, 0);
+        assertEquals(original, center);
+    }
+
+    @Test
+    public void testNoTable() {
+        // Without a table, sides aren't interned, and are matched by equality
+        final Piece[] loose = new PolypointGenerator().generate(3, 3);
+        final PieceStore looseStore = new PieceStore(0);
+        for (Piece piece : loose) {
+            looseStore.add(piece);
+        }
+        assertEquals(loose.length, looseStore.size());
+        assertEquals(SideTable.NO_SIDE, looseStore.sideId(0, Direction.NORTH));
+        assertEquals(PieceStore.NO_PIECE, looseStore.owner(0));
+
+        final Piece piece = loose[4];
+        final Side north = piece.getSide(Direction.NORTH);
+        final Piece probe = new Piece.Builder().setSide(north, Direction.WEST).build();
+        assertEquals(3, looseStore.fit(4, probe));
+        looseStore.turn(4, 3);
+        assertTrue(north == looseStore.addedSide(4, Direction.NORTH));
+        assertTrue(north == looseStore.side(4, Direction.WEST));
+        assertTrue(north == piece.getSide(Direction.WEST));
+        assertTrue(looseStore.matches(4, probe));
+    }
+}
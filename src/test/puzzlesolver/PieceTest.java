@@ -5,10 +5,12 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import puzzlesolver.constants.Constants;
 import puzzlesolver.enums.Direction;
 import puzzlesolver.generator.Generator;
 import puzzlesolver.generator.SimpleGenerator;
+import puzzlesolver.side.SideTable;
 
 public class PieceTest {
 
@@ -57,4 +59,50 @@ public class PieceTest {
         assertEquals(p1.getSide(Direction.SOUTH), p1Rot4.getSide(Direction.WEST));
         assertEquals(p1.getSide(Direction.WEST), p1Rot4.getSide(Direction.NORTH));
     }
+
+    @Test
+    public void testRotateRoundTrip() {
+        final Piece copy = p1.copy();
+        final SideTable sideTable = new SideTable(4);
+        copy.internSides(sideTable);
+        final int northId = copy.getSideId(Direction.NORTH);
+
+        // Rotating all the way around, in any steps, gets back the same piece and side IDs
+        copy.rotate(Direction.NORTH, Direction.EAST).rotate(Direction.EAST, Direction.WEST);
+        assertEquals(northId, copy.getSideId(Direction.WEST));
+        copy.rotate(Direction.WEST, Direction.NORTH);
+        assertEquals(northId, copy.getSideId(Direction.NORTH));
+        assertEquals(p1, copy);
+        assertEquals(p1.hashCode(), copy.hashCode());
+
+        // Equal pieces hash the same, whatever their orientations
+        final Piece rotated = p1.copyRotate(Direction.NORTH, Direction.EAST);
+        final Piece rebuilt = new Piece.Builder()
+            .setSide(rotated.getSide(Direction.NORTH), Direction.NORTH)
+            .setSide(rotated.getSide(Direction.EAST), Direction.EAST)
+            .setSide(rotated.getSide(Direction.SOUTH), Direction.SOUTH)
+            .setSide(rotated.getSide(Direction.WEST), Direction.WEST).build();
+        assertEquals(rebuilt, rotated);
+        assertEquals(rebuilt.hashCode(), rotated.hashCode());
+    }
+
+    @Test
+    public void testDirectionOf() {
+        final Piece copy = p1.copy().internSides(new SideTable(4));
+        final int eastId = copy.getSideId(Direction.EAST);
+        assertEquals(Direction.EAST, copy.directionOf(eastId));
+        copy.rotate(Direction.EAST, Direction.SOUTH);
+        assertEquals(Direction.SOUTH, copy.directionOf(eastId));
+        assertNull(copy.directionOf(SideTable.NO_SIDE));
+
+        // Built pieces keep the side IDs they were given
+        final Piece probe = new Piece.Builder()
+            .setSide(copy.getSide(Direction.SOUTH), eastId, Direction.WEST)
+            .setSide(copy.getSide(Direction.NORTH), Direction.NORTH).build();
+        assertEquals(eastId, probe.getSideId(Direction.WEST));
+        assertEquals(SideTable.NO_SIDE, probe.getSideId(Direction.NORTH));
+        assertEquals(SideTable.NO_SIDE, new Piece.Builder()
+            .setSide(copy.getSide(Direction.SOUTH), Direction.WEST).build()
+            .getSideId(Direction.WEST));
+    }
 }
@@ -0,0 +1,88 @@
+package puzzlesolver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures sorting points with {@link Point#compareTo}, against sorting them with a comparator
+ * that goes through the boxed {@link DoubleDeltaComparator#compare(Double, Double)} like {@code
+ * Point} used to. Run with {@code -prof gc}: the points are sorted in place with an insertion
+ * sort, so anything {@code gc.alloc.rate.norm} reports was allocated by the comparisons, and
+ * {@code sortPoints} should report none.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PointSortBenchmark {
+
+    private static final Comparator<Double> BOXED = new DoubleDeltaComparator();
+
+    private static final Comparator<Point> BOXED_POINTS = (p1, p2) -> {
+        final int compareResult = BOXED.compare(p1.y, p2.y);
+        return compareResult != 0 ? compareResult : BOXED.compare(p1.x, p2.x);
+    };
+
+    @Param({"16", "256"})
+    public int pointCount;
+
+    private Point[] points;
+    private Point[] work;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random("PointSortBenchmark".hashCode());
+        points = new Point[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            points[i] = new Point(random.nextDouble() * 10, random.nextDouble() * 10);
+        }
+        work = new Point[pointCount];
+    }
+
+    @Benchmark
+    public Point[] sortPoints() {
+        System.arraycopy(points, 0, work, 0, pointCount);
+        insertionSort(work, Comparator.naturalOrder());
+        return work;
+    }
+
+    @Benchmark
+    public Point[] sortPointsBoxed() {
+        System.arraycopy(points, 0, work, 0, pointCount);
+        insertionSort(work, BOXED_POINTS);
+        return work;
+    }
+
+    /**
+     * Sorts the given array in place. Unlike {@link Arrays#sort}, this never allocates a merge
+     * buffer, so it doesn't hide allocations made by the comparator.
+     */
+    private static void insertionSort(Point[] array, Comparator<Point> comparator) {
+        for (int i = 1; i < array.length; i++) {
+            final Point point = array[i];
+            int j = i - 1;
+            while (j >= 0 && comparator.compare(array[j], point) > 0) {
+                array[j + 1] = array[j];
+                j--;
+            }
+            array[j + 1] = point;
+        }
+    }
+}
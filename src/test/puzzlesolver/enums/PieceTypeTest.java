@@ -3,6 +3,8 @@ package puzzlesolver.enums;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import puzzlesolver.Piece;
@@ -220,4 +222,25 @@ public class PieceTypeTest {
         assertTrue(PieceType.ADJACENTS.canBeType(oneInPiece));
         assertTrue(PieceType.ADJACENTS.canBeType(oneOutPiece));
     }
+
+    @Test
+    public void testTypeMasks() {
+        assertEquals(PieceType.CORNER.mask(), cornerPiece.getPieceTypeMask());
+        assertTrue(cornerPiece.definitelyType(PieceType.CORNER));
+        assertEquals(PieceType.OPPOSITES, oppositesPiece.getPieceType());
+        assertArrayEquals(new PieceType[]{PieceType.CORNER, PieceType.EDGE, PieceType.ALL_OUT,
+                                          PieceType.THREE_IN, PieceType.THREE_OUT,
+                                          PieceType.OPPOSITES, PieceType.ADJACENTS},
+                          oneOutPiece.getPieceTypes());
+
+        // The table agrees with checking the side types directly, in every orientation
+        final Piece rotated = adjacentsPiece.copyRotate(Direction.NORTH, Direction.EAST);
+        for (PieceType pieceType : PieceType.values()) {
+            final SideType[] sideTypes = new SideType[Constants.NUM_SIDES];
+            for (Direction dir : Direction.values()) {
+                sideTypes[dir.ordinal()] = rotated.getSide(dir).getSideType();
+            }
+            assertEquals(pieceType.canBeType(sideTypes), pieceType.canBeType(rotated));
+        }
+    }
 }
@@ -35,6 +35,23 @@ public class SimpleGeneratorTest {
         assertEquals(3, side.getPoints().length);
     }
 
+    @Test
+    public void testPointCount() {
+        assertEquals(2, generator.generateSide(true).pointCount());
+        assertEquals(3, generator.generateSide(false).pointCount());
+        for (Piece piece : generator.generate(6, 6)) {
+            for (Direction d : Direction.values()) {
+                Side side = piece.getSide(d);
+                int pointCount = side.pointCount();
+                assertEquals(side.getPoints().length, pointCount);
+                for (int i = 0; i < pointCount; i++) {
+                    assertEquals(side.getPoints()[i].x, side.x(i), 0);
+                    assertEquals(side.getPoints()[i].y, side.y(i), 0);
+                }
+            }
+        }
+    }
+
     private void testInRange(Piece[] generated) {
         for (Piece piece : generated) {
             for (Direction d : Direction.values()) {
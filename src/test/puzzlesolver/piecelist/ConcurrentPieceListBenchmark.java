@@ -0,0 +1,89 @@
+package puzzlesolver.piecelist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import puzzlesolver.Piece;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.generator.SimpleGenerator;
+
+/**
+ * Measures how the read throughput of {@link ConcurrentPieceList} scales with the number of
+ * reading threads. Run it with {@code -t 1}, {@code -t 2}, {@code -t 4} and so on, up to the number
+ * of processors: each thread probes its own run of pieces, so if lookups don't contend, the total
+ * throughput grows with the threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ConcurrentPieceListBenchmark {
+
+    private static final int PROBES = 4096;
+
+    @Param({"100", "300"})
+    public int puzzleSize;
+
+    private ConcurrentPieceList pieceList;
+    private Piece[] probes;
+
+    /**
+     * The place of one thread in the probes.
+     */
+    @State(Scope.Thread)
+    public static class Reader {
+
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = new Random().nextInt(PROBES);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Constants.RANDOM.setSeed("ConcurrentPieceListBenchmark".hashCode());
+        final Random random = new Random("ConcurrentPieceListBenchmark".hashCode());
+        final Piece[] pieces = new SimpleGenerator().generate(puzzleSize, puzzleSize);
+        pieceList = new ConcurrentPieceList(pieces.length);
+        pieceList.addAll(pieces);
+
+        // Probe with a side and the side clockwise from it, like a solver filling in a row
+        probes = new Piece[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            final Piece piece = pieces[random.nextInt(pieces.length)];
+            final Direction dir = Direction.values()[random.nextInt(Constants.NUM_SIDES)];
+            final Direction nextDir = Direction.values()[(dir.ordinal() + 1) % 4];
+            probes[i] = new Piece.Builder().setSide(piece.getSide(dir), dir)
+                .setSide(piece.getSide(nextDir), nextDir).build();
+        }
+    }
+
+    @Benchmark
+    public Piece find(Reader reader) {
+        return pieceList.find(probes[reader.next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public int candidates(Reader reader) {
+        final Piece probe = probes[reader.next++ & (PROBES - 1)];
+        return pieceList.candidates(probe, probe.lookupDirection()).count();
+    }
+}
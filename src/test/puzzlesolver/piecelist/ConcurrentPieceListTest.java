@@ -0,0 +1,240 @@
+package puzzlesolver.piecelist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import puzzlesolver.Piece;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.generator.SimpleGenerator;
+import puzzlesolver.side.Side;
+import puzzlesolver.side.SimpleSide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentPieceListTest {
+
+    private static final int THREADS = 8;
+
+    private Piece[] pieces;
+    private ConcurrentPieceList pieceList;
+
+    @Before
+    public void setUp() {
+        Constants.RANDOM.setSeed("ConcurrentPieceListTest".hashCode());
+        pieces = new SimpleGenerator().generate(30, 30);
+        pieceList = new ConcurrentPieceList(pieces.length, 4);
+        pieceList.addAll(pieces);
+    }
+
+    /**
+     * Runs the given task on {@link #THREADS} threads, all started at once, and waits for them.
+     *
+     * @param task the task to be run, which is given the index of its thread
+     */
+    private static void race(ThreadTask task) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < THREADS; i++) {
+            final int index = i;
+            final Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    task.run(index);
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (!failures.isEmpty()) {
+            throw new AssertionError(failures.get(0));
+        }
+    }
+
+    private interface ThreadTask {
+
+        void run(int index) throws Exception;
+    }
+
+    @Test
+    public void testSingleThreaded() {
+        assertEquals(900, pieceList.size());
+        for (Piece piece : pieces) {
+            assertTrue(piece == pieceList.find(piece));
+        }
+        assertTrue(pieceList.claim(pieces[5]));
+        assertFalse(pieceList.claim(pieces[5]));
+        assertNull(pieceList.find(pieces[5]));
+        assertEquals(899, pieceList.size());
+
+        int count = 0;
+        for (int i = 0; i < pieceList.size(); i++) {
+            assertTrue(pieceList.get(Direction.NORTH, i) != pieces[5]);
+            count++;
+        }
+        assertEquals(899, count);
+        pieceList.clear();
+        assertTrue(pieceList.isEmpty());
+    }
+
+    @Test
+    public void testFindRotated() {
+        PieceListChecks.assertFindsRotated(pieceList);
+    }
+
+    @Test
+    public void testConcurrentCandidates() throws InterruptedException {
+        // Each thread has its own cursor, so they can all count flat sides at once
+        int flats = 0;
+        for (Piece piece : pieces) {
+            if (piece.getSide(Direction.NORTH).isFlat()) {
+                flats++;
+            }
+        }
+        final int expected = flats;
+        final Piece flatProbe =
+            new Piece.Builder().setSide(SimpleSide.FLAT, Direction.NORTH).build();
+        final AtomicInteger failures = new AtomicInteger();
+        race(index -> {
+            for (int round = 0; round < 50; round++) {
+                final PieceCursor cursor = pieceList.candidates(flatProbe, Direction.NORTH);
+                int seen = 0;
+                while (cursor.hasNext()) {
+                    if (cursor.next().getSide(Direction.NORTH).isFlat()) {
+                        seen++;
+                    }
+                }
+                if (cursor.count() != expected || seen != expected) {
+                    failures.incrementAndGet();
+                }
+            }
+        });
+        assertEquals(0, failures.get());
+    }
+
+    @Test
+    public void testClaimRace() throws InterruptedException {
+        // Every thread tries to claim every piece, each in its own order
+        final AtomicInteger[] claims = new AtomicInteger[pieces.length];
+        for (int i = 0; i < claims.length; i++) {
+            claims[i] = new AtomicInteger();
+        }
+        race(index -> {
+            for (int i = 0; i < pieces.length; i++) {
+                final int pieceIndex = (i * (2 * index + 1)) % pieces.length;
+                if (pieceList.claim(pieces[pieceIndex])) {
+                    claims[pieceIndex].incrementAndGet();
+                }
+            }
+        });
+
+        for (AtomicInteger claim : claims) {
+            assertEquals(1, claim.get());
+        }
+        assertTrue(pieceList.isEmpty());
+    }
+
+    @Test
+    public void testFindAndClaimRace() throws InterruptedException {
+        // Every thread looks every piece up by two of its sides, so they race for each one
+        final Map<Piece, Integer> claimedBy = Collections.synchronizedMap(new IdentityHashMap<>());
+        final AtomicInteger doubleClaims = new AtomicInteger();
+        race(index -> {
+            for (int i = 0; i < pieces.length; i++) {
+                final Piece piece = pieces[(i + index * 97) % pieces.length];
+                final Piece probe = new Piece.Builder()
+                    .setSide(piece.getSide(Direction.NORTH), Direction.NORTH)
+                    .setSide(piece.getSide(Direction.EAST), Direction.EAST).build();
+                final Piece found = pieceList.findAndClaim(probe);
+                if (found != null && claimedBy.put(found, index) != null) {
+                    doubleClaims.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(0, doubleClaims.get());
+        assertEquals(pieces.length, claimedBy.size());
+        assertTrue(pieceList.isEmpty());
+    }
+
+    @Test
+    public void testFindRotatedAndClaimRace() throws InterruptedException {
+        // Take the sides up front, since the threads turn the pieces as they claim them
+        final Side[][] sides = new Side[pieces.length][];
+        for (int i = 0; i < pieces.length; i++) {
+            sides[i] = new Side[]{pieces[i].getSide(Direction.NORTH),
+                                  pieces[i].getSide(Direction.EAST)};
+        }
+        final Map<Piece, Integer> claimedBy = Collections.synchronizedMap(new IdentityHashMap<>());
+        final AtomicInteger failures = new AtomicInteger();
+        race(index -> {
+            final Direction dir = Direction.values()[index % 4];
+            final Direction next = Direction.values()[(index + 1) % 4];
+            for (int i = 0; i < pieces.length; i++) {
+                final Side[] pieceSides = sides[(i + index * 97) % pieces.length];
+                final Piece probe = new Piece.Builder().setSide(pieceSides[0], dir)
+                    .setSide(pieceSides[1], next).build();
+                final Piece found = pieceList.findRotatedAndClaim(probe);
+                if (found == null) {
+                    continue; // Claimed by another thread already
+                }
+                // The claimed piece is this thread's alone, so it stays turned to match
+                if (!found.getSide(dir).equals(pieceSides[0])
+                    || !found.getSide(next).equals(pieceSides[1])
+                    || claimedBy.put(found, index) != null) {
+                    failures.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(0, failures.get());
+        assertEquals(pieces.length, claimedBy.size());
+        assertTrue(pieceList.isEmpty());
+    }
+
+    @Test
+    public void testConcurrentReads() throws InterruptedException {
+        // Readers and a writer at once: finds only ever return pieces that match
+        final AtomicInteger failures = new AtomicInteger();
+        race(index -> {
+            if (index == 0) {
+                for (int i = 0; i < pieces.length; i += 2) {
+                    pieceList.remove(pieces[i]);
+                }
+                return;
+            }
+            for (int round = 0; round < 3; round++) {
+                for (Piece piece : pieces) {
+                    final Piece found = pieceList.find(piece);
+                    if (found != null && found != piece) {
+                        failures.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        assertEquals(0, failures.get());
+        assertEquals(pieces.length / 2, pieceList.size());
+        for (int i = 0; i < pieces.length; i++) {
+            assertEquals(i % 2 == 1, pieceList.find(pieces[i]) == pieces[i]);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package puzzlesolver.piecelist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import puzzlesolver.Piece;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.generator.Generator;
+import puzzlesolver.generator.SimpleGenerator;
+import puzzlesolver.side.Side;
+import puzzlesolver.side.SimpleSide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DescriptorPieceListTest {
+
+    private final Random random = new Random("DescriptorPieceListTest".hashCode());
+    private final DescriptorPieceList list = new DescriptorPieceList(400);
+
+    @Before
+    public void setUp() {
+        Constants.RANDOM.setSeed("DescriptorPieceListTest".hashCode());
+        Generator gen = new SimpleGenerator();
+        list.addAll(gen.generate(20, 20));
+    }
+
+    @Test
+    public void testFindExact() {
+        for (int i = 0; i < list.size(); i++) {
+            final Piece piece = list.get(Direction.NORTH, i);
+            assertTrue(piece == list.find(piece));
+        }
+    }
+
+    @Test
+    public void testFindNoisy() {
+        for (int i = 0; i < list.size(); i++) {
+            final Piece piece = list.get(Direction.WEST, i);
+            for (Direction dir : Direction.values()) {
+                final Direction next = Direction.values()[(dir.ordinal() + 1) % 4];
+                final Piece probe = new Piece.Builder()
+                    .setSide(noisy(piece.getSide(dir)), dir)
+                    .setSide(noisy(piece.getSide(next)), next).build();
+                assertTrue(piece == list.find(probe));
+            }
+        }
+    }
+
+    @Test
+    public void testNearest() {
+        final Piece piece = list.get(Direction.SOUTH, 42);
+        final Piece probe = new Piece.Builder()
+            .setSide(noisy(piece.getSide(Direction.EAST)), Direction.EAST).build();
+        assertTrue(list.nearest(probe, 3).contains(piece));
+        assertEquals(list.size(), list.nearest(probe, list.size()).size());
+    }
+
+    @Test
+    public void testRemove() {
+        final Piece piece = list.get(Direction.EAST, 7);
+        assertTrue(list.remove(piece));
+        assertFalse(list.remove(piece));
+        assertNull(list.find(piece));
+        assertFalse(list.nearest(piece, list.size()).contains(piece));
+    }
+
+    @Test
+    public void testHandles() {
+        PieceListChecks.assertHandles(store -> new DescriptorPieceList(store, 100));
+    }
+
+    /**
+     * Makes a copy of the given side with every interior point jittered slightly.
+     */
+    private Side noisy(Side side) {
+        final double[] coords = new double[side.pointCount() * 2];
+        for (int i = 0; i < side.pointCount(); i++) {
+            final boolean corner = i == 0 || i == side.pointCount() - 1;
+            coords[i * 2] = side.x(i) + (corner ? 0 : noise());
+            coords[i * 2 + 1] = side.y(i) + (corner ? 0 : noise());
+        }
+        return SimpleSide.fromCoordinates(coords);
+    }
+
+    private double noise() {
+        return (random.nextDouble() - 0.5) * 0.01;
+    }
+}
@@ -0,0 +1,162 @@
+package puzzlesolver.piecelist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import puzzlesolver.Piece;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.generator.Generator;
+import puzzlesolver.generator.SimpleGenerator;
+import puzzlesolver.side.Side;
+import puzzlesolver.side.SimpleSide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HashPieceListTest {
+
+    private final PieceList empty = new HashPieceList(0);
+    private final PieceList bigList = new HashPieceList(900);
+
+    @Before
+    public void setUp() {
+        Constants.RANDOM.setSeed("HashPieceListTest".hashCode());
+        Generator gen = new SimpleGenerator();
+        bigList.addAll(gen.generate(30, 30));
+    }
+
+    @Test
+    public void testSize() {
+        assertTrue(empty.isEmpty());
+        assertEquals(900, bigList.size());
+        bigList.add(bigList.get(Direction.NORTH, 0)); // Already in the list
+        assertEquals(900, bigList.size());
+        bigList.clear();
+        assertTrue(bigList.isEmpty());
+    }
+
+    @Test
+    public void testGrow() {
+        final Piece[] pieces = new SimpleGenerator().generate(5, 5);
+        empty.addAll(pieces);
+        assertEquals(pieces.length, empty.size());
+        for (Piece piece : pieces) {
+            assertTrue(piece == empty.find(piece));
+        }
+    }
+
+    @Test
+    public void testFind() {
+        for (int i = 0; i < bigList.size(); i++) {
+            final Piece piece = bigList.get(Direction.NORTH, i);
+            for (Direction dir : Direction.values()) {
+                // Probe with one side and the side clockwise from it
+                final Direction next = Direction.values()[(dir.ordinal() + 1) % 4];
+                final Piece probe = new Piece.Builder().setSide(piece.getSide(dir), dir)
+                    .setSide(piece.getSide(next), next).build();
+                assertTrue(piece == bigList.find(probe));
+            }
+        }
+    }
+
+    @Test
+    public void testFindRotated() {
+        PieceListChecks.assertFindsRotated(bigList);
+    }
+
+    @Test
+    public void testFindRotatedSingleLookup() {
+        // The tables cover every orientation, so no probe needs to be turned and looked up again
+        final int[] finds = new int[1];
+        final PieceList counted = new HashPieceList(900) {
+            @Override
+            public Piece find(Piece p) {
+                finds[0]++;
+                return super.find(p);
+            }
+        };
+        final Piece[] pieces = new SimpleGenerator().generate(10, 10);
+        counted.addAll(pieces);
+        for (Piece piece : pieces) {
+            piece.rotate(Direction.NORTH, Direction.SOUTH); // Turned since it was added
+            final Side east = piece.getSide(Direction.EAST);
+            if (!east.isFlat()) { // Flat sides are too ambiguous to look up
+                final Piece probe = new Piece.Builder().setSide(east, Direction.NORTH).build();
+                assertTrue(piece == counted.findRotated(probe));
+                assertTrue(east == piece.getSide(Direction.NORTH));
+            }
+        }
+        assertEquals(0, finds[0]);
+    }
+
+    @Test
+    public void testCandidates() {
+        final Piece piece = bigList.get(Direction.NORTH, 123);
+        final Piece probe =
+            new Piece.Builder().setSide(piece.getSide(Direction.WEST), Direction.WEST).build();
+        PieceCursor cursor = bigList.candidates(probe, Direction.WEST);
+        assertEquals(1, cursor.count());
+        assertTrue(cursor.hasNext());
+        assertTrue(piece == cursor.next());
+        assertFalse(cursor.hasNext());
+
+        // Every piece with a flat north side
+        int flats = 0;
+        for (int i = 0; i < bigList.size(); i++) {
+            if (bigList.get(Direction.NORTH, i).getSide(Direction.NORTH).isFlat()) {
+                flats++;
+            }
+        }
+        final Piece flatProbe =
+            new Piece.Builder().setSide(SimpleSide.FLAT, Direction.NORTH).build();
+        cursor = bigList.candidates(flatProbe, Direction.NORTH);
+        assertEquals(flats, cursor.count());
+        final Set<Piece> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        while (cursor.hasNext()) {
+            final Piece candidate = cursor.next();
+            assertTrue(candidate.getSide(Direction.NORTH).isFlat());
+            assertTrue(seen.add(candidate));
+        }
+        assertEquals(flats, seen.size());
+    }
+
+    @Test
+    public void testRemove() {
+        final Piece piece = bigList.get(Direction.EAST, 17);
+        assertTrue(bigList.remove(piece));
+        assertFalse(bigList.remove(piece));
+        assertEquals(899, bigList.size());
+        assertNull(bigList.find(piece));
+
+        // Every other piece is still there exactly once
+        final Set<Piece> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < bigList.size(); i++) {
+            final Piece other = bigList.get(Direction.SOUTH, i);
+            assertTrue(seen.add(other));
+            assertTrue(other == bigList.find(other));
+        }
+    }
+
+    @Test
+    public void testRemoveRotated() {
+        final Piece piece = bigList.get(Direction.NORTH, 42);
+        piece.rotate(Direction.NORTH, Direction.EAST);
+        assertTrue(bigList.remove(piece));
+        while (!bigList.isEmpty()) {
+            assertTrue(bigList.remove(bigList.get(Direction.WEST, bigList.size() - 1)));
+        }
+        assertNull(bigList.find(piece));
+    }
+
+    @Test
+    public void testHandles() {
+        PieceListChecks.assertHandles(store -> new HashPieceList(store, 100));
+    }
+}
@@ -0,0 +1,103 @@
+package puzzlesolver.piecelist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KdTreeTest {
+
+    private static final int DIMENSIONS = 4;
+
+    private final Random random = new Random("KdTreeTest".hashCode());
+    private KdTree<double[]> tree;
+    private List<double[]> points;
+
+    @Before
+    public void setUp() {
+        tree = new KdTree<>(DIMENSIONS);
+        points = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            final double[] point = randomPoint();
+            points.add(point);
+            tree.add(point, point);
+        }
+    }
+
+    @Test
+    public void testNearest() {
+        for (int i = 0; i < 100; i++) {
+            final double[] query = randomPoint();
+            assertEquals(bruteForce(query, 5), tree.nearest(query, 5));
+        }
+    }
+
+    @Test
+    public void testRemove() {
+        for (int i = 0; i < points.size(); i += 2) {
+            assertTrue(tree.remove(points.get(i)));
+            assertFalse(tree.remove(points.get(i)));
+        }
+        final List<double[]> remaining = new ArrayList<>();
+        for (int i = 1; i < points.size(); i += 2) {
+            remaining.add(points.get(i));
+        }
+        points = remaining;
+        assertEquals(points.size(), tree.size());
+
+        for (int i = 0; i < 100; i++) {
+            final double[] query = randomPoint();
+            assertEquals(bruteForce(query, 3), tree.nearest(query, 3));
+        }
+
+        // Removing more than half forces a rebuild, which must keep the survivors
+        for (int i = 0; i < points.size() - 1; i++) {
+            tree.remove(points.get(i));
+        }
+        assertEquals(1, tree.size());
+        assertTrue(points.get(points.size() - 1) == tree.nearest(randomPoint(), 10).get(0));
+    }
+
+    @Test
+    public void testEdges() {
+        assertTrue(tree.nearest(randomPoint(), 0).isEmpty());
+        assertEquals(points.size(), tree.nearest(randomPoint(), points.size() * 2).size());
+        tree.clear();
+        assertEquals(0, tree.size());
+        assertTrue(tree.nearest(randomPoint(), 3).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongDimensions() {
+        tree.nearest(new double[DIMENSIONS + 1], 1);
+    }
+
+    private double[] randomPoint() {
+        final double[] point = new double[DIMENSIONS];
+        for (int i = 0; i < point.length; i++) {
+            point[i] = random.nextDouble();
+        }
+        return point;
+    }
+
+    private List<double[]> bruteForce(double[] query, int k) {
+        final List<double[]> sorted = new ArrayList<>(points);
+        sorted.sort(Comparator.comparingDouble(point -> distance(query, point)));
+        return sorted.subList(0, Math.min(k, sorted.size()));
+    }
+
+    private static double distance(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += (a[i] - b[i]) * (a[i] - b[i]);
+        }
+        return sum;
+    }
+}
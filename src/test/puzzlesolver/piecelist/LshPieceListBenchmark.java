@@ -0,0 +1,130 @@
+package puzzlesolver.piecelist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import puzzlesolver.Piece;
+import puzzlesolver.PieceStore;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.generator.Generator;
+import puzzlesolver.generator.SimpleGenerator;
+import puzzlesolver.side.Side;
+import puzzlesolver.side.SimpleSide;
+
+/**
+ * Compares the latency of {@link LshPieceList#find}, over a range of parameters, with that of the
+ * exact {@link SimplePieceList#find}. The LSH list is searched with slightly noisy copies of the
+ * sides that the exact list is searched with. Its recall, meaning the fraction of searches that
+ * find the same piece the exact list finds for the clean sides, is printed during setup, since
+ * JMH only measures time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LshPieceListBenchmark {
+
+    private static final int PROBES = 4096;
+
+    @Param({"200", "1000"})
+    public int puzzleSize;
+
+    @Param({"8", "16"})
+    public int tables;
+
+    @Param({"4", "8"})
+    public int projections;
+
+    /**
+     * Bucket width, as a fraction of {@link Constants#SIDE_LENGTH}.
+     */
+    @Param({"0.01", "0.0025"})
+    public double bucketWidth;
+
+    private SimplePieceList exactList;
+    private LshPieceList lshList;
+    private Piece[] cleanProbes;
+    private Piece[] noisyProbes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Constants.RANDOM.setSeed("LshPieceListBenchmark".hashCode());
+        final Random random = new Random("LshPieceListBenchmark".hashCode());
+        Generator gen = new SimpleGenerator();
+        final Piece[] pieces = gen.generate(puzzleSize, puzzleSize);
+
+        // Both lists hold handles into the same store, so the pieces are only kept once
+        final PieceStore store = new PieceStore(pieces.length);
+        for (Piece piece : pieces) {
+            store.add(piece);
+        }
+        exactList = new SimplePieceList(store, pieces.length);
+        exactList.addHandles(0, pieces.length);
+        lshList = new LshPieceList(store, pieces.length, tables, projections,
+                                   Constants.SIDE_LENGTH * bucketWidth,
+                                   DescriptorPieceList.DEFAULT_TOLERANCE);
+        lshList.addHandles(0, pieces.length);
+
+        // Probe with a side and the side clockwise from it, like a solver filling in a row
+        cleanProbes = new Piece[PROBES];
+        noisyProbes = new Piece[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            final Piece piece = pieces[random.nextInt(pieces.length)];
+            final Direction dir = Direction.values()[random.nextInt(Constants.NUM_SIDES)];
+            final Direction nextDir = Direction.values()[(dir.ordinal() + 1) % 4];
+            cleanProbes[i] = new Piece.Builder().setSide(piece.getSide(dir), dir)
+                .setSide(piece.getSide(nextDir), nextDir).build();
+            noisyProbes[i] = new Piece.Builder().setSide(noisy(piece.getSide(dir), random), dir)
+                .setSide(noisy(piece.getSide(nextDir), random), nextDir).build();
+        }
+
+        int found = 0;
+        for (int i = 0; i < PROBES; i++) {
+            if (lshList.find(noisyProbes[i]) == exactList.find(cleanProbes[i])) {
+                found++;
+            }
+        }
+        System.out.printf("%nRecall (size=%d, tables=%d, projections=%d, width=%s): %.4f%n",
+                          puzzleSize, tables, projections, bucketWidth, (double) found / PROBES);
+    }
+
+    @Benchmark
+    public Piece exactFind() {
+        return exactList.find(cleanProbes[next++ & (PROBES - 1)]);
+    }
+
+    @Benchmark
+    public Piece lshFind() {
+        return lshList.find(noisyProbes[next++ & (PROBES - 1)]);
+    }
+
+    /**
+     * Makes a copy of the given side with every interior point jittered slightly.
+     */
+    private static Side noisy(Side side, Random random) {
+        final double[] coords = new double[side.pointCount() * 2];
+        for (int i = 0; i < side.pointCount(); i++) {
+            final boolean corner = i == 0 || i == side.pointCount() - 1;
+            coords[i * 2] = side.x(i) + (corner ? 0 : (random.nextDouble() - 0.5) * 0.01);
+            coords[i * 2 + 1] = side.y(i) + (corner ? 0 : (random.nextDouble() - 0.5) * 0.01);
+        }
+        return SimpleSide.fromCoordinates(coords);
+    }
+}
@@ -0,0 +1,154 @@
+package puzzlesolver.piecelist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import puzzlesolver.Piece;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.generator.Generator;
+import puzzlesolver.generator.SimpleGenerator;
+import puzzlesolver.side.Side;
+import puzzlesolver.side.SimpleSide;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LshPieceListTest {
+
+    private final Random random = new Random("LshPieceListTest".hashCode());
+    private LshPieceList list;
+
+    @Before
+    public void setUp() {
+        Constants.RANDOM.setSeed("LshPieceListTest".hashCode());
+        // Generated first, so that the puzzle doesn't depend on how many projections are drawn
+        Generator gen = new SimpleGenerator();
+        final Piece[] pieces = gen.generate(30, 30);
+        list = new LshPieceList(900);
+        list.addAll(pieces);
+    }
+
+    @Test
+    public void testFindExact() {
+        for (int i = 0; i < list.size(); i++) {
+            final Piece piece = list.get(Direction.NORTH, i);
+            for (Direction dir : Direction.values()) {
+                final Direction next = Direction.values()[(dir.ordinal() + 1) % 4];
+                final Piece probe = new Piece.Builder().setSide(piece.getSide(dir), dir)
+                    .setSide(piece.getSide(next), next).build();
+                assertTrue(piece == list.find(probe));
+            }
+        }
+    }
+
+    @Test
+    public void testFindTurned() {
+        // Found by the sides it has now, not the ones it was added with
+        for (int i = 0; i < list.size(); i += 7) {
+            final Piece piece = list.get(Direction.NORTH, i);
+            piece.rotate(Direction.NORTH, Direction.values()[i % 4]);
+            final Piece.Builder probe = new Piece.Builder();
+            for (Direction dir : Direction.values()) {
+                probe.setSide(piece.getSide(dir), dir);
+            }
+            assertTrue(piece == list.find(probe.build()));
+        }
+    }
+
+    @Test
+    public void testFindNoisy() {
+        int found = 0;
+        int probes = 0;
+        for (int i = 0; i < list.size(); i++) {
+            final Piece piece = list.get(Direction.EAST, i);
+            for (Direction dir : Direction.values()) {
+                final Direction next = Direction.values()[(dir.ordinal() + 1) % 4];
+                final Piece probe = new Piece.Builder()
+                    .setSide(noisy(piece.getSide(dir)), dir)
+                    .setSide(noisy(piece.getSide(next)), next).build();
+                final Piece result = list.find(probe);
+                assertTrue(result == null || result == piece); // Never a wrong piece
+                if (result == piece) {
+                    found++;
+                }
+                probes++;
+            }
+        }
+        assertTrue("Recall too low: " + found + "/" + probes, found >= probes * 0.95);
+    }
+
+    @Test
+    public void testFindRotated() {
+        PieceListChecks.assertFindsRotated(list);
+    }
+
+    @Test
+    public void testFindRotatedNoisy() {
+        int found = 0;
+        int probes = 0;
+        for (int i = 0; i < list.size(); i += 11) {
+            final Piece piece = list.get(Direction.WEST, i);
+            final Side north = piece.getSide(Direction.NORTH);
+            final Side east = piece.getSide(Direction.EAST);
+            if (north.isFlat() || east.isFlat()) {
+                continue; // Flat sides can't be told apart
+            }
+
+            // Probe with noisy copies of the north and east sides, turned to face south and west
+            final Piece probe = new Piece.Builder().setSide(noisy(north), Direction.SOUTH)
+                .setSide(noisy(east), Direction.WEST).build();
+            final Piece result = list.findRotated(probe);
+            assertTrue(result == null || result == piece); // Never a wrong piece
+            if (result == piece) {
+                assertTrue(north == piece.getSide(Direction.SOUTH));
+                piece.rotate(Direction.SOUTH, Direction.NORTH);
+                found++;
+            }
+            probes++;
+        }
+        assertTrue("Recall too low: " + found + "/" + probes, found >= probes * 0.9);
+    }
+
+    @Test
+    public void testHandles() {
+        PieceListChecks.assertHandles(store -> new LshPieceList(store, 100));
+    }
+
+    @Test
+    public void testCandidates() {
+        final Piece piece = list.get(Direction.SOUTH, 123);
+        final Piece probe = new Piece.Builder()
+            .setSide(piece.getSide(Direction.WEST), Direction.WEST).build();
+        assertTrue(list.candidates(probe).contains(piece));
+        assertTrue(list.candidates(probe).size() < list.size());
+    }
+
+    @Test
+    public void testRemove() {
+        final Piece piece = list.get(Direction.EAST, 7);
+        assertTrue(list.remove(piece));
+        assertFalse(list.remove(piece));
+        assertNull(list.find(piece));
+    }
+
+    /**
+     * Makes a copy of the given side with every interior point jittered slightly.
+     */
+    private Side noisy(Side side) {
+        final double[] coords = new double[side.pointCount() * 2];
+        for (int i = 0; i < side.pointCount(); i++) {
+            final boolean corner = i == 0 || i == side.pointCount() - 1;
+            coords[i * 2] = side.x(i) + (corner ? 0 : noise());
+            coords[i * 2 + 1] = side.y(i) + (corner ? 0 : noise());
+        }
+        return SimpleSide.fromCoordinates(coords);
+    }
+
+    private double noise() {
+        return (random.nextDouble() - 0.5) * 0.01;
+    }
+}
@@ -0,0 +1,197 @@
+package puzzlesolver.piecelist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import puzzlesolver.Piece;
+import puzzlesolver.PieceStore;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.generator.SimpleGenerator;
+import puzzlesolver.side.Side;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MappedPieceListTest {
+
+    private Path file;
+    private Piece[] pieces;
+    private PieceStore store;
+    private MappedPieceList pieceList;
+
+    @Before
+    public void setUp() throws IOException {
+        Constants.RANDOM.setSeed("MappedPieceListTest".hashCode());
+        file = Files.createTempFile("pieces", ".map");
+        file.toFile().deleteOnExit();
+        pieces = new SimpleGenerator().generate(30, 30);
+        store = storeOf(pieces);
+        pieceList = new MappedPieceList(file, store);
+        pieceList.addAll(pieces);
+    }
+
+    private static PieceStore storeOf(Piece[] pieces) {
+        final PieceStore store = new PieceStore(pieces.length);
+        for (Piece piece : pieces) {
+            store.add(piece);
+        }
+        return store;
+    }
+
+    private void assertFindsAll(PieceList pieceList) {
+        for (Piece piece : pieces) {
+            for (Direction dir : Direction.values()) {
+                // Probe with one side and the side clockwise from it
+                final Direction next = Direction.values()[(dir.ordinal() + 1) % 4];
+                final Piece probe = new Piece.Builder().setSide(piece.getSide(dir), dir)
+                    .setSide(piece.getSide(next), next).build();
+                assertTrue(piece == pieceList.find(probe));
+            }
+        }
+    }
+
+    @Test
+    public void testFind() {
+        assertEquals(900, pieceList.size());
+        assertFindsAll(pieceList);
+    }
+
+    @Test
+    public void testSortInRuns() throws IOException {
+        // Small enough that the keys are sorted in many runs, and merged
+        final MappedPieceList runs = new MappedPieceList(file, store, 7);
+        runs.addAll(pieces);
+        assertEquals(900, runs.size());
+        assertFindsAll(runs);
+    }
+
+    @Test
+    public void testReuse() throws IOException {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+        final MappedPieceList reused = new MappedPieceList(file, store);
+        reused.addAll(pieces);
+        assertEquals(0, Files.getLastModifiedTime(file).toMillis()); // Not written again
+        assertEquals(900, reused.size());
+        assertFindsAll(reused);
+
+        // Other pieces are written over it
+        final Piece[] others = new SimpleGenerator().generate(30, 30);
+        final MappedPieceList rewritten = new MappedPieceList(file, storeOf(others));
+        rewritten.addAll(others);
+        assertTrue(Files.getLastModifiedTime(file).toMillis() != 0);
+        assertTrue(others[17] == rewritten.find(others[17]));
+        assertNull(rewritten.find(pieces[17]));
+    }
+
+    @Test
+    public void testFindRotated() {
+        for (int i = 0; i < pieces.length; i += 7) {
+            final Piece piece = pieces[i];
+            final Side north = piece.getSide(Direction.NORTH);
+            final Side east = piece.getSide(Direction.EAST);
+            for (Direction dir : Direction.values()) {
+                final Direction next = Direction.values()[(dir.ordinal() + 1) % 4];
+                final Piece probe = new Piece.Builder().setSide(north, dir).setSide(east, next)
+                    .build();
+                assertTrue(piece == pieceList.findRotated(probe));
+                assertTrue(north == piece.getSide(dir));
+                piece.rotate(dir, Direction.NORTH); // Put it back for the next probe
+            }
+        }
+    }
+
+    @Test
+    public void testRemoveAndGet() {
+        for (int i = 0; i < pieces.length; i += 3) {
+            assertTrue(pieceList.remove(pieces[i]));
+            assertFalse(pieceList.remove(pieces[i]));
+        }
+        assertEquals(600, pieceList.size());
+        assertNull(pieceList.find(pieces[0]));
+
+        // Every other piece comes up exactly once, and is still there
+        final Set<Piece> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < pieceList.size(); i++) {
+            final Piece piece = pieceList.get(Direction.WEST, i);
+            assertTrue(seen.add(piece));
+            assertTrue(piece == pieceList.find(piece));
+        }
+        assertEquals(600, seen.size());
+
+        pieceList.clear();
+        assertTrue(pieceList.isEmpty());
+    }
+
+    @Test
+    public void testOverflow() {
+        final Piece[] more = new SimpleGenerator().generate(3, 3);
+        pieceList.addAll(more);
+        pieceList.add(pieces[0]); // Already in the file
+        assertEquals(909, pieceList.size());
+        for (Piece piece : more) {
+            assertTrue(piece == pieceList.find(piece));
+        }
+        assertTrue(pieceList.get(Direction.NORTH, 900) == more[0]);
+        assertTrue(pieceList.remove(more[0]));
+        assertEquals(908, pieceList.size());
+    }
+
+    @Test
+    public void testHandles() {
+        // Records are handles in the store
+        assertTrue(pieceList.removeHandle(17));
+        assertFalse(pieceList.removeHandle(17));
+        assertNull(pieceList.find(pieces[17]));
+        assertEquals(PieceStore.NO_PIECE, pieceList.findHandle(pieces[17]));
+        pieceList.addHandle(17);
+        assertEquals(900, pieceList.size());
+        assertEquals(17, pieceList.findHandle(pieces[17]));
+    }
+
+    @Test
+    public void testOpen() throws IOException {
+        // Opened without the pieces, every piece is rebuilt from the file
+        final MappedPieceList reopened = MappedPieceList.open(file);
+        assertEquals(900, reopened.size());
+        for (Piece piece : pieces) {
+            final Piece found = reopened.find(piece);
+            assertTrue(piece != found);
+            assertEquals(piece, found);
+            assertTrue(reopened.remove(found));
+            assertNull(reopened.find(piece));
+        }
+        assertTrue(reopened.isEmpty());
+
+        // Opened with them, the same pieces are handed back
+        final MappedPieceList withPieces = MappedPieceList.open(file, store);
+        assertTrue(pieces[17] == withPieces.find(pieces[17]));
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenOtherDelta() throws IOException {
+        final double compDelta = Constants.COMP_DELTA;
+        Constants.COMP_DELTA = compDelta * 2;
+        try {
+            MappedPieceList.open(file);
+        } finally {
+            Constants.COMP_DELTA = compDelta;
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenNotAList() throws IOException {
+        Files.write(file, new byte[64]);
+        MappedPieceList.open(file);
+    }
+}
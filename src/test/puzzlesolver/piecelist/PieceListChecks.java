@@ -0,0 +1,93 @@
+package puzzlesolver.piecelist;
+
+import java.util.function.Function;
+
+import puzzlesolver.Piece;
+import puzzlesolver.PieceStore;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.generator.SimpleGenerator;
+import puzzlesolver.side.Side;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that more than one kind of {@link PieceList} has to pass.
+ */
+final class PieceListChecks {
+
+    private PieceListChecks() {
+    }
+
+    /**
+     * Checks that {@link PieceList#findRotated} finds every seventh piece of the given list from a
+     * probe of two of its sides, turned to face each direction in turn, and that it turns the piece
+     * to match while leaving the probe as it was. The first of the two sides is never flat, since
+     * every corner of a puzzle fits a probe of two flat sides once it is turned.
+     *
+     * @param pieceList the list to search, which is left with its pieces facing as they were
+     */
+    static void assertFindsRotated(PieceList pieceList) {
+        for (int i = 0; i < pieceList.size(); i += 7) {
+            final Piece piece = pieceList.get(Direction.NORTH, i);
+            Direction from = Direction.NORTH;
+            while (piece.getSide(from).isFlat()) {
+                from = Direction.values()[(from.ordinal() + 1) % 4];
+            }
+            final Side first = piece.getSide(from);
+            final Side second = piece.getSide(Direction.values()[(from.ordinal() + 1) % 4]);
+            for (Direction dir : Direction.values()) {
+                // Probe with the piece's two sides, turned so that the first one faces dir
+                final Direction next = Direction.values()[(dir.ordinal() + 1) % 4];
+                final Piece probe = new Piece.Builder().setSide(first, dir).setSide(second, next)
+                    .build();
+                assertTrue(piece == pieceList.findRotated(probe));
+                assertTrue(first == piece.getSide(dir));
+                assertTrue(first == probe.getSide(dir)); // The probe is left as it was
+                piece.rotate(dir, from); // Put it back for the next probe
+            }
+        }
+    }
+
+    /**
+     * Checks that a list made over a store can be filled, searched and emptied by handle, and
+     * that a piece turned outside the list is still found and removed.
+     *
+     * @param listFactory makes an empty list over the given store
+     */
+    static void assertHandles(Function<PieceStore, StoredPieceList> listFactory) {
+        final Piece[] pieces = new SimpleGenerator().generate(10, 10);
+        final PieceStore store = new PieceStore(pieces.length);
+        for (Piece piece : pieces) {
+            store.add(piece);
+        }
+        final StoredPieceList pieceList = listFactory.apply(store);
+        assertTrue(store == pieceList.getStore());
+        pieceList.addHandles(0, store.size());
+        assertEquals(pieces.length, pieceList.size());
+
+        for (int handle = 0; handle < store.size(); handle += 7) {
+            final Piece piece = store.view(handle);
+            assertEquals(handle, pieceList.findHandle(piece));
+
+            // Turned behind the list's back, and found again in any orientation
+            final Side north = piece.getSide(Direction.NORTH);
+            piece.rotate(Direction.NORTH, Direction.EAST);
+            final Piece probe = new Piece.Builder().setSide(north, Direction.NORTH).build();
+            if (!north.isFlat()) { // Flat sides are too ambiguous to look up
+                assertEquals(handle, pieceList.findRotatedHandle(probe));
+                assertTrue(north == piece.getSide(Direction.NORTH));
+            }
+
+            assertTrue(pieceList.removeHandle(handle));
+            assertFalse(pieceList.removeHandle(handle));
+            assertEquals(PieceStore.NO_PIECE, pieceList.findHandle(piece));
+        }
+        assertEquals(pieces.length - 15, pieceList.size());
+
+        pieceList.addHandle(0);
+        assertEquals(pieces.length - 14, pieceList.size());
+        assertTrue(pieceList.removeHandle(0));
+    }
+}
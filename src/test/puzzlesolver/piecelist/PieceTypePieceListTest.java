@@ -0,0 +1,101 @@
+package puzzlesolver.piecelist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import puzzlesolver.Piece;
+import puzzlesolver.PieceStore;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.enums.PieceType;
+import puzzlesolver.generator.SimpleGenerator;
+import puzzlesolver.side.SimpleSide;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PieceTypePieceListTest {
+
+    private Piece[] pieces;
+    private PieceTypePieceList pieceList;
+
+    @Before
+    public void setUp() {
+        Constants.RANDOM.setSeed("PieceTypePieceListTest".hashCode());
+        pieces = new SimpleGenerator().generate(10, 10);
+        pieceList = PieceTypePieceList.of(pieces);
+    }
+
+    @Test
+    public void testSizeOf() {
+        assertEquals(100, pieceList.size());
+        assertEquals(4, pieceList.sizeOf(PieceType.CORNER));
+        assertEquals(32, pieceList.sizeOf(PieceType.EDGE));
+        int total = 0;
+        for (PieceType pieceType : PieceType.values()) {
+            assertEquals(pieceList.sublistByType(pieceType).size(), pieceList.sizeOf(pieceType));
+            total += pieceList.sizeOf(pieceType);
+        }
+        assertEquals(100, total);
+
+        assertTrue(pieceList.remove(pieceList.get(Direction.NORTH, 0)));
+        assertFalse(pieceList.remove(pieces[0].copy())); // Equal, but not in the list
+        assertEquals(99, pieceList.size());
+        assertEquals(3, pieceList.sizeOf(PieceType.CORNER));
+    }
+
+    @Test
+    public void testGetAcrossTypes() {
+        // Every index is valid, and each piece comes up exactly once
+        for (Direction dir : Direction.values()) {
+            final Set<Piece> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int i = 0; i < pieceList.size(); i++) {
+                assertTrue(seen.add(pieceList.get(dir, i)));
+            }
+            assertEquals(pieces.length, seen.size());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        pieceList.get(Direction.NORTH, pieceList.size());
+    }
+
+    @Test
+    public void testCountCandidates() {
+        int flats = 0;
+        for (Piece piece : pieces) {
+            if (piece.getSide(Direction.NORTH).isFlat()) {
+                flats++;
+            }
+        }
+        final PieceTypePieceList hashed =
+            new PieceTypePieceList(new PieceStore(pieces.length), pieces.length,
+                                   HashPieceList::new);
+        hashed.addAll(pieces);
+        final Piece probe = new Piece.Builder().setSide(SimpleSide.FLAT, Direction.NORTH).build();
+        for (PieceTypePieceList typed : new PieceTypePieceList[]{pieceList, hashed}) {
+            // Counting part way through leaves the cursor where it was
+            final PieceCursor cursor = typed.candidates(probe, Direction.NORTH);
+            final Set<Piece> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            assertTrue(cursor.hasNext());
+            assertTrue(seen.add(cursor.next()));
+            assertEquals(flats, typed.countCandidates(probe, Direction.NORTH));
+            assertEquals(flats, cursor.count());
+            while (cursor.hasNext()) {
+                assertTrue(seen.add(cursor.next()));
+            }
+            assertEquals(flats, seen.size());
+        }
+    }
+
+    @Test
+    public void testHandles() {
+        PieceListChecks.assertHandles(store -> new PieceTypePieceList(store, 100));
+    }
+}
@@ -3,14 +3,23 @@ package puzzlesolver.piecelist;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import puzzlesolver.Piece;
 import puzzlesolver.PieceComparator;
 import puzzlesolver.constants.Constants;
 import puzzlesolver.enums.Direction;
 import puzzlesolver.generator.Generator;
 import puzzlesolver.generator.SimpleGenerator;
+import puzzlesolver.side.Side;
+import puzzlesolver.side.SimpleSide;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class SimplePieceListTest {
@@ -57,6 +66,169 @@ public class SimplePieceListTest {
         assertTrue(bigList.isEmpty());
     }
 
+    @Test
+    public void testFind() {
+        for (int i = 0; i < bigList.size(); i++) {
+            final Piece piece = bigList.get(Direction.NORTH, i);
+            for (Direction dir : Direction.values()) {
+                // Probe with one side and the side clockwise from it
+                final Direction next = Direction.values()[(dir.ordinal() + 1) % 4];
+                final Piece probe = new Piece.Builder().setSide(piece.getSide(dir), dir)
+                    .setSide(piece.getSide(next), next).build();
+                assertTrue(piece == bigList.find(probe));
+            }
+        }
+    }
+
+    @Test
+    public void testFindRotated() {
+        PieceListChecks.assertFindsRotated(bigList);
+    }
+
+    @Test
+    public void testFindRotatedSingleLookup() {
+        // The tables cover every orientation, so no probe needs to be turned and looked up again
+        final int[] finds = new int[1];
+        final PieceList counted = new SimplePieceList(900) {
+            @Override
+            public Piece find(Piece p) {
+                finds[0]++;
+                return super.find(p);
+            }
+        };
+        final Piece[] pieces = new SimpleGenerator().generate(10, 10);
+        counted.addAll(pieces);
+        for (Piece piece : pieces) {
+            piece.rotate(Direction.NORTH, Direction.SOUTH); // Turned since it was added
+            final Side east = piece.getSide(Direction.EAST);
+            if (!east.isFlat()) { // Flat sides are too ambiguous to look up
+                final Piece probe = new Piece.Builder().setSide(east, Direction.NORTH).build();
+                assertTrue(piece == counted.findRotated(probe));
+                assertTrue(east == piece.getSide(Direction.NORTH));
+            }
+        }
+        assertEquals(0, finds[0]);
+    }
+
+    @Test
+    public void testCandidates() {
+        final Piece piece = bigList.get(Direction.NORTH, 123);
+        final Piece probe =
+            new Piece.Builder().setSide(piece.getSide(Direction.WEST), Direction.WEST).build();
+        PieceCursor cursor = bigList.candidates(probe, Direction.WEST);
+        assertEquals(1, cursor.count());
+        assertTrue(cursor.hasNext());
+        assertTrue(piece == cursor.next());
+        assertFalse(cursor.hasNext());
+
+        // Every piece with a flat north side
+        int flats = 0;
+        for (int i = 0; i < bigList.size(); i++) {
+            if (bigList.get(Direction.NORTH, i).getSide(Direction.NORTH).isFlat()) {
+                flats++;
+            }
+        }
+        final Piece flatProbe =
+            new Piece.Builder().setSide(SimpleSide.FLAT, Direction.NORTH).build();
+        cursor = bigList.candidates(flatProbe, Direction.NORTH);
+        assertEquals(flats, cursor.count());
+        final Set<Piece> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        while (cursor.hasNext()) {
+            final Piece candidate = cursor.next();
+            assertTrue(candidate.getSide(Direction.NORTH).isFlat());
+            assertTrue(seen.add(candidate));
+        }
+        assertEquals(flats, seen.size());
+    }
+
+    @Test
+    public void testRemove() {
+        final Piece piece = bigList.get(Direction.EAST, 17);
+        assertTrue(bigList.remove(piece));
+        assertFalse(bigList.remove(piece));
+        assertEquals(899, bigList.size());
+        assertNull(bigList.find(piece));
+        for (int i = 0; i < bigList.size(); i++) {
+            final Piece other = bigList.get(Direction.SOUTH, i);
+            assertTrue(other == bigList.find(other));
+        }
+    }
+
+    @Test
+    public void testRemoveMany() {
+        // Enough removals to compact several times, with lookups in between
+        for (int removed = 1; removed <= 600; removed++) {
+            final Piece piece = bigList.get(Direction.values()[removed % 4], removed % 7);
+            piece.rotate(Direction.NORTH, Direction.values()[removed % 4]);
+            assertTrue(bigList.remove(piece));
+            assertFalse(bigList.remove(piece));
+            assertEquals(900 - removed, bigList.size());
+            assertNull(bigList.find(piece));
+        }
+        for (Direction dir : Direction.values()) {
+            for (int i = 0; i < bigList.size(); i++) {
+                final Piece other = bigList.get(dir, i);
+                assertTrue(other == bigList.find(other));
+            }
+        }
+    }
+
+    @Test
+    public void testAddBack() {
+        // Back in place of its tombstones, before they are compacted away
+        final Piece piece = bigList.get(Direction.WEST, 33);
+        assertTrue(bigList.remove(piece));
+        bigList.add(piece);
+        assertEquals(900, bigList.size());
+        assertTrue(piece == bigList.find(piece));
+        assertTrue(bigList.remove(piece));
+        assertFalse(bigList.remove(piece));
+
+        // Adding a piece that is already in the list leaves it as it is
+        final Piece other = bigList.get(Direction.NORTH, 12);
+        bigList.add(other);
+        bigList.addAll(new Piece[]{other, piece, piece});
+        assertEquals(900, bigList.size());
+        assertTrue(bigList.remove(other));
+        assertNull(bigList.find(other));
+        testSorted();
+    }
+
+    @Test
+    public void testAddAllMerges() {
+        // Bulk add on top of pieces that were added one at a time
+        final Piece[] pieces = new SimpleGenerator().generate(10, 10);
+        final PieceList pieceList = new SimplePieceList();
+        for (int i = 0; i < 30; i++) {
+            pieceList.add(pieces[i]);
+        }
+        pieceList.addAll(Arrays.copyOfRange(pieces, 30, pieces.length));
+        assertEquals(pieces.length, pieceList.size());
+        for (Direction dir : Direction.values()) {
+            final PieceComparator comparator = new PieceComparator(dir);
+            for (int i = 0; i < pieceList.size() - 1; i++) {
+                assertTrue(
+                    comparator.compare(pieceList.get(dir, i), pieceList.get(dir, i + 1)) <= 0);
+            }
+        }
+        for (Piece piece : pieces) {
+            assertTrue(piece == pieceList.find(piece));
+        }
+    }
+
+    @Test
+    public void testDistinctSidesNeverCompareEqual() {
+        for (Direction dir : Direction.values()) {
+            final PieceComparator comparator = new PieceComparator(dir);
+            for (int i = 0; i < bigList.size() - 1; i++) {
+                final Piece piece = bigList.get(dir, i);
+                if (!piece.getSide(dir).isFlat()) {
+                    assertTrue(comparator.compare(piece, bigList.get(dir, i + 1)) < 0);
+                }
+            }
+        }
+    }
+
     @Test
     public void testSorted() {
         for (Direction dir : Direction.values()) {
@@ -66,4 +238,9 @@ public class SimplePieceListTest {
             }
         }
     }
+
+    @Test
+    public void testHandles() {
+        PieceListChecks.assertHandles(store -> new SimplePieceList(store, 100));
+    }
 }
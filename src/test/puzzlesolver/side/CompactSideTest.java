@@ -0,0 +1,133 @@
+package puzzlesolver.side;
+
+import org.junit.Test;
+
+import puzzlesolver.Point;
+import puzzlesolver.constants.Constants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompactSideTest {
+
+    private final SimpleSide simple = new SimpleSide(new Point(0, 0),
+                                                     new Point(4.3, 0.1),
+                                                     new Point(5.12345, 1.98765),
+                                                     new Point(10, 0));
+    private final CompactSide compact = CompactSide.of(simple);
+
+    @Test
+    public void testPoints() {
+        assertEquals(simple.pointCount(), compact.pointCount());
+        for (int i = 0; i < simple.pointCount(); i++) {
+            assertEquals(simple.x(i), compact.x(i), CompactSide.QUANTUM / 2);
+            assertEquals(simple.y(i), compact.y(i), CompactSide.QUANTUM / 2);
+        }
+        assertEquals(simple.getSideType(), compact.getSideType());
+        assertEquals(simple.getCornerDistance(), compact.getCornerDistance(), 0);
+        assertTrue(compact == CompactSide.of(compact));
+    }
+
+    @Test
+    public void testCompareTo() {
+        // Rounding moves each coordinate far less than the delta, so the original compares equal
+        assertEquals(0, compact.compareTo(simple));
+        assertEquals(0, simple.compareTo(compact));
+        assertEquals(simple.compareTo(simple.inverse()), compact.compareTo(compact.inverse()));
+    }
+
+    @Test
+    public void testCompareToBorderline() {
+        // Just within the delta, but rounding moves the heights a quantum apart, past the delta
+        final SimpleSide side = SimpleSide.fromCoordinates(0, 0, 0.5, 0.3, 1, 0);
+        final SimpleSide nudged = SimpleSide.fromCoordinates(0, 0, 0.5, 0.3 + 9.999e-6, 1, 0);
+        assertEquals(0, side.compareTo(nudged));
+        assertEquals(-1, CompactSide.of(side).compareTo(CompactSide.of(nudged)));
+    }
+
+    @Test
+    public void testCompareToBounds() {
+        // Rounding can only change the comparison of coordinates within a quantum of the delta
+        final double near = Constants.COMP_DELTA - CompactSide.QUANTUM;
+        final double far = Constants.COMP_DELTA + CompactSide.QUANTUM;
+        for (int i = 0; i < 1000; i++) {
+            final double height = 0.3 + i * 1.2345e-7;
+            final double offset = (i % 100) * far / 80;
+            final SimpleSide side = SimpleSide.fromCoordinates(0, 0, 0.5, height, 1, 0);
+            final SimpleSide other = SimpleSide.fromCoordinates(0, 0, 0.5, height + offset, 1, 0);
+            final double distance = other.y(1) - side.y(1);
+            final int compactComparison =
+                CompactSide.of(side).compareTo(CompactSide.of(other));
+            if (distance <= near) {
+                assertEquals("At a distance of " + distance, 0, compactComparison);
+            } else if (distance > far) {
+                assertEquals("At a distance of " + distance, -1, compactComparison);
+            }
+        }
+    }
+
+    @Test
+    public void testEquals() {
+        assertEquals(compact, CompactSide.of(simple.copy()));
+        assertEquals(compact.hashCode(), CompactSide.of(simple.copy()).hashCode());
+        assertEquals(compact.fingerprint(), CompactSide.of(simple.copy()).fingerprint());
+
+        // Sides with exactly representable points equal their compact versions, whatever the type
+        final SimpleSide flat = new SimpleSide(new Point(0, 0), new Point(10, 0));
+        final CompactSide compactFlat = CompactSide.of(flat);
+        assertEquals(flat, compactFlat);
+        assertEquals(compactFlat, flat);
+        assertEquals(flat.hashCode(), compactFlat.hashCode());
+        assertEquals(flat.fingerprint(), compactFlat.fingerprint());
+        assertNotEquals(compact, simple);
+    }
+
+    @Test
+    public void testInverse() {
+        assertTrue(compact.inverse().inverse() == compact);
+        assertEquals(CompactSide.of(simple.inverse()), compact.inverse());
+        assertEquals(simple.inverse().getSideType(), compact.inverse().getSideType());
+
+        // Inverses keep signed zeroes, so flat sides equal and differ just like simple ones do
+        final SimpleSide flat = new SimpleSide(new Point(0, 0), new Point(10, 0));
+        assertEquals(flat.inverse(), CompactSide.of(flat).inverse());
+        assertFalse(CompactSide.of(flat).equals(CompactSide.of(flat).inverse()));
+        assertTrue(CompactSide.of(flat.inverse()).inverse().equals(flat));
+    }
+
+    @Test
+    public void testSimplify() {
+        final SimpleSide full = SimpleSide.fromCoordinates(0, 0, 1, 0, 2, 0, 3, 0, 4, 0,
+                                                           4.5, 1.02, 5, 2, 5.5, 1, 6, 0,
+                                                           8, 0, 10, 0);
+        final CompactSide compactFull = CompactSide.of(full);
+        final CompactSide simplified = compactFull.simplify(0.1);
+        assertEquals(full.simplify(0.1).pointCount(), simplified.pointCount());
+        assertTrue(compactFull == simplified.fullResolution());
+        assertNotEquals(compactFull, simplified);
+
+        // Compacting a simplified side keeps its full resolution too
+        assertEquals(simplified, CompactSide.of(full.simplify(0.1)));
+        assertEquals(simplified.inverse(), compactFull.inverse().simplify(0.1));
+        assertTrue(compactFull == simplified.simplify(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLarge() {
+        CompactSide.of(new SimpleSide(new Point(0, 0),
+                                      new Point(CompactSide.MAX_COORDINATE * 2, 0)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDeltaTooSmall() {
+        final double delta = Constants.COMP_DELTA;
+        Constants.COMP_DELTA = CompactSide.QUANTUM;
+        try {
+            CompactSide.of(simple);
+        } finally {
+            Constants.COMP_DELTA = delta;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package puzzlesolver.side;
+
+import org.junit.Test;
+
+import puzzlesolver.Point;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SideDescriptorTest {
+
+    private static final double DELTA = 1e-9;
+
+    private final Side bump = new SimpleSide(new Point(0, 0),
+                                             new Point(4, 0),
+                                             new Point(5, 2),
+                                             new Point(6, 0),
+                                             new Point(10, 0));
+
+    @Test
+    public void testProfile() {
+        final SideDescriptor descriptor = SideDescriptor.of(bump, 9);
+        assertEquals(9, descriptor.size());
+        assertEquals(0, descriptor.get(0), DELTA); // x = 1
+        assertEquals(2, descriptor.get(4), DELTA); // x = 5, the peak
+        assertEquals(0, descriptor.get(3), DELTA); // x = 4, the foot of the peak
+        assertEquals(0, descriptor.get(8), DELTA); // x = 9
+    }
+
+    @Test
+    public void testInvariance() {
+        // Rotate the bump by 30 degrees and move it, which must not change the profile
+        final double cos = Math.cos(Math.PI / 6);
+        final double sin = Math.sin(Math.PI / 6);
+        final double[] moved = new double[bump.pointCount() * 2];
+        for (int i = 0; i < bump.pointCount(); i++) {
+            moved[i * 2] = bump.x(i) * cos - bump.y(i) * sin + 3;
+            moved[i * 2 + 1] = bump.x(i) * sin + bump.y(i) * cos - 7;
+        }
+        assertEquals(0,
+                     SideDescriptor.of(bump).distance(
+                         SideDescriptor.of(SimpleSide.fromCoordinates(moved))),
+                     DELTA);
+    }
+
+    @Test
+    public void testInverse() {
+        final SideDescriptor descriptor = SideDescriptor.of(bump);
+        assertEquals(0, descriptor.inverse().distance(SideDescriptor.of(bump.inverse())), DELTA);
+        assertTrue(descriptor.distance(descriptor.inverse()) > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentSizes() {
+        SideDescriptor.of(bump, 4).distance(SideDescriptor.of(bump, 5));
+    }
+}
@@ -0,0 +1,103 @@
+package puzzlesolver.side;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import puzzlesolver.Piece;
+import puzzlesolver.Point;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.generator.Generator;
+import puzzlesolver.generator.SimpleGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SideTableTest {
+
+    private SideTable table;
+
+    private final Side s1 = new SimpleSide(new Point(0, 0),
+                                           new Point(5, 1),
+                                           new Point(10, 0));
+    private final Side s1Copy = new SimpleSide(new Point(0, 0),
+                                               new Point(5, 1),
+                                               new Point(10, 0));
+    private final Side flat = new SimpleSide(new Point(0, 0),
+                                             new Point(10, 0));
+
+    @Before
+    public void setUp() {
+        table = new SideTable(1);
+    }
+
+    @Test
+    public void testIntern() {
+        final int id = table.intern(s1);
+        assertEquals(0, id);
+        assertEquals(id, table.intern(s1Copy));
+        assertEquals(1, table.intern(flat));
+        assertEquals(2, table.size());
+        assertTrue(s1 == table.get(id));
+        assertEquals(id, table.idOf(s1Copy));
+        assertEquals(SideTable.NO_SIDE, table.idOf(s1.inverse()));
+    }
+
+    @Test
+    public void testMate() {
+        final int id = table.intern(s1);
+        assertEquals(SideTable.NO_SIDE, table.mateId(id));
+        assertNull(table.mate(id));
+
+        final int inverseId = table.intern(s1.inverse());
+        assertNotEquals(id, inverseId);
+        assertEquals(inverseId, table.mateId(id));
+        assertEquals(id, table.mateId(inverseId));
+        assertEquals(s1.inverse(), table.mate(id));
+        assertEquals(s1, table.mate(inverseId));
+
+        assertEquals(SideTable.NO_SIDE, table.mateId(table.intern(flat)));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testBadId() {
+        table.intern(s1);
+        table.get(1);
+    }
+
+    @Test
+    public void testClear() {
+        table.intern(s1);
+        table.clear();
+        assertEquals(0, table.size());
+        assertEquals(SideTable.NO_SIDE, table.idOf(s1));
+    }
+
+    @Test
+    public void testPieceMates() {
+        Constants.RANDOM.setSeed("SideTableTest".hashCode());
+        Generator gen = new SimpleGenerator();
+        final Piece[] pieces = gen.generate(5, 5);
+        for (Piece piece : pieces) {
+            piece.internSides(table);
+        }
+
+        // Every non-flat side has a mate, and flat sides never do
+        int mates = 0;
+        for (Piece piece : pieces) {
+            for (Direction dir : Direction.values()) {
+                final int id = piece.getSideId(dir);
+                assertEquals(piece.getSide(dir), table.get(id));
+                if (piece.getSide(dir).isFlat()) {
+                    assertEquals(SideTable.NO_SIDE, table.mateId(id));
+                } else {
+                    assertEquals(piece.getSide(dir).inverse(), table.mate(id));
+                    mates++;
+                }
+            }
+        }
+        assertEquals(2 * (4 * 5 + 5 * 4), mates); // Two sides per interior edge
+    }
+}
@@ -3,6 +3,7 @@ package puzzlesolver.side;
 import org.junit.Test;
 
 import puzzlesolver.Point;
+import puzzlesolver.constants.Constants;
 import puzzlesolver.enums.SideType;
 
 import static org.junit.Assert.assertEquals;
@@ -61,6 +62,36 @@ public class SimpleSideTest {
         assertNotEquals(0, s4_o.compareTo(s2));
     }
 
+    @Test
+    public void testInverse() throws Exception {
+        assertTrue(s4.inverse() == s4_o);
+        assertTrue(s4_o.inverse() == s4);
+        assertTrue(s2.inverse().inverse() == s2);
+        assertTrue(s3.inverse() == s3.inverse());
+        assertEquals(s2, s4_o.inverse());
+        assertFalse(s2.inverse() == s4.inverse());
+        assertEquals(s2.inverse(), s4.inverse());
+    }
+
+    @Test
+    public void testCompareToPoints() throws Exception {
+        final double delta = Constants.COMP_DELTA;
+        final Side low = new SimpleSide(new Point(0, 0), new Point(5, 1), new Point(10, 0));
+        final Side high = new SimpleSide(new Point(0, 0), new Point(5, 1.5), new Point(10, 0));
+        final Side right = new SimpleSide(new Point(0, 0), new Point(6, 1), new Point(10, 0));
+        final Side near = new SimpleSide(new Point(0, 0), new Point(5, 1 + delta / 2),
+                                         new Point(10, 0));
+
+        assertTrue(low.compareTo(high) < 0);
+        assertTrue(high.compareTo(low) > 0);
+        assertTrue(low.compareTo(right) < 0);
+        assertTrue(right.compareTo(low) > 0);
+        assertTrue(right.compareTo(high) < 0); // y is compared before x
+        assertEquals(0, low.compareTo(near));
+        assertEquals(0, near.compareTo(low));
+        assertNotEquals(low, near); // But equals is still exact
+    }
+
     @Test
     public void testGetCornerDistance() throws Exception {
         assertEquals(10, s2.getCornerDistance(), 0.01);
@@ -79,8 +110,128 @@ public class SimpleSideTest {
         assertEquals(SideType.IN, s4_o.getSideType());
     }
 
+    @Test
+    public void testFingerprint() throws Exception {
+        assertEquals(s2.fingerprint(), s4.fingerprint());
+        assertEquals(s2.fingerprint(), s2.copy().fingerprint());
+        assertEquals(s4.fingerprint(), s4_o.inverse().fingerprint());
+        assertNotEquals(s2.fingerprint(), s3.fingerprint());
+        assertNotEquals(s4.fingerprint(), s4_o.fingerprint());
+        assertEquals(s2.fingerprint(), s2.probeFingerprints()[0]);
+    }
+
+    @Test
+    public void testProbeFingerprints() throws Exception {
+        // Walk a coordinate across a cell boundary in steps smaller than the delta. Every side
+        // within the delta of another must be found by probing for the other's fingerprints.
+        final double delta = Constants.COMP_DELTA;
+        for (double y = 1.3d; y < 1.3d + 4000 * delta; y += delta / 3) {
+            final Side side = new SimpleSide(new Point(0, 0), new Point(5, y), new Point(10, 0));
+            final Side near = new SimpleSide(new Point(0, 0), new Point(5, y + delta),
+                                             new Point(10, 0));
+            assertTrue(contains(side.probeFingerprints(), near.fingerprint()));
+            assertTrue(contains(near.probeFingerprints(), side.fingerprint()));
+        }
+    }
+
+    private static boolean contains(long[] fingerprints, long fingerprint) {
+        for (long l : fingerprints) {
+            if (l == fingerprint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Test
     public void testGetPointCount() throws Exception {
+        assertEquals(3, s2.pointCount());
+        assertEquals(2, s3.pointCount());
+        assertEquals(3, s4_o.pointCount());
+    }
+
+    @Test
+    public void testCoordinates() throws Exception {
+        assertEquals(5, s2.x(1), 0);
+        assertEquals(1, s2.y(1), 0);
+        assertEquals(8.1, s3.x(1), 0);
+        assertEquals(5, s4_o.x(1), 0);
+        assertEquals(-1, s4_o.y(1), 0);
+
+        final Point[] points = s2.getPoints();
+        assertEquals(s2.pointCount(), points.length);
+        for (int i = 0; i < points.length; i++) {
+            assertEquals(new Point(s2.x(i), s2.y(i)), points[i]);
+        }
+        assertEquals(s2, new SimpleSide(points));
+        assertEquals(s2, SimpleSide.fromCoordinates(0, 0, 5, 1, 10, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromOddCoordinates() throws Exception {
+        SimpleSide.fromCoordinates(0, 0, 5, 1, 10);
+    }
+
+    @Test
+    public void testSimplify() throws Exception {
+        // A bump with points along the flat parts, and a little wobble near the peak
+        final SimpleSide full = SimpleSide.fromCoordinates(0, 0, 1, 0, 2, 0, 3, 0, 4, 0,
+                                                           4.5, 1.02, 5, 2, 5.5, 1, 6, 0,
+                                                           8, 0, 10, 0);
+        final SimpleSide simplified = full.simplify(0.1);
+        assertEquals(5, simplified.pointCount()); // Corners, both feet and the peak
+        assertEquals(full.getSideType(), simplified.getSideType());
+        assertEquals(full.getCornerDistance(), simplified.getCornerDistance(), 0);
+        assertTrue(full == simplified.fullResolution());
+        assertTrue(full == full.fullResolution());
+
+        // Equal only to sides that are equal at full resolution
+        assertEquals(simplified, full.copy().simplify(0.1));
+        assertEquals(simplified.hashCode(), full.copy().simplify(0.1).hashCode());
+        assertNotEquals(simplified, full);
+        final SimpleSide other = SimpleSide.fromCoordinates(0, 0, 1, 0, 2, 0, 3, 0, 4, 0,
+                                                            4.5, 0.98, 5, 2, 5.5, 1, 6, 0,
+                                                            8, 0, 10, 0);
+        assertEquals(0, simplified.compareTo(other.simplify(0.1)));
+        assertNotEquals(simplified, other.simplify(0.1));
+
+        // Inverses simplify the same way, and re-simplifying starts from full resolution
+        assertEquals(full.inverse().simplify(0.1), simplified.inverse());
+        assertTrue(full.inverse() == simplified.inverse().fullResolution());
+        assertTrue(full == simplified.simplify(0));
+        assertEquals(full.simplify(0.5), simplified.simplify(0.5));
+    }
+
+    @Test
+    public void testFromSimplifiedCoordinates() throws Exception {
+        final double[] fullCoords = {0, 0, 1, 0, 2, 0, 3, 0, 4, 0, 4.5, 1.02, 5, 2, 5.5, 1, 6, 0,
+                                     8, 0, 10, 0};
+        final SimpleSide full = SimpleSide.fromCoordinates(fullCoords);
+        final SimpleSide simplified = full.simplify(0.1);
+        final double[] coords = new double[simplified.pointCount() * 2];
+        for (int i = 0; i < simplified.pointCount(); i++) {
+            coords[2 * i] = simplified.x(i);
+            coords[2 * i + 1] = simplified.y(i);
+        }
+
+        // Rebuilt with a copy of its source, it is equal to the original in every way
+        final SimpleSide source = SimpleSide.fromCoordinates(fullCoords);
+        final SimpleSide rebuilt = SimpleSide.fromCoordinates(coords, source);
+        assertEquals(simplified, rebuilt);
+        assertEquals(simplified.getSideType(), rebuilt.getSideType());
+        assertEquals(simplified.fingerprint(), rebuilt.fingerprint());
+        assertEquals(full, rebuilt.fullResolution());
+        assertNotEquals(simplified, SimpleSide.fromCoordinates(coords, null));
+    }
+
+    @Test
+    public void testSimplifyCollinear() throws Exception {
+        final SimpleSide full = SimpleSide.fromCoordinates(0, 0, 2.5, 0, 5, 0, 7.5, 0, 10, 0);
+        final SimpleSide simplified = full.simplify(Constants.COMP_DELTA);
 
+        // Nothing was lost, so the simplified side is just a flat side
+        assertEquals(2, simplified.pointCount());
+        assertTrue(simplified == simplified.fullResolution());
+        assertEquals(new SimpleSide(new Point(0, 0), new Point(10, 0)), simplified);
     }
 }
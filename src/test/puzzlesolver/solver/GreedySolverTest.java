@@ -0,0 +1,53 @@
+package puzzlesolver.solver;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import puzzlesolver.BorderIndex;
+import puzzlesolver.Piece;
+import puzzlesolver.PieceProbe;
+import puzzlesolver.constants.Constants;
+import puzzlesolver.enums.Direction;
+import puzzlesolver.generator.SimpleGenerator;
+import puzzlesolver.side.SimpleSide;
+
+public class GreedySolverTest {
+
+    private GreedySolver solver;
+    private Piece interior;
+
+    @Before
+    public void setUp() {
+        Constants.RANDOM.setSeed("GreedySolverTest".hashCode());
+        final Piece[] pieces = new SimpleGenerator().generate(5, 5);
+        solver = new GreedySolver();
+        solver.init(pieces);
+        for (Piece piece : pieces) {
+            if (BorderIndex.flatMask(piece) == 0) {
+                interior = piece;
+            }
+        }
+    }
+
+    @Test
+    public void testUniqueBeatsAmbiguous() {
+        // Only one piece has this side, but every border piece has a flat side
+        final PieceProbe unique = new PieceProbe()
+            .setSide(interior.getSide(Direction.NORTH), Direction.NORTH);
+        final PieceProbe ambiguous = new PieceProbe().setSide(SimpleSide.FLAT, Direction.NORTH);
+        final float uniqueScore = solver.scorePiece(solver.state, unique);
+        final float ambiguousScore = solver.scorePiece(solver.state, ambiguous);
+        assertEquals(1f, uniqueScore, 0f);
+        assertTrue(uniqueScore + " should beat " + ambiguousScore, uniqueScore < ambiguousScore);
+    }
+
+    @Test
+    public void testDeadEnd() {
+        final PieceProbe probe = new PieceProbe()
+            .setSide(interior.getSide(Direction.EAST), Direction.WEST);
+        solver.state.unplacedPieces.remove(interior);
+        assertEquals(GreedySolver.DEAD_END, solver.scorePiece(solver.state, probe), 0f);
+    }
+}